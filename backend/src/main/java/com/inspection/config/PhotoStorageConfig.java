@@ -0,0 +1,43 @@
+package com.inspection.config;
+
+import com.inspection.storage.LocalPhotoStorage;
+import com.inspection.storage.PhotoStorage;
+import com.inspection.storage.S3PhotoStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Chooses where photos are kept: {@code inspection.photos.storage=local} (the default) keeps
+ * them below a local directory, {@code s3} in a bucket of an S3-compatible object store, which
+ * lets several backend nodes share them.
+ */
+@Configuration
+public class PhotoStorageConfig {
+    
+    @Bean
+    @ConditionalOnProperty(name = "inspection.photos.storage", havingValue = "local", matchIfMissing = true)
+    public PhotoStorage localPhotoStorage(@Value("${inspection.photos.local.dir:uploads/objects}") String dir) {
+        return new LocalPhotoStorage(Paths.get(dir));
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "inspection.photos.storage", havingValue = "s3")
+    public PhotoStorage s3PhotoStorage(@Value("${inspection.photos.s3.endpoint}") String endpoint,
+                                       @Value("${inspection.photos.s3.region:us-east-1}") String region,
+                                       @Value("${inspection.photos.s3.bucket}") String bucket,
+                                       @Value("${inspection.photos.s3.key-prefix:}") String keyPrefix,
+                                       @Value("${inspection.photos.s3.access-key}") String accessKey,
+                                       @Value("${inspection.photos.s3.secret-key}") String secretKey) {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        return new S3PhotoStorage(client, URI.create(endpoint), region, bucket, keyPrefix, accessKey, secretKey);
+    }
+}
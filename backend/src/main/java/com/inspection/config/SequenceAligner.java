@@ -0,0 +1,57 @@
+package com.inspection.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves id sequences past the highest existing id. Tables created while the entities
+ * still used IDENTITY columns already contain rows, and a freshly created sequence
+ * would otherwise hand out ids that are taken.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SequenceAligner implements CommandLineRunner {
+    
+    private static final Logger log = LoggerFactory.getLogger(SequenceAligner.class);
+    
+    // Sequence name -> table it generates ids for, with the allocation size of its generator
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "inspections_seq", "inspections",
+            "results_seq", "results");
+    private static final int ALLOCATION_SIZE = 50;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    
+    public SequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+    
+    @Override
+    public void run(String... args) {
+        SEQUENCES.forEach(this::align);
+    }
+    
+    private void align(String sequence, String table) {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        Long next = jdbcTemplate.queryForObject(
+                dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+        // The pooled optimizer hands out the block ending at the sequence value
+        if (maxId != null && maxId > 0 && next != null && next - ALLOCATION_SIZE < maxId) {
+            long restart = maxId + ALLOCATION_SIZE + 1;
+            jdbcTemplate.execute("alter sequence " + sequence + " restart with " + restart);
+            log.info("Moved sequence {} to {} past existing ids of {}", sequence, restart, table);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.inspection.controller;
+
+import com.inspection.dto.ComplianceStats;
+import com.inspection.repository.ComplianceRollupRepository;
+import com.inspection.service.ComplianceRollupService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compliance analytics. All reads go to the pre-aggregated rollup table only.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "*")
+public class AnalyticsController {
+    
+    private static final String MIN_PERIOD = "0000-01";
+    private static final String MAX_PERIOD = "9999-12";
+    
+    private final ComplianceRollupRepository rollupRepository;
+    private final ComplianceRollupService rollupService;
+    
+    public AnalyticsController(ComplianceRollupRepository rollupRepository, ComplianceRollupService rollupService) {
+        this.rollupRepository = rollupRepository;
+        this.rollupService = rollupService;
+    }
+    
+    @GetMapping("/compliance/facilities")
+    public ResponseEntity<?> complianceByFacility(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        String[] range = parseRange(from, to);
+        if (range == null) {
+            return invalidRange();
+        }
+        return ResponseEntity.ok(rollupRepository.sumByFacility(range[0], range[1]));
+    }
+    
+    @GetMapping("/compliance/monthly")
+    public ResponseEntity<?> complianceByMonth(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String facility,
+            @RequestParam(required = false) Long inspectorId) {
+        String[] range = parseRange(from, to);
+        if (range == null) {
+            return invalidRange();
+        }
+        List<ComplianceStats> stats = rollupRepository.sumByPeriod(range[0], range[1], facility, inspectorId);
+        return ResponseEntity.ok(stats);
+    }
+    
+    @GetMapping("/compliance/inspectors")
+    public ResponseEntity<?> complianceByInspector(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        String[] range = parseRange(from, to);
+        if (range == null) {
+            return invalidRange();
+        }
+        return ResponseEntity.ok(rollupRepository.sumByInspector(range[0], range[1]));
+    }
+    
+    @PostMapping("/compliance/rebuild")
+    public ResponseEntity<?> rebuildRollups() {
+        rollupService.rebuild();
+        return ResponseEntity.ok(Map.of("message", "Compliance rollups rebuilt"));
+    }
+    
+    // Periods are months in "yyyy-MM" form; an open bound covers all months
+    private String[] parseRange(String from, String to) {
+        try {
+            return new String[] {
+                from != null ? YearMonth.parse(from).toString() : MIN_PERIOD,
+                to != null ? YearMonth.parse(to).toString() : MAX_PERIOD
+            };
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    private ResponseEntity<?> invalidRange() {
+        return ResponseEntity.badRequest().body(Map.of("error", "Periods must use the format yyyy-MM"));
+    }
+}
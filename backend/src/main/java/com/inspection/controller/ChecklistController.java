@@ -1,32 +1,55 @@
 package com.inspection.controller;
 
+import com.inspection.dto.ChecklistCloneRequest;
+import com.inspection.dto.ChecklistSnapshot;
+import com.inspection.dto.ItemMove;
 import com.inspection.model.Checklist;
 import com.inspection.model.ChecklistItem;
-import com.inspection.model.Result;
 import com.inspection.repository.ChecklistRepository;
 import com.inspection.repository.ChecklistItemRepository;
-import com.inspection.repository.ResultRepository;
+import com.inspection.service.ChecklistMutationService;
+import com.inspection.service.ChecklistOrderService;
+import com.inspection.service.ChecklistVersionService;
+import com.inspection.service.SearchService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/checklists")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 public class ChecklistController {
     
+    private static final int MAX_CLONE_ITEM_IDS = 1000;
+    
     private final ChecklistRepository checklistRepository;
     private final ChecklistItemRepository checklistItemRepository;
-    private final ResultRepository resultRepository;
+    private final ChecklistMutationService mutationService;
+    private final SearchService searchService;
+    private final ChecklistVersionService versionService;
+    private final ChecklistOrderService orderService;
     
     public ChecklistController(ChecklistRepository checklistRepository, 
                                ChecklistItemRepository checklistItemRepository,
-                               ResultRepository resultRepository) {
+                               ChecklistMutationService mutationService,
+                               SearchService searchService,
+                               ChecklistVersionService versionService,
+                               ChecklistOrderService orderService) {
         this.checklistRepository = checklistRepository;
         this.checklistItemRepository = checklistItemRepository;
-        this.resultRepository = resultRepository;
+        this.mutationService = mutationService;
+        this.searchService = searchService;
+        this.versionService = versionService;
+        this.orderService = orderService;
     }
     
     @GetMapping
@@ -35,15 +58,62 @@ public class ChecklistController {
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Checklist> getChecklistById(@PathVariable Long id) {
-        return checklistRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Checklist> getChecklistById(@PathVariable Long id, WebRequest request) {
+        Optional<Checklist> checklist = checklistRepository.findById(id);
+        if (checklist.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = ETags.checklist(checklist.get());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(checklist.get());
     }
     
     @GetMapping("/{id}/items")
-    public List<ChecklistItem> getChecklistItems(@PathVariable Long id) {
-        return checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(id);
+    public ResponseEntity<List<ChecklistItem>> getChecklistItems(@PathVariable Long id, WebRequest request) {
+        Optional<Checklist> checklist = checklistRepository.findById(id);
+        if (checklist.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        
+        // Item changes bump the owning checklist's version, so it validates the item list too
+        String etag = ETags.checklist(checklist.get());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(id));
+    }
+    
+    /**
+     * Publishes the checklist's current items as a new immutable version. Inspections created
+     * afterwards are pinned to it.
+     */
+    @PostMapping("/{id}/versions")
+    public ResponseEntity<ChecklistSnapshot> publishVersion(@PathVariable Long id) {
+        return versionService.publish(id)
+                .map(snapshot -> ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.checklistVersion(snapshot)).body(snapshot))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    // Published versions never change, clients may cache them for good
+    @GetMapping("/{id}/versions/{version}")
+    public ResponseEntity<ChecklistSnapshot> getVersion(@PathVariable Long id, @PathVariable int version, WebRequest request) {
+        Optional<ChecklistSnapshot> snapshot = versionService.get(id, version);
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = ETags.checklistVersion(snapshot.get());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .body(snapshot.get());
     }
     
     @PostMapping
@@ -53,37 +123,95 @@ public class ChecklistController {
             for (ChecklistItem item : checklist.getItems()) {
                 item.setChecklist(checklist);
             }
+            ChecklistOrderService.spread(checklist.getItems());
         }
         Checklist saved = checklistRepository.save(checklist);
+        if (saved.getItems() != null) {
+            saved.getItems().forEach(searchService::checklistItemSaved);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
     
     @PostMapping("/{id}/items")
+    @Transactional
     public ResponseEntity<ChecklistItem> addItem(@PathVariable Long id, @RequestBody ChecklistItem item) {
         return checklistRepository.findById(id)
                 .map(checklist -> {
+                    // New items always go to the end, moves place them elsewhere
+                    checklistRepository.touch(checklist);
                     item.setChecklist(checklist);
+                    item.setOrderIndex(orderService.appendKey(checklist));
                     ChecklistItem saved = checklistItemRepository.save(item);
+                    searchService.checklistItemSaved(saved);
                     return ResponseEntity.status(HttpStatus.CREATED).body(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Checklist> updateChecklist(@PathVariable Long id, @RequestBody Checklist checklist) {
+    public ResponseEntity<?> updateChecklist(@PathVariable Long id, @RequestBody Checklist checklist,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         return checklistRepository.findById(id)
                 .map(existing -> {
+                    if (!ETags.matches(ifMatch, ETags.checklist(existing))) {
+                        return preconditionFailed();
+                    }
                     existing.setName(checklist.getName());
                     existing.setDescription(checklist.getDescription());
-                    return ResponseEntity.ok(checklistRepository.save(existing));
+                    Checklist saved = checklistRepository.saveAndFlush(existing);
+                    return ResponseEntity.ok().eTag(ETags.checklist(saved)).body(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Moves an item behind another item of the checklist, or to the top. Usually rewrites
+     * only the moved item.
+     */
+    @PutMapping("/{id}/items/{itemId}/position")
+    @Transactional
+    public ResponseEntity<?> moveItem(@PathVariable Long id, @PathVariable Long itemId, @RequestBody ItemMove move,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<Checklist> checklist = checklistRepository.findById(id);
+        if (checklist.isEmpty() || checklistItemRepository.findOrderIndex(itemId, id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!ETags.matches(ifMatch, ETags.checklist(checklist.get()))) {
+            return preconditionFailed();
+        }
+        Long afterItemId = move.afterItemId();
+        if (itemId.equals(afterItemId)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "An item cannot be moved behind itself"));
+        }
+        if (afterItemId != null && checklistItemRepository.findOrderIndex(afterItemId, id).isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Item " + afterItemId + " is not part of this checklist"));
+        }
+        
+        checklistRepository.touch(checklist.get());
+        int orderIndex = orderService.move(checklist.get(), itemId, afterItemId);
+        return ResponseEntity.ok().eTag(ETags.checklist(checklist.get())).body(Map.of("id", itemId, "orderIndex", orderIndex));
+    }
+    
+    /**
+     * Copies the checklist and its items inside the database, optionally prefixing item
+     * descriptions and copying only some items.
+     */
+    @PostMapping("/{id}/clone")
+    public ResponseEntity<?> cloneChecklist(@PathVariable Long id,
+                                            @RequestBody(required = false) ChecklistCloneRequest request) {
+        ChecklistCloneRequest options = request != null ? request : new ChecklistCloneRequest(null, null, null, null);
+        if (options.itemIds() != null && options.itemIds().size() > MAX_CLONE_ITEM_IDS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "At most " + MAX_CLONE_ITEM_IDS + " item ids can be selected"));
+        }
+        return mutationService.cloneChecklist(id, options)
+                .<ResponseEntity<?>>map(report -> ResponseEntity.status(HttpStatus.CREATED).body(report))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteChecklist(@PathVariable Long id) {
-        if (checklistRepository.existsById(id)) {
-            checklistRepository.deleteById(id);
+        if (mutationService.deleteChecklist(id)) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -91,34 +219,43 @@ public class ChecklistController {
     
     @DeleteMapping("/items/{itemId}")
     public ResponseEntity<Void> deleteChecklistItem(@PathVariable Long itemId) {
-        if (!checklistItemRepository.existsById(itemId)) {
-            return ResponseEntity.notFound().build();
-        }
-        
-        // Before deleting the item, nullify the reference in any results that point to it
-        // This preserves inspection results while allowing the checklist item to be deleted
-        List<Result> relatedResults = resultRepository.findByChecklistItemId(itemId);
-        for (Result result : relatedResults) {
-            result.setChecklistItem(null);
-            resultRepository.save(result);
+        // Results answering the item are kept, they only lose the reference to it
+        if (mutationService.deleteItem(itemId)) {
+            return ResponseEntity.noContent().build();
         }
-        
-        checklistItemRepository.deleteById(itemId);
-        return ResponseEntity.noContent().build();
+        return ResponseEntity.notFound().build();
     }
     
     @PutMapping("/items/{itemId}")
-    public ResponseEntity<ChecklistItem> updateChecklistItem(@PathVariable Long itemId, @RequestBody ChecklistItem item) {
+    @Transactional
+    public ResponseEntity<?> updateChecklistItem(@PathVariable Long itemId, @RequestBody ChecklistItem item,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         return checklistItemRepository.findById(itemId)
+                .filter(existing -> !existing.isDeleted())
                 .map(existing -> {
+                    Checklist checklist = existing.getChecklist();
+                    if (checklist != null && !ETags.matches(ifMatch, ETags.checklist(checklist))) {
+                        return preconditionFailed();
+                    }
                     if (item.getDescription() != null) {
                         existing.setDescription(item.getDescription());
                     }
                     if (item.getDesiredPhotoUrl() != null) {
                         existing.setDesiredPhotoUrl(item.getDesiredPhotoUrl());
                     }
-                    return ResponseEntity.ok(checklistItemRepository.save(existing));
+                    ChecklistItem saved = checklistItemRepository.save(existing);
+                    searchService.checklistItemSaved(saved);
+                    if (checklist == null) {
+                        return ResponseEntity.ok(saved);
+                    }
+                    checklistRepository.touch(checklist);
+                    return ResponseEntity.ok().eTag(ETags.checklist(checklist)).body(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
+    
+    private ResponseEntity<Map<String, String>> preconditionFailed() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(Map.of("error", "Checklist was modified by another request"));
+    }
 }
@@ -0,0 +1,62 @@
+package com.inspection.controller;
+
+import com.inspection.dto.ChecklistSnapshot;
+import com.inspection.model.Checklist;
+import com.inspection.model.Inspection;
+import com.inspection.model.Result;
+import com.inspection.model.User;
+
+import java.util.Objects;
+
+/**
+ * Strong entity tags derived from entity versions, so conditional requests can be answered
+ * without serializing the response body.
+ */
+final class ETags {
+    
+    private ETags() {}
+    
+    /**
+     * Covers everything the inspection views show: the inspection and its results (results
+     * bump the inspection version), the checklist header and the responsible user.
+     */
+    static String inspection(Inspection inspection) {
+        Checklist checklist = inspection.getChecklist();
+        User user = inspection.getResponsibleUser();
+        int userHash = Objects.hash(user.getId(), user.getUsername(), user.getName(), user.getEmail(),
+                user.getRole(), user.isEnabled());
+        return "\"inspection-" + inspection.getId() + "-" + inspection.getVersion()
+                + (checklist != null ? "-c" + checklist.getId() + "." + checklist.getVersion() : "")
+                + "-u" + Integer.toHexString(userHash) + "\"";
+    }
+    
+    /**
+     * Item changes bump the checklist version, so this also covers the item list.
+     */
+    static String checklist(Checklist checklist) {
+        return "\"checklist-" + checklist.getId() + "-" + checklist.getVersion() + "\"";
+    }
+    
+    static String checklistVersion(ChecklistSnapshot snapshot) {
+        return "\"checklist-" + snapshot.checklistId() + "-v" + snapshot.version() + "\"";
+    }
+    
+    static String result(Result result) {
+        return "\"result-" + result.getId() + "-" + result.getVersion() + "\"";
+    }
+    
+    /**
+     * Evaluates an If-Match header with strong comparison. A missing header always matches.
+     */
+    static boolean matches(String ifMatch, String current) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return true;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            if (candidate.trim().equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package com.inspection.controller;
+
+import com.inspection.service.InspectionEventHub;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "*")
+public class EventController {
+    
+    private final InspectionEventHub eventHub;
+    
+    public EventController(InspectionEventHub eventHub) {
+        this.eventHub = eventHub;
+    }
+    
+    /**
+     * Server-sent event stream of inspection-created, status-changed and result-saved events.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        return eventHub.subscribe();
+    }
+}
@@ -1,32 +1,70 @@
 package com.inspection.controller;
 
+import com.inspection.dto.UploadCompletion;
+import com.inspection.dto.UploadSessionRequest;
+import com.inspection.dto.UploadSessionView;
+import com.inspection.service.PhotoStore;
+import com.inspection.service.StoredPhoto;
+import com.inspection.service.ThumbnailService;
+import com.inspection.service.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/files")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {HttpHeaders.ETAG, HttpHeaders.CONTENT_RANGE, HttpHeaders.ACCEPT_RANGES})
 public class FileUploadController {
     
-    private final Path uploadDir = Paths.get("uploads");
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
     
-    public FileUploadController() {
-        try {
-            Files.createDirectories(uploadDir);
-        } catch (IOException e) {
-            throw new RuntimeException("Could not create upload directory", e);
-        }
+    // Request attributes of Tomcat's sendfile support, which hands the file to the kernel
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
+    // Below this size a plain copy is cheaper than setting up sendfile
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+    
+    private final PhotoStore photoStore;
+    private final ThumbnailService thumbnailService;
+    private final UploadSessionService uploadSessionService;
+    private final long maxResumableSize;
+    
+    public FileUploadController(PhotoStore photoStore,
+                                ThumbnailService thumbnailService,
+                                UploadSessionService uploadSessionService,
+                                @Value("${inspection.photos.upload-sessions.max-size:52428800}") long maxResumableSize) {
+        this.photoStore = photoStore;
+        this.thumbnailService = thumbnailService;
+        this.uploadSessionService = uploadSessionService;
+        this.maxResumableSize = maxResumableSize;
     }
     
     @PostMapping("/upload")
@@ -46,17 +84,10 @@ public class FileUploadController {
             return ResponseEntity.badRequest().body(Map.of("error", "File size exceeds 5MB limit"));
         }
         
-        try {
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null && originalFilename.contains(".") 
-                ? originalFilename.substring(originalFilename.lastIndexOf(".")) 
-                : ".jpg";
-            String filename = UUID.randomUUID().toString() + extension;
-            
-            // Save file
-            Path filePath = uploadDir.resolve(filename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        try (InputStream content = file.getInputStream()) {
+            // Identical photos are stored once and share a name
+            String filename = photoStore.store(content, file.getOriginalFilename());
+            thumbnailService.generateAll(filename);
             
             // Return the URL to access the file
             Map<String, String> response = new HashMap<>();
@@ -70,22 +101,216 @@ public class FileUploadController {
         }
     }
     
+    /**
+     * Starts a resumable upload. The photo is then sent in chunks with
+     * {@code PUT /sessions/{id}?offset=}, and stored with {@code POST /sessions/{id}/complete}.
+     */
+    @PostMapping("/sessions")
+    public ResponseEntity<?> startUpload(@RequestBody UploadSessionRequest request) throws IOException {
+        if (request.contentType() == null || !request.contentType().startsWith("image/")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Only image files are allowed"));
+        }
+        if (request.size() == null || request.size() <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
+        }
+        if (request.size() > maxResumableSize) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "File size exceeds " + maxResumableSize / (1024 * 1024) + "MB limit"));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadSessionService.start(request));
+    }
+    
+    /**
+     * The offset to resume an interrupted upload from.
+     */
+    @GetMapping("/sessions/{id}")
+    public ResponseEntity<UploadSessionView> getUpload(@PathVariable String id) throws IOException {
+        return uploadSessionService.find(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Appends the request body, streamed straight to disk. The offset must equal the bytes
+     * received so far; otherwise 409 tells the client where to continue.
+     */
+    @PutMapping(value = "/sessions/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(@PathVariable String id, @RequestParam long offset,
+                                         HttpServletRequest request) throws IOException {
+        UploadSessionService.ChunkResult result = uploadSessionService.append(id, offset, request.getInputStream());
+        return switch (result.status()) {
+            case APPENDED -> ResponseEntity.ok(Map.of("offset", result.offset()));
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case OFFSET_MISMATCH -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Expected offset " + result.offset(), "offset", result.offset()));
+            case TOO_LARGE -> ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("error", "Chunk exceeds the announced file size", "offset", result.offset()));
+            case BUSY -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Another chunk of this upload is in progress"));
+        };
+    }
+    
+    @PostMapping("/sessions/{id}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String id, @RequestBody UploadCompletion completion)
+            throws IOException {
+        UploadSessionService.Completion result = uploadSessionService.complete(id, completion.sha256());
+        return switch (result.status()) {
+            case STORED -> {
+                thumbnailService.generateAll(result.filename());
+                Map<String, String> response = new HashMap<>();
+                response.put("url", "/api/files/" + result.filename());
+                response.put("filename", result.filename());
+                yield ResponseEntity.status(HttpStatus.CREATED).body(response);
+            }
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case INCOMPLETE -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Upload is incomplete", "offset", result.offset()));
+            case CHECKSUM_MISMATCH -> ResponseEntity.badRequest()
+                    .body(Map.of("error", "Checksum does not match, the upload was discarded"));
+            case BUSY -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Another chunk of this upload is in progress"));
+        };
+    }
+    
+    @DeleteMapping("/sessions/{id}")
+    public ResponseEntity<Void> cancelUpload(@PathVariable String id) throws IOException {
+        return uploadSessionService.cancel(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * Streams a photo without buffering it in memory. Single byte ranges are answered with 206,
+     * and uploads never change under their name, so clients may cache them for good. Large
+     * files on the local disk are handed to the connector's sendfile when it supports it;
+     * small photos from object storage are served from the photo cache.
+     *
+     * <p>With {@code size}, a downscaled variant is served instead; a missing variant is made on
+     * the spot. Files that are not decodable images are served unscaled.
+     */
     @GetMapping("/{filename}")
-    public ResponseEntity<byte[]> getFile(@PathVariable String filename) {
+    public ResponseEntity<?> getFile(@PathVariable String filename,
+                                     @RequestParam(required = false) Integer size,
+                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (size != null && !thumbnailService.isSupported(size)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Supported sizes are " + thumbnailService.sizes()));
+        }
+        Optional<StoredPhoto> stored = photoStore.resolve(filename);
+        if (stored.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        StoredPhoto photo = stored.get();
+        if (size != null) {
+            photo = thumbnailService.variant(filename, size).orElse(photo);
+        }
+        
+        long length = photo.size();
+        long lastModified = photo.lastModified();
+        String served = photo.name();
+        String etag = "\"" + served + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(served).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = singleRange(request, etag, lastModified);
+        if (range != null) {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            if (start >= length || start > end) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return null;
+        }
+        
+        Optional<Path> localFile = photoStore.localPath(photo);
+        if (localFile.isEmpty()) {
+            // Object storage: small photos come from the cache, others are streamed through
+            InputStream in;
+            try {
+                in = photoStore.open(photo, start, count);
+            } catch (NoSuchFileException e) {
+                return gone(response);
+            }
+            try (in) {
+                in.transferTo(response.getOutputStream());
+            }
+            return null;
+        }
+        Path filePath = localFile.get();
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, filePath.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return null;
+        }
+        FileChannel opened;
         try {
-            Path filePath = uploadDir.resolve(filename);
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
+            opened = FileChannel.open(filePath, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            photoStore.forget(photo);
+            return gone(response);
+        }
+        try (FileChannel channel = opened) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
             }
-            
-            byte[] fileContent = Files.readAllBytes(filePath);
-            String contentType = Files.probeContentType(filePath);
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", contentType != null ? contentType : "application/octet-stream")
-                    .body(fileContent);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        return null;
+    }
+    
+    // Deleted after its metadata was looked up, for example by another instance
+    private static ResponseEntity<?> gone(HttpServletResponse response) {
+        response.reset();
+        return ResponseEntity.notFound().build();
+    }
+    
+    // Null for a missing header, several ranges or an If-Range that no longer matches: send the whole file
+    private static HttpRange singleRange(HttpServletRequest request, String etag, long lastModified) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(request, etag, lastModified)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
 }
@@ -1,63 +1,179 @@
 package com.inspection.controller;
 
+import com.inspection.dto.InspectionDetail;
+import com.inspection.dto.InspectionEvent;
+import com.inspection.dto.InspectionPage;
+import com.inspection.dto.InspectionSummary;
 import com.inspection.model.Checklist;
 import com.inspection.model.Inspection;
 import com.inspection.model.InspectionStatus;
 import com.inspection.model.User;
 import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.InspectionCursor;
+import com.inspection.repository.InspectionFilter;
 import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
 import com.inspection.repository.UserRepository;
+import com.inspection.service.ChecklistVersionService;
+import com.inspection.service.ComplianceRollupService;
+import com.inspection.service.InspectionEventHub;
+import com.inspection.service.InspectionExportService;
+import com.inspection.service.InspectionImportService;
+import com.inspection.service.InspectionStatisticsService;
+import com.inspection.service.InspectionStatusService;
+import com.inspection.service.ResultWriteBuffer;
+import com.inspection.service.SearchService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/inspections")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 public class InspectionController {
     
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BULK_SIZE = 1000;
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    
     private final InspectionRepository inspectionRepository;
     private final UserRepository userRepository;
     private final ChecklistRepository checklistRepository;
+    private final ResultRepository resultRepository;
+    private final InspectionStatisticsService statisticsService;
+    private final ComplianceRollupService rollupService;
+    private final InspectionImportService importService;
+    private final InspectionExportService exportService;
+    private final InspectionEventHub eventHub;
+    private final InspectionStatusService statusService;
+    private final SearchService searchService;
+    private final ResultWriteBuffer writeBuffer;
+    private final ChecklistVersionService versionService;
     
-    public InspectionController(InspectionRepository inspectionRepository, UserRepository userRepository, ChecklistRepository checklistRepository) {
+    public InspectionController(InspectionRepository inspectionRepository, UserRepository userRepository,
+                                ChecklistRepository checklistRepository, ResultRepository resultRepository,
+                                InspectionStatisticsService statisticsService,
+                                ComplianceRollupService rollupService,
+                                InspectionImportService importService,
+                                InspectionExportService exportService,
+                                InspectionEventHub eventHub,
+                                InspectionStatusService statusService,
+                                SearchService searchService,
+                                ResultWriteBuffer writeBuffer,
+                                ChecklistVersionService versionService) {
         this.inspectionRepository = inspectionRepository;
         this.userRepository = userRepository;
         this.checklistRepository = checklistRepository;
+        this.resultRepository = resultRepository;
+        this.statisticsService = statisticsService;
+        this.rollupService = rollupService;
+        this.importService = importService;
+        this.exportService = exportService;
+        this.eventHub = eventHub;
+        this.statusService = statusService;
+        this.searchService = searchService;
+        this.writeBuffer = writeBuffer;
+        this.versionService = versionService;
     }
     
     @GetMapping
-    public List<Inspection> getAllInspections() {
-        return inspectionRepository.findAll();
+    public ResponseEntity<?> getAllInspections(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) InspectionStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long responsibleUserId,
+            @RequestParam(required = false) String facility) {
+        
+        // Without any paging or filter parameter keep the legacy unpaged response
+        if (limit == null && cursor == null && status == null && from == null && to == null
+                && responsibleUserId == null && facility == null) {
+            return ResponseEntity.ok(toSummaries(inspectionRepository.findAllWithAssociations()));
+        }
+        
+        InspectionCursor after;
+        try {
+            after = cursor != null ? InspectionCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
+        
+        int pageSize = Math.max(1, Math.min(limit != null ? limit : DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE));
+        InspectionFilter filter = new InspectionFilter(status, from, to, responsibleUserId, facility);
+        
+        // Fetch one extra row to know whether another page exists without a count query
+        List<Inspection> rows = inspectionRepository.findPage(filter, after, pageSize + 1);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Inspection last = rows.get(pageSize - 1);
+            nextCursor = new InspectionCursor(last.getInspectionDate(), last.getId()).encode();
+        }
+        return ResponseEntity.ok(new InspectionPage<>(toSummaries(rows), nextCursor));
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Inspection> getInspectionById(@PathVariable Long id) {
-        return inspectionRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<InspectionDetail> getInspectionById(@PathVariable Long id, WebRequest request) {
+        Optional<Inspection> inspection = inspectionRepository.findWithAssociationsById(id);
+        if (inspection.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        InspectionDetail detail;
+        if (writeBuffer.hasPending(id)) {
+            // Autosaved edits are not written yet, so the version based ETag would not cover them
+            detail = InspectionDetail.from(inspection.get(), resultRepository.findWithAssociationsByInspectionId(id));
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(detail.withResults(writeBuffer.overlay(detail.results())));
+        }
+        
+        // Answer revalidations with 304 before the results are even loaded
+        String etag = ETags.inspection(inspection.get());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        detail = InspectionDetail.from(inspection.get(), resultRepository.findWithAssociationsByInspectionId(id));
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(detail);
     }
     
     @GetMapping("/status/{status}")
-    public List<Inspection> getInspectionsByStatus(@PathVariable InspectionStatus status) {
-        return inspectionRepository.findByStatus(status);
+    public List<InspectionSummary> getInspectionsByStatus(@PathVariable InspectionStatus status) {
+        return toSummaries(inspectionRepository.findByStatusWithAssociations(status));
     }
     
     @GetMapping("/statistics")
     public Map<String, Long> getStatistics() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("planned", inspectionRepository.countByStatus(InspectionStatus.PLANNED));
-        stats.put("inProgress", inspectionRepository.countByStatus(InspectionStatus.IN_PROGRESS));
-        stats.put("completed", inspectionRepository.countByStatus(InspectionStatus.COMPLETED));
-        stats.put("total", inspectionRepository.count());
-        return stats;
+        return statisticsService.snapshot();
+    }
+    
+    @GetMapping("/statistics/drift")
+    public Map<String, Object> getStatisticsDrift() {
+        return statisticsService.driftReport();
     }
     
     @PostMapping
+    @Transactional
     public ResponseEntity<?> createInspection(@RequestBody Map<String, Object> requestBody) {
         try {
             Long responsibleUserId = Long.valueOf(requestBody.get("responsibleUserId").toString());
@@ -76,20 +192,63 @@ public class InspectionController {
                 Checklist checklist = checklistRepository.findById(checklistId)
                     .orElseThrow(() -> new RuntimeException("Checklist not found"));
                 inspection.setChecklist(checklist);
+                inspection.pinChecklistVersion(checklistId, versionService.latestVersion(checklistId).orElse(null));
             }
             
             Inspection saved = inspectionRepository.save(inspection);
-            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+            statisticsService.recordCreated(saved.getStatus());
+            rollupService.inspectionCreated(saved);
+            eventHub.publish(InspectionEvent.created(saved));
+            searchService.inspectionSaved(saved);
+            return ResponseEntity.status(HttpStatus.CREATED).body(InspectionSummary.from(saved));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Invalid request: " + e.getMessage()));
         }
     }
     
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importInspections(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                               InputStream body) {
+        InspectionImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV)
+                ? InspectionImportService.Format.CSV
+                : InspectionImportService.Format.NDJSON;
+        try {
+            return ResponseEntity.ok(importService.importInspections(body, format));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to read import data"));
+        }
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInspections(@RequestParam(defaultValue = "false") boolean gzip) {
+        writeBuffer.flush();
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                exportService.export(compressed);
+                compressed.finish();
+            } else {
+                exportService.export(out);
+            }
+        };
+        String filename = gzip ? "inspections.ndjson.gz" : "inspections.ndjson";
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+    
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateInspection(@PathVariable Long id, @RequestBody Map<String, Object> requestBody) {
+    @Transactional
+    public ResponseEntity<?> updateInspection(@PathVariable Long id, @RequestBody Map<String, Object> requestBody,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
             return inspectionRepository.findById(id)
                     .map(existing -> {
+                        if (!ETags.matches(ifMatch, ETags.inspection(existing))) {
+                            return preconditionFailed();
+                        }
+                        ComplianceRollupService.Key oldKey = ComplianceRollupService.Key.of(existing);
                         existing.setFacilityName((String) requestBody.get("facilityName"));
                         existing.setInspectionDate(java.time.LocalDate.parse((String) requestBody.get("inspectionDate")));
                         
@@ -106,13 +265,21 @@ public class InspectionController {
                                 Long checklistId = Long.valueOf(requestBody.get("checklistId").toString());
                                 Checklist checklist = checklistRepository.findById(checklistId)
                                     .orElseThrow(() -> new RuntimeException("Checklist not found"));
+                                // Keep the pinned version unless the inspection moves to another checklist
+                                if (existing.getChecklist() == null || !checklistId.equals(existing.getChecklist().getId())) {
+                                    existing.pinChecklistVersion(checklistId, versionService.latestVersion(checklistId).orElse(null));
+                                }
                                 existing.setChecklist(checklist);
                             } else {
                                 existing.setChecklist(null);
+                                existing.pinChecklistVersion(null, null);
                             }
                         }
                         
-                        return ResponseEntity.ok(inspectionRepository.save(existing));
+                        Inspection saved = inspectionRepository.saveAndFlush(existing);
+                        rollupService.inspectionMoved(oldKey, saved);
+                        searchService.inspectionSaved(saved);
+                        return ResponseEntity.ok().eTag(ETags.inspection(saved)).body(InspectionSummary.from(saved));
                     })
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
@@ -121,22 +288,75 @@ public class InspectionController {
     }
     
     @PutMapping("/{id}/status")
-    public ResponseEntity<Inspection> updateStatus(@PathVariable Long id, @RequestBody Map<String, String> body) {
+    @Transactional
+    public ResponseEntity<?> updateStatus(@PathVariable Long id, @RequestBody Map<String, String> body,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         return inspectionRepository.findById(id)
                 .map(existing -> {
+                    if (!ETags.matches(ifMatch, ETags.inspection(existing))) {
+                        return preconditionFailed();
+                    }
+                    InspectionStatus oldStatus = existing.getStatus();
                     InspectionStatus newStatus = InspectionStatus.valueOf(body.get("status"));
+                    if (!statusService.canTransition(oldStatus, newStatus)) {
+                        return ResponseEntity.status(HttpStatus.CONFLICT)
+                                .body(Map.of("error", "Cannot change status from " + oldStatus + " to " + newStatus));
+                    }
                     existing.setStatus(newStatus);
-                    return ResponseEntity.ok(inspectionRepository.save(existing));
+                    Inspection saved = inspectionRepository.saveAndFlush(existing);
+                    statisticsService.recordStatusChange(oldStatus, newStatus);
+                    rollupService.inspectionStatusChanged(saved, oldStatus);
+                    if (oldStatus != newStatus) {
+                        eventHub.publish(InspectionEvent.statusChanged(saved, oldStatus));
+                    }
+                    return ResponseEntity.ok().eTag(ETags.inspection(saved)).body(InspectionSummary.from(saved));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Moves many inspections to one status in a single transaction, e.g. for end-of-day closeout.
+     * Expects {@code {"ids": [...], "status": "COMPLETED"}} and reports an outcome per id.
+     */
+    @PutMapping("/status")
+    public ResponseEntity<?> updateStatuses(@RequestBody Map<String, Object> body) {
+        List<Long> ids;
+        InspectionStatus status;
+        try {
+            ids = ((List<?>) body.get("ids")).stream()
+                    .map(id -> Long.valueOf(id.toString()))
+                    .toList();
+            status = InspectionStatus.valueOf((String) body.get("status"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Expected a list of ids and a valid status"));
+        }
+        if (ids.isEmpty() || ids.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Between 1 and " + MAX_BULK_SIZE + " ids can be updated at once"));
+        }
+        return ResponseEntity.ok(statusService.transition(ids, status));
+    }
+    
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<Void> deleteInspection(@PathVariable Long id) {
-        if (inspectionRepository.existsById(id)) {
-            inspectionRepository.deleteById(id);
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.notFound().build();
+        return inspectionRepository.findById(id)
+                .map(existing -> {
+                    rollupService.inspectionDeleted(existing);
+                    inspectionRepository.delete(existing);
+                    statisticsService.recordDeleted(existing.getStatus());
+                    searchService.inspectionDeleted(id);
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    private ResponseEntity<Map<String, String>> preconditionFailed() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(Map.of("error", "Inspection was modified by another request"));
+    }
+    
+    private List<InspectionSummary> toSummaries(List<Inspection> inspections) {
+        return inspections.stream().map(InspectionSummary::from).toList();
     }
 }
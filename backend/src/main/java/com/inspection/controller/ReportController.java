@@ -0,0 +1,76 @@
+package com.inspection.controller;
+
+import com.inspection.service.InspectionReportService;
+import com.inspection.service.ResultWriteBuffer;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "*")
+public class ReportController {
+    
+    private static final long RENDER_TIMEOUT_SECONDS = 60;
+    
+    private final InspectionReportService reportService;
+    private final ResultWriteBuffer writeBuffer;
+    
+    public ReportController(InspectionReportService reportService, ResultWriteBuffer writeBuffer) {
+        this.reportService = reportService;
+        this.writeBuffer = writeBuffer;
+    }
+    
+    /**
+     * Responds once the report is rendered, without holding a request thread while it waits;
+     * a render taking longer than the timeout keeps running for the next request.
+     */
+    @GetMapping("/inspections/{id}")
+    public CompletableFuture<ResponseEntity<?>> getInspectionReport(@PathVariable Long id) {
+        CompletableFuture<Path> report;
+        if (writeBuffer.hasPending(id)) {
+            writeBuffer.flush();
+        }
+        try {
+            var pending = reportService.report(id);
+            if (pending.isEmpty()) {
+                return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+            }
+            report = pending.get();
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Report renderer is busy, please try again later")));
+        }
+        
+        // The render is shared with concurrent requests, so only this request's copy times out
+        return report.copy()
+                .orTimeout(RENDER_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .handle((path, error) -> {
+                    if (error == null) {
+                        Resource file = new FileSystemResource(path);
+                        return ResponseEntity.ok()
+                                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                                .body(file);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .body(Map.of("error", "Report is still rendering, please try again later"));
+                    }
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(Map.of("error", "Failed to render report"));
+                });
+    }
+}
@@ -1,62 +1,223 @@
 package com.inspection.controller;
 
+import com.inspection.dto.InspectionEvent;
+import com.inspection.dto.ResultChange;
+import com.inspection.dto.ResultState;
+import com.inspection.dto.ResultUpsert;
+import com.inspection.dto.ResultView;
+import com.inspection.model.ChecklistItem;
+import com.inspection.model.Inspection;
 import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
 import com.inspection.repository.ResultRepository;
 import com.inspection.repository.InspectionRepository;
+import com.inspection.service.ComplianceRollupService;
+import com.inspection.service.InspectionEventHub;
+import com.inspection.service.ResultHistoryService;
+import com.inspection.service.ResultUpsertService;
+import com.inspection.service.ResultWriteBuffer;
+import com.inspection.service.SearchService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/results")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 public class ResultController {
     
+    private static final int MAX_BATCH_SIZE = 1000;
+    
     private final ResultRepository resultRepository;
     private final InspectionRepository inspectionRepository;
+    private final ComplianceRollupService rollupService;
+    private final InspectionEventHub eventHub;
+    private final SearchService searchService;
+    private final ResultUpsertService upsertService;
+    private final ResultWriteBuffer writeBuffer;
+    private final ResultHistoryService historyService;
     
     public ResultController(ResultRepository resultRepository, 
-                           InspectionRepository inspectionRepository) {
+                           InspectionRepository inspectionRepository,
+                           ComplianceRollupService rollupService,
+                           InspectionEventHub eventHub,
+                           SearchService searchService,
+                           ResultUpsertService upsertService,
+                           ResultWriteBuffer writeBuffer,
+                           ResultHistoryService historyService) {
         this.resultRepository = resultRepository;
         this.inspectionRepository = inspectionRepository;
+        this.rollupService = rollupService;
+        this.eventHub = eventHub;
+        this.searchService = searchService;
+        this.upsertService = upsertService;
+        this.writeBuffer = writeBuffer;
+        this.historyService = historyService;
     }
     
     @GetMapping("/inspection/{inspectionId}")
-    public List<Result> getResultsByInspection(@PathVariable Long inspectionId) {
-        return resultRepository.findByInspectionId(inspectionId);
+    public ResponseEntity<List<ResultView>> getResultsByInspection(@PathVariable Long inspectionId, WebRequest request) {
+        Optional<Inspection> inspection = inspectionRepository.findWithAssociationsById(inspectionId);
+        if (inspection.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        
+        if (writeBuffer.hasPending(inspectionId)) {
+            // Autosaved edits are not written yet, so the version based ETag would not cover them
+            List<ResultView> results = resultRepository.findWithAssociationsByInspectionId(inspectionId).stream()
+                    .map(ResultView::from)
+                    .toList();
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(writeBuffer.overlay(results));
+        }
+        
+        // Result writes bump the inspection's version, so its ETag covers the whole result list
+        String etag = ETags.inspection(inspection.get());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<ResultView> results = resultRepository.findWithAssociationsByInspectionId(inspectionId).stream()
+                .map(ResultView::from)
+                .toList();
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(results);
+    }
+    
+    /**
+     * The results of an inspection as they were at the given time, rebuilt from the result
+     * history. Also works for inspections that have been deleted since.
+     */
+    @GetMapping("/inspection/{inspectionId}/history")
+    public List<ResultState> getResultsAsOf(@PathVariable Long inspectionId,
+                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf) {
+        return historyService.asOf(inspectionId, asOf);
+    }
+    
+    @GetMapping("/{id}/history")
+    public List<ResultChange> getResultHistory(@PathVariable Long id) {
+        return historyService.history(id);
     }
     
     @PostMapping("/inspection/{inspectionId}")
-    public ResponseEntity<Result> createResult(@PathVariable Long inspectionId, @RequestBody Result result) {
+    @Transactional
+    public ResponseEntity<ResultView> createResult(@PathVariable Long inspectionId, @RequestBody Result result) {
         return inspectionRepository.findById(inspectionId)
                 .map(inspection -> {
                     result.setInspection(inspection);
-                    Result saved = resultRepository.save(result);
-                    return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+                    Result saved = resultRepository.saveAndFlush(result);
+                    rollupService.resultChanged(inspection, null, saved.getStatus());
+                    inspectionRepository.touch(inspection);
+                    eventHub.publish(InspectionEvent.resultSaved(saved));
+                    searchService.resultSaved(saved);
+                    return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.result(saved)).body(ResultView.from(saved));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Saves all given answers of an inspection in one transaction. Answers are matched to
+     * existing results by checklist item id; unmatched answers create new results.
+     */
+    @PutMapping("/inspection/{inspectionId}")
+    @Transactional
+    public ResponseEntity<?> upsertResults(@PathVariable Long inspectionId, @RequestBody List<ResultUpsert> answers,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (answers.isEmpty() || answers.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Between 1 and " + MAX_BATCH_SIZE + " results can be saved at once"));
+        }
+        if (answers.stream().anyMatch(answer -> answer == null || answer.checklistItemId() == null)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Every result needs a checklistItemId"));
+        }
+        
+        Optional<Inspection> inspection = inspectionRepository.findWithAssociationsById(inspectionId);
+        if (inspection.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!ETags.matches(ifMatch, ETags.inspection(inspection.get()))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(Map.of("error", "Inspection was modified by another request"));
+        }
+        Map<Long, ChecklistItem> items = upsertService.checklistItems(inspection.get(),
+                answers.stream().map(ResultUpsert::checklistItemId).collect(Collectors.toSet()));
+        Set<Long> unknownItems = ResultUpsertService.unknownChecklistItems(answers, items);
+        if (!unknownItems.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown checklist items: " + unknownItems));
+        }
+        
+        List<ResultView> results = upsertService.upsert(inspection.get(), answers, items).stream()
+                .map(ResultView::from)
+                .toList();
+        return ResponseEntity.ok().eTag(ETags.inspection(inspection.get())).body(results);
+    }
+    
     @PutMapping("/{id}")
-    public ResponseEntity<Result> updateResult(@PathVariable Long id, @RequestBody Result result) {
+    @Transactional
+    public ResponseEntity<?> updateResult(@PathVariable Long id, @RequestBody Result result,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         return resultRepository.findById(id)
                 .map(existing -> {
+                    if (!ETags.matches(ifMatch, ETags.result(existing))) {
+                        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                                .body(Map.of("error", "Result was modified by another request"));
+                    }
+                    // The explicit save supersedes whatever was autosaved before it
+                    writeBuffer.discard(id);
+                    ResultStatus oldStatus = existing.getStatus();
                     existing.setStatus(result.getStatus());
                     existing.setComment(result.getComment());
                     existing.setPhotoUrl(result.getPhotoUrl());
-                    return ResponseEntity.ok(resultRepository.save(existing));
+                    Result saved = resultRepository.saveAndFlush(existing);
+                    if (saved.getInspection() != null) {
+                        rollupService.resultChanged(saved.getInspection(), oldStatus, saved.getStatus());
+                        inspectionRepository.touch(saved.getInspection());
+                        eventHub.publish(InspectionEvent.resultSaved(saved));
+                    }
+                    searchService.resultSaved(saved);
+                    return ResponseEntity.ok().eTag(ETags.result(saved)).body(ResultView.from(saved));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Autosave for edits made while typing. The edit is buffered and coalesced with later
+     * edits of the same result, then written within a few seconds; reads include it right away.
+     * An explicit save committed in between wins over the buffered edit.
+     */
+    @PutMapping("/{id}/autosave")
+    public ResponseEntity<?> autosaveResult(@PathVariable Long id, @RequestBody Result result) {
+        ResultWriteBuffer.SaveResult saved = writeBuffer.save(id, result.getStatus(), result.getComment(), result.getPhotoUrl());
+        return switch (saved.status()) {
+            case QUEUED -> ResponseEntity.accepted().build();
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case INVALID -> ResponseEntity.badRequest().body(Map.of("error", saved.error()));
+        };
+    }
+    
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<Void> deleteResult(@PathVariable Long id) {
-        if (resultRepository.existsById(id)) {
-            resultRepository.deleteById(id);
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.notFound().build();
+        return resultRepository.findById(id)
+                .map(existing -> {
+                    if (existing.getInspection() != null) {
+                        rollupService.resultChanged(existing.getInspection(), existing.getStatus(), null);
+                        inspectionRepository.touch(existing.getInspection());
+                    }
+                    resultRepository.delete(existing);
+                    writeBuffer.discard(id);
+                    searchService.resultDeleted(id);
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
 }
@@ -0,0 +1,47 @@
+package com.inspection.controller;
+
+import com.inspection.dto.SearchHit;
+import com.inspection.service.SearchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "*")
+public class SearchController {
+    
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+    
+    private final SearchService searchService;
+    
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+    
+    /**
+     * Ranked search over facility names, checklist item descriptions and result comments.
+     * Every word of {@code q} must match, as a whole word, a prefix or with a small typo.
+     */
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(required = false) List<String> type,
+                                    @RequestParam(required = false) Integer limit) {
+        Set<SearchHit.Type> types = EnumSet.noneOf(SearchHit.Type.class);
+        try {
+            if (type != null) {
+                type.forEach(value -> types.add(SearchHit.Type.valueOf(value.toUpperCase())));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Type must be one of INSPECTION, CHECKLIST_ITEM, RESULT"));
+        }
+        int size = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(searchService.search(q, types, size));
+    }
+}
@@ -0,0 +1,59 @@
+package com.inspection.controller;
+
+import com.inspection.dto.SyncEdit;
+import com.inspection.service.ResultWriteBuffer;
+import com.inspection.service.SyncService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sync")
+@CrossOrigin(origins = "*")
+public class SyncController {
+    
+    private static final int MAX_EDITS = 1000;
+    
+    private final SyncService syncService;
+    private final ResultWriteBuffer writeBuffer;
+    
+    public SyncController(SyncService syncService, ResultWriteBuffer writeBuffer) {
+        this.syncService = syncService;
+        this.writeBuffer = writeBuffer;
+    }
+    
+    /**
+     * Changes since the token returned by the previous sync; without a token, a full snapshot.
+     */
+    @GetMapping
+    public ResponseEntity<?> changes(@RequestParam(required = false) String since) {
+        Long token;
+        try {
+            token = since == null || since.isBlank() ? null : Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid sync token"));
+        }
+        if (token != null && token < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid sync token"));
+        }
+        // Buffered autosaves get their change sequence when written, so write them first
+        writeBuffer.flush();
+        return ResponseEntity.ok(syncService.changesSince(token));
+    }
+    
+    /**
+     * Applies edits queued while offline, in order, and returns an outcome per edit.
+     */
+    @PostMapping
+    public ResponseEntity<?> push(@RequestBody List<SyncEdit> edits) {
+        if (edits.size() > MAX_EDITS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_EDITS + " edits can be pushed at once"));
+        }
+        if (edits.stream().anyMatch(edit -> edit == null || edit.op() == null)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Every edit needs an op"));
+        }
+        return ResponseEntity.ok(syncService.apply(edits));
+    }
+}
@@ -0,0 +1,18 @@
+package com.inspection.dto;
+
+import com.inspection.model.InspectionStatus;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk status transition, with one entry per requested inspection id.
+ */
+public record BulkStatusReport(InspectionStatus status, int updated, List<Item> results) {
+
+    public enum Outcome {
+        UPDATED, UNCHANGED, ILLEGAL_TRANSITION, NOT_FOUND
+    }
+
+    public record Item(Long id, Outcome outcome, InspectionStatus previousStatus) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.inspection.dto;
+
+public record ChecklistCloneReport(ChecklistSummary checklist, int copiedItems) {
+}
@@ -0,0 +1,14 @@
+package com.inspection.dto;
+
+import java.util.List;
+
+/**
+ * Options for cloning a checklist. All are optional: without a name the clone is called
+ * "Copy of" the source, without filters every item is copied.
+ *
+ * @param itemPrefix          prepended to every copied item description
+ * @param descriptionContains only copy items whose description contains this text, ignoring case
+ * @param itemIds             only copy these items of the source checklist
+ */
+public record ChecklistCloneRequest(String name, String itemPrefix, String descriptionContains, List<Long> itemIds) {
+}
@@ -0,0 +1,11 @@
+package com.inspection.dto;
+
+import com.inspection.model.ChecklistItem;
+
+public record ChecklistItemView(Long id, String description, int orderIndex, String desiredPhotoUrl) {
+
+    public static ChecklistItemView from(ChecklistItem item) {
+        return item == null ? null
+                : new ChecklistItemView(item.getId(), item.getDescription(), item.getOrderIndex(), item.getDesiredPhotoUrl());
+    }
+}
@@ -0,0 +1,18 @@
+package com.inspection.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A published checklist version with its items, as executed by the inspections that pin it.
+ */
+public record ChecklistSnapshot(Long checklistId, int version, String name, String description, Instant publishedAt,
+                                List<ChecklistItemView> items) {
+
+    public Map<Long, ChecklistItemView> itemsById() {
+        return items.stream().collect(Collectors.toMap(ChecklistItemView::id, Function.identity()));
+    }
+}
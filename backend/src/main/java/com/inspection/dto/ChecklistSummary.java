@@ -0,0 +1,14 @@
+package com.inspection.dto;
+
+import com.inspection.model.Checklist;
+
+/**
+ * Checklist header without its items, used when embedding a checklist in inspections.
+ */
+public record ChecklistSummary(Long id, String name, String description) {
+
+    public static ChecklistSummary from(Checklist checklist) {
+        return checklist == null ? null
+                : new ChecklistSummary(checklist.getId(), checklist.getName(), checklist.getDescription());
+    }
+}
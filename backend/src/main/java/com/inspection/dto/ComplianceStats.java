@@ -0,0 +1,22 @@
+package com.inspection.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Compliance totals for one analytics bucket (a facility, month or inspector).
+ */
+public record ComplianceStats(
+        String key,
+        Long inspections,
+        Long completedInspections,
+        Long fulfilled,
+        Long notFulfilled,
+        Long notApplicable) {
+
+    // Share of fulfilled items among applicable ones, null when nothing was assessed
+    @JsonProperty
+    public Double fulfilmentRate() {
+        long assessed = fulfilled + notFulfilled;
+        return assessed == 0 ? null : (double) fulfilled / assessed;
+    }
+}
@@ -0,0 +1,18 @@
+package com.inspection.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first rejected rows are listed in {@code errors};
+ * {@code failed} always holds the full count.
+ */
+public record ImportReport(
+        long imported,
+        long failed,
+        List<RowError> errors,
+        long durationMs,
+        double rowsPerSecond) {
+
+    public record RowError(long line, String error) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.inspection.dto;
+
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+import com.inspection.model.Result;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record InspectionDetail(
+        Long id,
+        String facilityName,
+        LocalDate inspectionDate,
+        InspectionStatus status,
+        UserSummary responsibleUser,
+        ChecklistSummary checklist,
+        Long pinnedChecklistId,
+        Integer checklistVersion,
+        List<ResultView> results) {
+
+    public static InspectionDetail from(Inspection inspection, List<Result> results) {
+        return new InspectionDetail(inspection.getId(), inspection.getFacilityName(),
+                inspection.getInspectionDate(), inspection.getStatus(),
+                UserSummary.from(inspection.getResponsibleUser()),
+                ChecklistSummary.from(inspection.getChecklist()),
+                inspection.getPinnedChecklistId(), inspection.getChecklistVersion(),
+                results.stream().map(ResultView::from).toList());
+    }
+
+    public InspectionDetail withResults(List<ResultView> results) {
+        return new InspectionDetail(id, facilityName, inspectionDate, status, responsibleUser, checklist,
+                pinnedChecklistId, checklistVersion, results);
+    }
+}
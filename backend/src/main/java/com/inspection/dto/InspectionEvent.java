@@ -0,0 +1,50 @@
+package com.inspection.dto;
+
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+public record InspectionEvent(Type type, Long inspectionId, InspectionStatus status, InspectionStatus previousStatus,
+                              Long resultId, ResultStatus resultStatus, List<Long> inspectionIds, Instant occurredAt) {
+
+    public enum Type {
+        INSPECTION_CREATED, STATUS_CHANGED, STATUSES_CHANGED, RESULT_SAVED, RESULTS_SAVED;
+
+        public String eventName() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    public static InspectionEvent created(Inspection inspection) {
+        return new InspectionEvent(Type.INSPECTION_CREATED, inspection.getId(), inspection.getStatus(), null,
+                null, null, null, Instant.now());
+    }
+
+    public static InspectionEvent statusChanged(Inspection inspection, InspectionStatus previousStatus) {
+        return new InspectionEvent(Type.STATUS_CHANGED, inspection.getId(), inspection.getStatus(), previousStatus,
+                null, null, null, Instant.now());
+    }
+
+    /**
+     * A single event for a bulk transition, so subscribers are not flooded with one event per inspection.
+     */
+    public static InspectionEvent statusesChanged(List<Long> inspectionIds, InspectionStatus status,
+                                                  InspectionStatus previousStatus) {
+        return new InspectionEvent(Type.STATUSES_CHANGED, null, status, previousStatus,
+                null, null, inspectionIds, Instant.now());
+    }
+
+    public static InspectionEvent resultSaved(Result result) {
+        return new InspectionEvent(Type.RESULT_SAVED, result.getInspection().getId(), null, null,
+                result.getId(), result.getStatus(), null, Instant.now());
+    }
+
+    public static InspectionEvent resultsSaved(Inspection inspection) {
+        return new InspectionEvent(Type.RESULTS_SAVED, inspection.getId(), inspection.getStatus(), null,
+                null, null, null, Instant.now());
+    }
+}
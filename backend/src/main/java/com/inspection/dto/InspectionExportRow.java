@@ -0,0 +1,19 @@
+package com.inspection.dto;
+
+import com.inspection.model.InspectionStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Flat inspection row read by the streaming export, without entity hydration.
+ */
+public record InspectionExportRow(
+        Long id,
+        String facilityName,
+        LocalDate inspectionDate,
+        InspectionStatus status,
+        Long responsibleUserId,
+        String responsibleUserName,
+        Long checklistId,
+        String checklistName) {
+}
@@ -0,0 +1,10 @@
+package com.inspection.dto;
+
+import java.util.List;
+
+/**
+ * One page of the keyset-paginated inspection listing.
+ * {@code nextCursor} is null when there are no further rows.
+ */
+public record InspectionPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,29 @@
+package com.inspection.dto;
+
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+
+import java.time.LocalDate;
+
+/**
+ * List view of an inspection. Results and checklist items are deliberately left out;
+ * clients load them through the detail endpoints, or from the pinned checklist version.
+ */
+public record InspectionSummary(
+        Long id,
+        String facilityName,
+        LocalDate inspectionDate,
+        InspectionStatus status,
+        UserSummary responsibleUser,
+        ChecklistSummary checklist,
+        Long pinnedChecklistId,
+        Integer checklistVersion) {
+
+    public static InspectionSummary from(Inspection inspection) {
+        return new InspectionSummary(inspection.getId(), inspection.getFacilityName(),
+                inspection.getInspectionDate(), inspection.getStatus(),
+                UserSummary.from(inspection.getResponsibleUser()),
+                ChecklistSummary.from(inspection.getChecklist()),
+                inspection.getPinnedChecklistId(), inspection.getChecklistVersion());
+    }
+}
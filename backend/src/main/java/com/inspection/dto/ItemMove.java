@@ -0,0 +1,7 @@
+package com.inspection.dto;
+
+/**
+ * Target position of a checklist item: directly behind the given item, or first if null.
+ */
+public record ItemMove(Long afterItemId) {
+}
@@ -0,0 +1,8 @@
+package com.inspection.dto;
+
+/**
+ * Outcome of one orphan collector run. {@code finished} is false when the run stopped at its
+ * time budget; the next run continues where it stopped.
+ */
+public record PhotoCollectionReport(int referenced, int scanned, int deleted, long reclaimedBytes, boolean finished) {
+}
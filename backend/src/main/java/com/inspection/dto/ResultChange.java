@@ -0,0 +1,16 @@
+package com.inspection.dto;
+
+import com.inspection.model.ResultEvent;
+import com.inspection.model.ResultEventType;
+import com.inspection.model.ResultStatus;
+
+import java.time.Instant;
+
+public record ResultChange(ResultEventType type, Instant at, Long checklistItemId, ResultStatus status,
+                           String comment, String photoUrl) {
+
+    public static ResultChange from(ResultEvent event) {
+        return new ResultChange(event.getType(), Instant.ofEpochMilli(event.getRecordedAt()),
+                event.getChecklistItemId(), event.getStatus(), event.getComment(), event.getPhotoUrl());
+    }
+}
@@ -0,0 +1,16 @@
+package com.inspection.dto;
+
+import com.inspection.model.ResultStatus;
+
+/**
+ * Flat result row read by the streaming export, without entity hydration.
+ */
+public record ResultExportRow(
+        Long inspectionId,
+        Long id,
+        Long checklistItemId,
+        String checklistItemDescription,
+        ResultStatus status,
+        String comment,
+        String photoUrl) {
+}
@@ -0,0 +1,18 @@
+package com.inspection.dto;
+
+import com.inspection.model.ResultEvent;
+import com.inspection.model.ResultStatus;
+
+import java.time.Instant;
+
+/**
+ * A result as it was at some point in time, rebuilt from its events.
+ */
+public record ResultState(Long resultId, Long checklistItemId, ResultStatus status, String comment, String photoUrl,
+                          Instant changedAt) {
+
+    public static ResultState from(ResultEvent event) {
+        return new ResultState(event.getResultId(), event.getChecklistItemId(), event.getStatus(),
+                event.getComment(), event.getPhotoUrl(), Instant.ofEpochMilli(event.getRecordedAt()));
+    }
+}
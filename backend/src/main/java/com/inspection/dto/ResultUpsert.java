@@ -0,0 +1,9 @@
+package com.inspection.dto;
+
+import com.inspection.model.ResultStatus;
+
+/**
+ * One answer in a batch result upsert, identified by the checklist item it answers.
+ */
+public record ResultUpsert(Long checklistItemId, ResultStatus status, String comment, String photoUrl) {
+}
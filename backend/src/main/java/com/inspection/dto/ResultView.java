@@ -0,0 +1,12 @@
+package com.inspection.dto;
+
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+
+public record ResultView(Long id, ChecklistItemView checklistItem, ResultStatus status, String comment, String photoUrl) {
+
+    public static ResultView from(Result result) {
+        return new ResultView(result.getId(), ChecklistItemView.from(result.getChecklistItem()),
+                result.getStatus(), result.getComment(), result.getPhotoUrl());
+    }
+}
@@ -0,0 +1,12 @@
+package com.inspection.dto;
+
+/**
+ * A ranked search match. {@code inspectionId} is set for inspections and results,
+ * {@code checklistId} for checklist items, so the client can link to the owning page.
+ */
+public record SearchHit(Type type, Long id, Long inspectionId, Long checklistId, String text, double score) {
+
+    public enum Type {
+        INSPECTION, CHECKLIST_ITEM, RESULT
+    }
+}
@@ -0,0 +1,19 @@
+package com.inspection.dto;
+
+import java.util.List;
+
+/**
+ * Rows changed and deleted after the client's token. Pass {@code token} as {@code since} on
+ * the next sync. When {@code full} is set the lists hold everything and the client should
+ * replace its local copy; deletions of rows the client never saw are not listed then.
+ * Deleting an inspection or checklist also deletes its results or items.
+ */
+public record SyncChanges(
+        String token,
+        boolean full,
+        List<SyncInspection> inspections,
+        List<SyncResult> results,
+        List<SyncChecklist> checklists,
+        List<SyncChecklistItem> checklistItems,
+        List<SyncDeletion> deleted) {
+}
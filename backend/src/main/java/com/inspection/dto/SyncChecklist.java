@@ -0,0 +1,4 @@
+package com.inspection.dto;
+
+public record SyncChecklist(Long id, long version, String name, String description) {
+}
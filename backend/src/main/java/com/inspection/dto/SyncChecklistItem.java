@@ -0,0 +1,4 @@
+package com.inspection.dto;
+
+public record SyncChecklistItem(Long id, Long checklistId, String description, int orderIndex, String desiredPhotoUrl) {
+}
@@ -0,0 +1,6 @@
+package com.inspection.dto;
+
+import com.inspection.model.SyncEntity;
+
+public record SyncDeletion(SyncEntity type, Long id) {
+}
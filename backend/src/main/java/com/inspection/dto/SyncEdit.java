@@ -0,0 +1,36 @@
+package com.inspection.dto;
+
+import com.inspection.model.InspectionStatus;
+import com.inspection.model.ResultStatus;
+
+/**
+ * An edit made offline and queued by the client.
+ *
+ * <ul>
+ *   <li>{@code SAVE_RESULT}: updates {@code resultId} if it is still at {@code baseVersion}, or
+ *   creates a result for {@code inspectionId} and {@code checklistItemId} when {@code resultId} is null.</li>
+ *   <li>{@code DELETE_RESULT}: deletes {@code resultId} if it is still at {@code baseVersion}.</li>
+ *   <li>{@code SET_STATUS}: moves {@code inspectionId} to {@code inspectionStatus} if it is still
+ *   in {@code expectedStatus}. Status is compared instead of the version because result writes
+ *   also bump the inspection version.</li>
+ * </ul>
+ *
+ * {@code clientId} is echoed back so the client can match outcomes to its queue.
+ */
+public record SyncEdit(
+        String clientId,
+        Op op,
+        Long resultId,
+        Long baseVersion,
+        Long inspectionId,
+        Long checklistItemId,
+        ResultStatus status,
+        String comment,
+        String photoUrl,
+        InspectionStatus expectedStatus,
+        InspectionStatus inspectionStatus) {
+
+    public enum Op {
+        SAVE_RESULT, DELETE_RESULT, SET_STATUS
+    }
+}
@@ -0,0 +1,13 @@
+package com.inspection.dto;
+
+/**
+ * Result of one pushed edit. For applied edits and conflicts the current server row is
+ * included, so the client can update or show it; it is null when the row no longer exists.
+ */
+public record SyncEditOutcome(String clientId, Outcome outcome, String error,
+                              SyncResult result, SyncInspection inspection) {
+
+    public enum Outcome {
+        APPLIED, CONFLICT, REJECTED
+    }
+}
@@ -0,0 +1,18 @@
+package com.inspection.dto;
+
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+
+import java.time.LocalDate;
+
+public record SyncInspection(Long id, long version, String facilityName, LocalDate inspectionDate,
+                             InspectionStatus status, Long responsibleUserId, Long checklistId,
+                             Long pinnedChecklistId, Integer checklistVersion) {
+
+    public static SyncInspection from(Inspection inspection) {
+        return new SyncInspection(inspection.getId(), inspection.getVersion(), inspection.getFacilityName(),
+                inspection.getInspectionDate(), inspection.getStatus(), inspection.getResponsibleUser().getId(),
+                inspection.getChecklist() != null ? inspection.getChecklist().getId() : null,
+                inspection.getPinnedChecklistId(), inspection.getChecklistVersion());
+    }
+}
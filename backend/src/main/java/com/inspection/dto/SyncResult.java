@@ -0,0 +1,15 @@
+package com.inspection.dto;
+
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+
+public record SyncResult(Long id, long version, Long inspectionId, Long checklistItemId, ResultStatus status,
+                         String comment, String photoUrl) {
+
+    public static SyncResult from(Result result) {
+        return new SyncResult(result.getId(), result.getVersion(),
+                result.getInspection() != null ? result.getInspection().getId() : null,
+                result.getChecklistItem() != null ? result.getChecklistItem().getId() : null,
+                result.getStatus(), result.getComment(), result.getPhotoUrl());
+    }
+}
@@ -0,0 +1,8 @@
+package com.inspection.dto;
+
+/**
+ * Completes a resumable upload; the hex SHA-256 of the whole photo is checked before it is
+ * stored.
+ */
+public record UploadCompletion(String sha256) {
+}
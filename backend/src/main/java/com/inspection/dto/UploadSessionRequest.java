@@ -0,0 +1,7 @@
+package com.inspection.dto;
+
+/**
+ * Starts a resumable upload of a photo of the given size in bytes.
+ */
+public record UploadSessionRequest(String filename, String contentType, Long size) {
+}
@@ -0,0 +1,8 @@
+package com.inspection.dto;
+
+/**
+ * A resumable upload: the next chunk is expected at {@code offset}, and the upload can be
+ * completed once offset reaches size.
+ */
+public record UploadSessionView(String id, String filename, long offset, long size) {
+}
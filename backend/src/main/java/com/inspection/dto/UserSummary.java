@@ -0,0 +1,15 @@
+package com.inspection.dto;
+
+import com.inspection.model.User;
+import com.inspection.model.UserRole;
+
+/**
+ * Public view of a user. Never exposes the password hash.
+ */
+public record UserSummary(Long id, String username, String name, String email, UserRole role, boolean enabled) {
+
+    public static UserSummary from(User user) {
+        return new UserSummary(user.getId(), user.getUsername(), user.getName(),
+                user.getEmail(), user.getRole(), user.isEnabled());
+    }
+}
@@ -0,0 +1,13 @@
+package com.inspection.model;
+
+/**
+ * An entity whose inserts, updates and deletes show up in the delta sync feed.
+ */
+public interface ChangeTracked {
+    
+    Long getId();
+    
+    SyncEntity syncEntity();
+    
+    void setChangeSeq(long changeSeq);
+}
@@ -0,0 +1,37 @@
+package com.inspection.model;
+
+import com.inspection.service.ChangeSequence;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Stamps every written row with the change sequence number of its transaction and records
+ * a tombstone for every deleted row, including rows removed by cascades. Instantiated by
+ * Hibernate through the Spring bean container.
+ */
+public class ChangeTrackingListener {
+    
+    private final ChangeSequence changeSequence;
+    private final JdbcTemplate jdbcTemplate;
+    
+    public ChangeTrackingListener(ChangeSequence changeSequence, JdbcTemplate jdbcTemplate) {
+        this.changeSequence = changeSequence;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @PrePersist
+    @PreUpdate
+    public void stamp(Object entity) {
+        ((ChangeTracked) entity).setChangeSeq(changeSequence.current());
+    }
+    
+    // Runs during the flush on the transaction's connection, so the tombstone commits with the delete
+    @PostRemove
+    public void tombstone(Object entity) {
+        ChangeTracked tracked = (ChangeTracked) entity;
+        jdbcTemplate.update("insert into sync_tombstones (change_seq, entity_type, entity_id) values (?, ?, ?)",
+                changeSequence.current(), tracked.syncEntity().name(), tracked.getId());
+    }
+}
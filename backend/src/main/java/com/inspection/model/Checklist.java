@@ -1,23 +1,41 @@
 package com.inspection.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.SQLRestriction;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "checklists")
-public class Checklist {
+@Table(name = "checklists", indexes = @Index(name = "idx_checklists_change_seq", columnList = "change_seq"))
+@EntityListeners(ChangeTrackingListener.class)
+public class Checklist implements ChangeTracked {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    // Change sequence number of the last transaction that wrote this row, see ChangeSequence.
+    // Not versioned itself, so stamping a row that was already versioned adds no increment.
+    @Column(columnDefinition = "bigint default 0 not null")
+    @OptimisticLock(excluded = true)
+    @JsonIgnore
+    private long changeSeq;
+    
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    @JsonIgnore
+    private long version;
+    
     @Column(nullable = false)
     private String name;
     
     private String description;
     
     @OneToMany(mappedBy = "checklist", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("orderIndex")
+    @SQLRestriction("deleted = false")
     private List<ChecklistItem> items = new ArrayList<>();
     
     // Constructors
@@ -32,6 +50,8 @@ public class Checklist {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     
+    public long getVersion() { return version; }
+    
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     
@@ -45,4 +65,10 @@ public class Checklist {
         items.add(item);
         item.setChecklist(this);
     }
+    
+    @Override
+    public SyncEntity syncEntity() { return SyncEntity.CHECKLIST; }
+    
+    @Override
+    public void setChangeSeq(long changeSeq) { this.changeSeq = changeSeq; }
 }
@@ -4,13 +4,19 @@ import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
-@Table(name = "checklist_items")
-public class ChecklistItem {
+@Table(name = "checklist_items", indexes = @Index(name = "idx_checklist_items_change_seq", columnList = "change_seq"))
+@EntityListeners(ChangeTrackingListener.class)
+public class ChecklistItem implements ChangeTracked {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    // Change sequence number of the last transaction that wrote this row, see ChangeSequence
+    @Column(columnDefinition = "bigint default 0 not null")
+    @JsonIgnore
+    private long changeSeq;
+    
     @Column(nullable = false)
     private String description;
     
@@ -24,6 +30,12 @@ public class ChecklistItem {
     @JsonIgnore
     private Checklist checklist;
     
+    // Deleted items that a published version refers to are only marked, so results of
+    // inspections pinned to that version keep pointing at them
+    @Column(columnDefinition = "boolean default false not null")
+    @JsonIgnore
+    private boolean deleted;
+    
     // Constructors
     public ChecklistItem() {}
     
@@ -47,4 +59,12 @@ public class ChecklistItem {
     
     public Checklist getChecklist() { return checklist; }
     public void setChecklist(Checklist checklist) { this.checklist = checklist; }
+    
+    public boolean isDeleted() { return deleted; }
+    
+    @Override
+    public SyncEntity syncEntity() { return SyncEntity.CHECKLIST_ITEM; }
+    
+    @Override
+    public void setChangeSeq(long changeSeq) { this.changeSeq = changeSeq; }
 }
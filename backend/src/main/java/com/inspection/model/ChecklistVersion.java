@@ -0,0 +1,68 @@
+package com.inspection.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+
+/**
+ * A published, immutable copy of a checklist and its items. Inspections pin the version they
+ * are executed against, so later edits of the checklist do not change them. There is no
+ * foreign key to the checklist, deleting it does not have to touch its versions.
+ */
+@Entity
+@Immutable
+@Table(name = "checklist_versions",
+       uniqueConstraints = @UniqueConstraint(name = "uk_checklist_versions_number", columnNames = {"checklist_id", "version_number"}))
+public class ChecklistVersion {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long checklistId;
+    
+    // Counts up from 1 per checklist
+    @Column(nullable = false)
+    private int versionNumber;
+    
+    @Column(nullable = false)
+    private Instant publishedAt;
+    
+    @Column(nullable = false)
+    private String name;
+    
+    private String description;
+    
+    // JSON array of ChecklistItemView in item order
+    @Lob
+    @Column(nullable = false)
+    private String items;
+    
+    public ChecklistVersion() {}
+    
+    public ChecklistVersion(Long checklistId, int versionNumber, Instant publishedAt, String name, String description,
+                            String items) {
+        this.checklistId = checklistId;
+        this.versionNumber = versionNumber;
+        this.publishedAt = publishedAt;
+        this.name = name;
+        this.description = description;
+        this.items = items;
+    }
+    
+    public Long getId() { return id; }
+    
+    public Long getChecklistId() { return checklistId; }
+    
+    public int getVersionNumber() { return versionNumber; }
+    
+    public Instant getPublishedAt() { return publishedAt; }
+    
+    public String getName() { return name; }
+    
+    public String getDescription() { return description; }
+    
+    public String getItems() { return items; }
+}
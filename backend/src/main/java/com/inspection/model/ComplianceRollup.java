@@ -0,0 +1,76 @@
+package com.inspection.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Pre-aggregated compliance counters for one facility, month and inspector.
+ * Maintained incrementally by the write paths so analytics never scan results.
+ */
+@Entity
+@Table(name = "compliance_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_compliance_rollup_key",
+               columnNames = {"facility_name", "period", "inspector_id"}),
+       indexes = @Index(name = "idx_compliance_rollups_period", columnList = "period"))
+public class ComplianceRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String facilityName;
+    
+    // Month in ISO "yyyy-MM" form, which sorts and compares correctly as a string
+    @Column(nullable = false, length = 7)
+    private String period;
+    
+    @Column(nullable = false)
+    private Long inspectorId;
+    
+    private long inspections;
+    
+    private long completedInspections;
+    
+    private long fulfilled;
+    
+    private long notFulfilled;
+    
+    private long notApplicable;
+    
+    // Constructors
+    public ComplianceRollup() {}
+    
+    public ComplianceRollup(String facilityName, String period, Long inspectorId) {
+        this.facilityName = facilityName;
+        this.period = period;
+        this.inspectorId = inspectorId;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getFacilityName() { return facilityName; }
+    public void setFacilityName(String facilityName) { this.facilityName = facilityName; }
+    
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+    
+    public Long getInspectorId() { return inspectorId; }
+    public void setInspectorId(Long inspectorId) { this.inspectorId = inspectorId; }
+    
+    public long getInspections() { return inspections; }
+    public void setInspections(long inspections) { this.inspections = inspections; }
+    
+    public long getCompletedInspections() { return completedInspections; }
+    public void setCompletedInspections(long completedInspections) { this.completedInspections = completedInspections; }
+    
+    public long getFulfilled() { return fulfilled; }
+    public void setFulfilled(long fulfilled) { this.fulfilled = fulfilled; }
+    
+    public long getNotFulfilled() { return notFulfilled; }
+    public void setNotFulfilled(long notFulfilled) { this.notFulfilled = notFulfilled; }
+    
+    public long getNotApplicable() { return notApplicable; }
+    public void setNotApplicable(long notApplicable) { this.notApplicable = notApplicable; }
+}
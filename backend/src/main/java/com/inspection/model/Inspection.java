@@ -1,18 +1,38 @@
 package com.inspection.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.OptimisticLock;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "inspections")
-public class Inspection {
-    
+@Table(name = "inspections", indexes = {
+    @Index(name = "idx_inspections_date_id", columnList = "inspection_date, id"),
+    @Index(name = "idx_inspections_status_date_id", columnList = "status, inspection_date, id"),
+    @Index(name = "idx_inspections_user_date_id", columnList = "responsible_user_id, inspection_date, id"),
+    @Index(name = "idx_inspections_facility", columnList = "facility_name"),
+    @Index(name = "idx_inspections_change_seq", columnList = "change_seq")
+})
+@EntityListeners(ChangeTrackingListener.class)
+public class Inspection implements ChangeTracked {
+    
+    // Pooled sequence ids let Hibernate batch inserts, which IDENTITY columns prevent
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inspections_seq")
+    @SequenceGenerator(name = "inspections_seq", sequenceName = "inspections_seq", allocationSize = 50)
     private Long id;
     
+    // Change sequence number of the last transaction that wrote this row, see ChangeSequence.
+    // Not versioned itself, so stamping a row that was already versioned adds no increment.
+    @Column(columnDefinition = "bigint default 0 not null")
+    @OptimisticLock(excluded = true)
+    private long changeSeq;
+    
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+    
     @Column(nullable = false)
     private String facilityName;
     
@@ -34,6 +54,12 @@ public class Inspection {
     @JoinColumn(name = "checklist_id")
     private Checklist checklist;
     
+    // Published checklist version the inspection is executed against, null for the live checklist.
+    // The checklist id is kept with it as a plain column, so the pin outlives the checklist
+    private Long pinnedChecklistId;
+    
+    private Integer checklistVersion;
+    
     // Constructors
     public Inspection() {}
     
@@ -47,6 +73,8 @@ public class Inspection {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     
+    public long getVersion() { return version; }
+    
     public String getFacilityName() { return facilityName; }
     public void setFacilityName(String facilityName) { this.facilityName = facilityName; }
     
@@ -64,4 +92,19 @@ public class Inspection {
     
     public Checklist getChecklist() { return checklist; }
     public void setChecklist(Checklist checklist) { this.checklist = checklist; }
+    
+    public Long getPinnedChecklistId() { return pinnedChecklistId; }
+    
+    public Integer getChecklistVersion() { return checklistVersion; }
+    
+    public void pinChecklistVersion(Long checklistId, Integer checklistVersion) {
+        this.pinnedChecklistId = checklistVersion != null ? checklistId : null;
+        this.checklistVersion = checklistVersion;
+    }
+    
+    @Override
+    public SyncEntity syncEntity() { return SyncEntity.INSPECTION; }
+    
+    @Override
+    public void setChangeSeq(long changeSeq) { this.changeSeq = changeSeq; }
 }
@@ -0,0 +1,30 @@
+package com.inspection.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Maps the file name of a photo uploaded before content addressing to the content-addressed
+ * name it was migrated to, so URLs stored before the migration keep resolving.
+ */
+@Entity
+@Table(name = "photo_aliases")
+public class PhotoAlias {
+    
+    @Id
+    @Column(length = 255)
+    private String legacyName;
+    
+    @Column(nullable = false, length = 80)
+    private String storedName;
+    
+    public PhotoAlias() {}
+    
+    public PhotoAlias(String legacyName, String storedName) {
+        this.legacyName = legacyName;
+        this.storedName = storedName;
+    }
+    
+    public String getLegacyName() { return legacyName; }
+    
+    public String getStoredName() { return storedName; }
+}
@@ -4,13 +4,29 @@ import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
-@Table(name = "results")
-public class Result {
+@Table(name = "results", indexes = @Index(name = "idx_results_change_seq", columnList = "change_seq"))
+@EntityListeners({ChangeTrackingListener.class, ResultHistoryListener.class})
+public class Result implements ChangeTracked {
     
+    public static final int MAX_COMMENT_LENGTH = 1000;
+    public static final int MAX_PHOTO_URL_LENGTH = 500;
+    
+    // Pooled sequence ids so batch upserts can send their inserts as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "results_seq")
+    @SequenceGenerator(name = "results_seq", sequenceName = "results_seq", allocationSize = 50)
     private Long id;
     
+    // Change sequence number of the last transaction that wrote this row, see ChangeSequence
+    @Column(columnDefinition = "bigint default 0 not null")
+    @JsonIgnore
+    private long changeSeq;
+    
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    @JsonIgnore
+    private long version;
+    
     @ManyToOne
     @JoinColumn(name = "inspection_id")
     @JsonIgnore
@@ -23,10 +39,10 @@ public class Result {
     @Enumerated(EnumType.STRING)
     private ResultStatus status;
     
-    @Column(length = 1000)
+    @Column(length = MAX_COMMENT_LENGTH)
     private String comment;
     
-    @Column(length = 500)
+    @Column(length = MAX_PHOTO_URL_LENGTH)
     private String photoUrl;
     
     // Constructors
@@ -41,6 +57,8 @@ public class Result {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     
+    public long getVersion() { return version; }
+    
     public Inspection getInspection() { return inspection; }
     public void setInspection(Inspection inspection) { this.inspection = inspection; }
     
@@ -55,4 +73,10 @@ public class Result {
     
     public String getPhotoUrl() { return photoUrl; }
     public void setPhotoUrl(String photoUrl) { this.photoUrl = photoUrl; }
+    
+    @Override
+    public SyncEntity syncEntity() { return SyncEntity.RESULT; }
+    
+    @Override
+    public void setChangeSeq(long changeSeq) { this.changeSeq = changeSeq; }
 }
@@ -0,0 +1,71 @@
+package com.inspection.model;
+
+import jakarta.persistence.*;
+
+/**
+ * One change of a result, appended by {@link ResultHistoryListener} and never updated. Holds
+ * the result's values after the change as plain columns, without references to other rows,
+ * so the history outlives deleted results, items and inspections.
+ */
+@Entity
+@Table(name = "result_events", indexes = {
+        @Index(name = "idx_result_events_change_seq", columnList = "change_seq"),
+        @Index(name = "idx_result_events_inspection", columnList = "inspection_id, change_seq"),
+        @Index(name = "idx_result_events_result", columnList = "result_id")
+})
+public class ResultEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private long changeSeq;
+    
+    // Epoch milliseconds
+    @Column(nullable = false)
+    private long recordedAt;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private ResultEventType type;
+    
+    private Long inspectionId;
+    
+    @Column(nullable = false)
+    private Long resultId;
+    
+    private Long checklistItemId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private ResultStatus status;
+    
+    @Column(length = 1000)
+    private String comment;
+    
+    @Column(length = 500)
+    private String photoUrl;
+    
+    public ResultEvent() {}
+    
+    public Long getId() { return id; }
+    
+    public long getChangeSeq() { return changeSeq; }
+    
+    public long getRecordedAt() { return recordedAt; }
+    
+    public ResultEventType getType() { return type; }
+    
+    public Long getInspectionId() { return inspectionId; }
+    
+    public Long getResultId() { return resultId; }
+    
+    public Long getChecklistItemId() { return checklistItemId; }
+    
+    public ResultStatus getStatus() { return status; }
+    
+    public String getComment() { return comment; }
+    
+    public String getPhotoUrl() { return photoUrl; }
+}
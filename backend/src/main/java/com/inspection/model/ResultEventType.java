@@ -0,0 +1,10 @@
+package com.inspection.model;
+
+/**
+ * What happened to a result in a {@link ResultEvent}.
+ */
+public enum ResultEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
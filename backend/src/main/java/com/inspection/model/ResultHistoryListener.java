@@ -0,0 +1,55 @@
+package com.inspection.model;
+
+import com.inspection.service.ChangeSequence;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Appends a {@link ResultEvent} for every written or deleted result, one insert per change on
+ * the transaction's connection, so the event commits or rolls back with the change itself.
+ * Bulk statements bypass it; they only detach results from deleted checklist items.
+ */
+public class ResultHistoryListener {
+    
+    private static final String INSERT = "insert into result_events (change_seq, recorded_at, type, inspection_id, " +
+            "result_id, checklist_item_id, status, comment, photo_url) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private final ChangeSequence changeSequence;
+    private final JdbcTemplate jdbcTemplate;
+    
+    public ResultHistoryListener(ChangeSequence changeSequence, JdbcTemplate jdbcTemplate) {
+        this.changeSequence = changeSequence;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @PostPersist
+    public void created(Result result) {
+        append(result, ResultEventType.CREATED);
+    }
+    
+    @PostUpdate
+    public void updated(Result result) {
+        append(result, ResultEventType.UPDATED);
+    }
+    
+    @PostRemove
+    public void deleted(Result result) {
+        append(result, ResultEventType.DELETED);
+    }
+    
+    private void append(Result result, ResultEventType type) {
+        Long inspectionId = result.getInspection() != null ? result.getInspection().getId() : null;
+        if (type == ResultEventType.DELETED) {
+            jdbcTemplate.update(INSERT, changeSequence.current(), System.currentTimeMillis(), type.name(),
+                    inspectionId, result.getId(), null, null, null, null);
+            return;
+        }
+        Long checklistItemId = result.getChecklistItem() != null ? result.getChecklistItem().getId() : null;
+        jdbcTemplate.update(INSERT, changeSequence.current(), System.currentTimeMillis(), type.name(),
+                inspectionId, result.getId(), checklistItemId,
+                result.getStatus() != null ? result.getStatus().name() : null,
+                result.getComment(), result.getPhotoUrl());
+    }
+}
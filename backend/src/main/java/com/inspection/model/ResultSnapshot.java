@@ -0,0 +1,51 @@
+package com.inspection.model;
+
+import jakarta.persistence.*;
+
+/**
+ * The results of an inspection after every event up to a change sequence number, so
+ * reconstructing a past state only replays the events after it.
+ */
+@Entity
+@Table(name = "result_snapshots", indexes = @Index(name = "idx_result_snapshots_inspection", columnList = "inspection_id, change_seq"))
+public class ResultSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long inspectionId;
+    
+    // Covers every event of the inspection with a change sequence number up to this one
+    @Column(nullable = false)
+    private long changeSeq;
+    
+    // Epoch milliseconds of the latest covered event
+    @Column(nullable = false)
+    private long coveredUntil;
+    
+    // JSON array of ResultState
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+    
+    public ResultSnapshot() {}
+    
+    public ResultSnapshot(Long inspectionId, long changeSeq, long coveredUntil, String payload) {
+        this.inspectionId = inspectionId;
+        this.changeSeq = changeSeq;
+        this.coveredUntil = coveredUntil;
+        this.payload = payload;
+    }
+    
+    public Long getId() { return id; }
+    
+    public Long getInspectionId() { return inspectionId; }
+    
+    public long getChangeSeq() { return changeSeq; }
+    
+    public long getCoveredUntil() { return coveredUntil; }
+    
+    public String getPayload() { return payload; }
+}
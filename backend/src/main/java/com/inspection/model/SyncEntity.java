@@ -0,0 +1,11 @@
+package com.inspection.model;
+
+/**
+ * Entity types that take part in delta sync.
+ */
+public enum SyncEntity {
+    INSPECTION,
+    RESULT,
+    CHECKLIST,
+    CHECKLIST_ITEM
+}
@@ -0,0 +1,36 @@
+package com.inspection.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Marks a deleted row so clients syncing from an older token learn about the deletion.
+ * Rows are written by {@link ChangeTrackingListener}.
+ */
+@Entity
+@Table(name = "sync_tombstones", indexes = @Index(name = "idx_sync_tombstones_change_seq", columnList = "change_seq"))
+public class SyncTombstone {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private long changeSeq;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private SyncEntity entityType;
+    
+    @Column(nullable = false)
+    private Long entityId;
+    
+    public SyncTombstone() {}
+    
+    public Long getId() { return id; }
+    
+    public long getChangeSeq() { return changeSeq; }
+    
+    public SyncEntity getEntityType() { return entityType; }
+    
+    public Long getEntityId() { return entityId; }
+}
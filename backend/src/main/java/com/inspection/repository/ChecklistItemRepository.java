@@ -1,11 +1,70 @@
 package com.inspection.repository;
 
+import com.inspection.dto.SyncChecklistItem;
 import com.inspection.model.ChecklistItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChecklistItemRepository extends JpaRepository<ChecklistItem, Long> {
+    @Query("select ci from ChecklistItem ci where ci.checklist.id = :checklistId and ci.deleted = false order by ci.orderIndex")
     List<ChecklistItem> findByChecklistIdOrderByOrderIndexAsc(Long checklistId);
+    
+    @Query("select ci.id as id, ci.checklist.id as parentId, ci.description as text from ChecklistItem ci " +
+           "where ci.deleted = false")
+    List<SearchSource> findSearchSources();
+    
+    @Query("select ci.id as id, ci.checklist.id as parentId, ci.description as text from ChecklistItem ci " +
+           "where ci.checklist.id = :checklistId and ci.deleted = false")
+    List<SearchSource> findSearchSourcesByChecklistId(Long checklistId);
+    
+    // Deleted items are sent as tombstones only
+    @Query("select new com.inspection.dto.SyncChecklistItem(ci.id, c.id, ci.description, ci.orderIndex, ci.desiredPhotoUrl) " +
+           "from ChecklistItem ci left join ci.checklist c " +
+           "where ci.changeSeq > :since and ci.changeSeq <= :upTo and ci.deleted = false order by ci.id")
+    List<SyncChecklistItem> findChangedBetween(long since, long upTo);
+    
+    // Only marks the item if its checklist has a published version, which may show it
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ChecklistItem ci set ci.deleted = true, ci.changeSeq = :changeSeq " +
+           "where ci.id = :id and ci.deleted = false " +
+           "and exists (select v.id from ChecklistVersion v where v.checklistId = ci.checklist.id)")
+    int markDeletedIfPublished(Long id, long changeSeq);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ChecklistItem ci where ci.id = :id and ci.deleted = false")
+    int deleteInBulkById(Long id);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ChecklistItem ci where ci.checklist.id = :checklistId")
+    int deleteInBulkByChecklistId(Long checklistId);
+    
+    @Query("select ci.orderIndex from ChecklistItem ci where ci.id = :id and ci.checklist.id = :checklistId and ci.deleted = false")
+    Optional<Integer> findOrderIndex(Long id, Long checklistId);
+    
+    @Query("select max(ci.orderIndex) from ChecklistItem ci where ci.checklist.id = :checklistId")
+    Optional<Integer> findMaxOrderIndex(Long checklistId);
+    
+    @Query("select min(ci.orderIndex) from ChecklistItem ci where ci.checklist.id = :checklistId and ci.id <> :excludedId")
+    Optional<Integer> findMinOrderIndexExcluding(Long checklistId, Long excludedId);
+    
+    @Query("select min(ci.orderIndex) from ChecklistItem ci where ci.checklist.id = :checklistId " +
+           "and ci.orderIndex > :after and ci.id <> :excludedId")
+    Optional<Integer> findNextOrderIndexExcluding(Long checklistId, int after, Long excludedId);
+    
+    @Query("select ci.id from ChecklistItem ci where ci.checklist.id = :checklistId order by ci.orderIndex, ci.id")
+    List<Long> findIdsInOrder(Long checklistId);
+    
+    @Query("select ci from ChecklistItem ci join fetch ci.checklist c where c.id = :checklistId and ci.id in :ids")
+    List<ChecklistItem> findByChecklistIdAndIdIn(Long checklistId, Collection<Long> ids);
+    
+    // Moves a single item without loading it; the checklist is locked by the caller
+    @Modifying
+    @Query("update ChecklistItem ci set ci.orderIndex = :orderIndex, ci.changeSeq = :changeSeq where ci.id = :id")
+    int updateOrderIndex(Long id, int orderIndex, long changeSeq);
 }
@@ -1,9 +1,44 @@
 package com.inspection.repository;
 
+import com.inspection.dto.SyncChecklist;
 import com.inspection.model.Checklist;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface ChecklistRepository extends JpaRepository<Checklist, Long> {
+public interface ChecklistRepository extends JpaRepository<Checklist, Long>, VersionedRepository<Checklist> {
+    
+    // Load items together with their checklists instead of one select per checklist
+    @Override
+    @EntityGraph(attributePaths = "items")
+    List<Checklist> findAll();
+    
+    @Query("select c.id from Checklist c")
+    List<Long> findAllIds();
+    
+    // Locks the row like touch() but leaves the version, for writes that do not change the content
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Checklist> findWithLockById(Long id);
+    
+    @Query("select new com.inspection.dto.SyncChecklist(c.id, c.version, c.name, c.description) from Checklist c " +
+           "where c.changeSeq > :since and c.changeSeq <= :upTo order by c.id")
+    List<SyncChecklist> findChangedBetween(long since, long upTo);
+    
+    // Set-based counterpart of touch() for mutations that run without loading the checklist
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Checklist c set c.version = c.version + 1, c.changeSeq = :changeSeq " +
+           "where c.id = (select ci.checklist.id from ChecklistItem ci where ci.id = :itemId and ci.deleted = false)")
+    int touchByItem(Long itemId, long changeSeq);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Checklist c where c.id = :id")
+    int deleteInBulkById(Long id);
 }
@@ -0,0 +1,9 @@
+package com.inspection.repository;
+
+/**
+ * Projection for the latest published version number of a checklist.
+ */
+public interface ChecklistVersionNumber {
+    Long getChecklistId();
+    int getVersionNumber();
+}
@@ -0,0 +1,22 @@
+package com.inspection.repository;
+
+import com.inspection.model.ChecklistVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChecklistVersionRepository extends JpaRepository<ChecklistVersion, Long> {
+    
+    Optional<ChecklistVersion> findByChecklistIdAndVersionNumber(Long checklistId, int versionNumber);
+    
+    @Query("select max(v.versionNumber) from ChecklistVersion v where v.checklistId = :checklistId")
+    Optional<Integer> findLatestVersionNumber(Long checklistId);
+    
+    @Query("select v.checklistId as checklistId, max(v.versionNumber) as versionNumber from ChecklistVersion v " +
+           "group by v.checklistId")
+    List<ChecklistVersionNumber> findLatestVersionNumbers();
+}
@@ -0,0 +1,59 @@
+package com.inspection.repository;
+
+import com.inspection.dto.ComplianceStats;
+import com.inspection.model.ComplianceRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ComplianceRollupRepository extends JpaRepository<ComplianceRollup, Long> {
+    
+    boolean existsByFacilityNameAndPeriodAndInspectorId(String facilityName, String period, Long inspectorId);
+    
+    @Modifying
+    @Query("update ComplianceRollup r set " +
+           "r.inspections = r.inspections + :inspections, " +
+           "r.completedInspections = r.completedInspections + :completed, " +
+           "r.fulfilled = r.fulfilled + :fulfilled, " +
+           "r.notFulfilled = r.notFulfilled + :notFulfilled, " +
+           "r.notApplicable = r.notApplicable + :notApplicable " +
+           "where r.facilityName = :facilityName and r.period = :period and r.inspectorId = :inspectorId")
+    int increment(String facilityName, String period, Long inspectorId,
+                  long inspections, long completed, long fulfilled, long notFulfilled, long notApplicable);
+    
+    @Query("select new com.inspection.dto.ComplianceStats(r.facilityName, sum(r.inspections), " +
+           "sum(r.completedInspections), sum(r.fulfilled), sum(r.notFulfilled), sum(r.notApplicable)) " +
+           "from ComplianceRollup r where r.period between :from and :to " +
+           "group by r.facilityName order by r.facilityName")
+    List<ComplianceStats> sumByFacility(String from, String to);
+    
+    @Query("select new com.inspection.dto.ComplianceStats(r.period, sum(r.inspections), " +
+           "sum(r.completedInspections), sum(r.fulfilled), sum(r.notFulfilled), sum(r.notApplicable)) " +
+           "from ComplianceRollup r where r.period between :from and :to " +
+           "and (:facilityName is null or r.facilityName = :facilityName) " +
+           "and (:inspectorId is null or r.inspectorId = :inspectorId) " +
+           "group by r.period order by r.period")
+    List<ComplianceStats> sumByPeriod(String from, String to, String facilityName, Long inspectorId);
+    
+    @Query("select new com.inspection.dto.ComplianceStats(cast(r.inspectorId as String), sum(r.inspections), " +
+           "sum(r.completedInspections), sum(r.fulfilled), sum(r.notFulfilled), sum(r.notApplicable)) " +
+           "from ComplianceRollup r where r.period between :from and :to " +
+           "group by r.inspectorId order by r.inspectorId")
+    List<ComplianceStats> sumByInspector(String from, String to);
+    
+    // Source aggregates for a full rebuild: [facilityName, year, month, inspectorId, count, completed]
+    @Query("select i.facilityName, year(i.inspectionDate), month(i.inspectionDate), i.responsibleUser.id, count(i), " +
+           "sum(case when i.status = com.inspection.model.InspectionStatus.COMPLETED then 1 else 0 end) " +
+           "from Inspection i group by i.facilityName, year(i.inspectionDate), month(i.inspectionDate), i.responsibleUser.id")
+    List<Object[]> aggregateInspections();
+    
+    // Source aggregates for a full rebuild: [facilityName, year, month, inspectorId, resultStatus, count]
+    @Query("select i.facilityName, year(i.inspectionDate), month(i.inspectionDate), i.responsibleUser.id, r.status, count(r) " +
+           "from Result r join r.inspection i where r.status is not null " +
+           "group by i.facilityName, year(i.inspectionDate), month(i.inspectionDate), i.responsibleUser.id, r.status")
+    List<Object[]> aggregateResults();
+}
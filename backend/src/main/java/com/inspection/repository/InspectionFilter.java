@@ -0,0 +1,17 @@
+package com.inspection.repository;
+
+import com.inspection.model.InspectionStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Optional filter criteria for the paginated inspection listing.
+ * Every field may be null, in which case it does not restrict the result.
+ */
+public record InspectionFilter(
+        InspectionStatus status,
+        LocalDate from,
+        LocalDate to,
+        Long responsibleUserId,
+        String facility) {
+}
@@ -1,13 +1,84 @@
 package com.inspection.repository;
 
+import com.inspection.dto.InspectionExportRow;
+import com.inspection.dto.SyncInspection;
 import com.inspection.model.Inspection;
 import com.inspection.model.InspectionStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface InspectionRepository extends JpaRepository<Inspection, Long> {
+public interface InspectionRepository extends JpaRepository<Inspection, Long>, InspectionRepositoryCustom,
+        VersionedRepository<Inspection> {
     List<Inspection> findByStatus(InspectionStatus status);
     long countByStatus(InspectionStatus status);
+    
+    @Query("select i.status as status, count(i) as count from Inspection i group by i.status")
+    List<StatusCount> countGroupedByStatus();
+    
+    // Read queries fetch the to-one associations in the same statement to avoid N+1 selects
+    @Query("select i from Inspection i join fetch i.responsibleUser left join fetch i.checklist")
+    List<Inspection> findAllWithAssociations();
+    
+    @Query("select i from Inspection i join fetch i.responsibleUser left join fetch i.checklist where i.status = :status")
+    List<Inspection> findByStatusWithAssociations(InspectionStatus status);
+    
+    @Query("select i from Inspection i join fetch i.responsibleUser left join fetch i.checklist where i.id = :id")
+    Optional<Inspection> findWithAssociationsById(Long id);
+    
+    @Query("select i.id as id, i.status as status, i.facilityName as facilityName, " +
+           "i.inspectionDate as inspectionDate, i.responsibleUser.id as inspectorId " +
+           "from Inspection i where i.id in :ids")
+    List<InspectionStatusRow> findStatusRows(Collection<Long> ids);
+    
+    /**
+     * Moves every listed inspection that is still in {@code from} to {@code to} in one statement.
+     * The version is bumped so ETags and optimistic locks see the change.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Inspection i set i.status = :to, i.version = i.version + 1, i.changeSeq = :changeSeq " +
+           "where i.id in :ids and i.status = :from")
+    int transitionStatus(Collection<Long> ids, InspectionStatus from, InspectionStatus to, long changeSeq);
+    
+    // Bumps the inspections whose results point at the given item or at any item of the given checklist
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Inspection i set i.version = i.version + 1, i.changeSeq = :changeSeq " +
+           "where i.id in (select r.inspection.id from Result r where r.checklistItem.id = :itemId " +
+           "and r.checklistItem.deleted = false)")
+    int touchByChecklistItem(Long itemId, long changeSeq);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Inspection i set i.version = i.version + 1, i.changeSeq = :changeSeq " +
+           "where i.id in (select r.inspection.id from Result r where r.checklistItem.checklist.id = :checklistId)")
+    int touchByChecklist(Long checklistId, long changeSeq);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    // The pinned checklist version is kept, published versions outlive their checklist
+    @Query("update Inspection i set i.checklist = null, i.version = i.version + 1, i.changeSeq = :changeSeq " +
+           "where i.checklist.id = :checklistId")
+    int detachChecklist(Long checklistId, long changeSeq);
+    
+    @Query("select i.id as id, i.id as parentId, i.facilityName as text from Inspection i")
+    List<SearchSource> findSearchSources();
+    
+    @Query("select new com.inspection.dto.SyncInspection(i.id, i.version, i.facilityName, i.inspectionDate, " +
+           "i.status, u.id, c.id, i.pinnedChecklistId, i.checklistVersion) " +
+           "from Inspection i join i.responsibleUser u left join i.checklist c " +
+           "where i.changeSeq > :since and i.changeSeq <= :upTo order by i.id")
+    List<SyncInspection> findChangedBetween(long since, long upTo);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.inspection.dto.InspectionExportRow(i.id, i.facilityName, i.inspectionDate, i.status, " +
+           "u.id, u.name, c.id, c.name) " +
+           "from Inspection i join i.responsibleUser u left join i.checklist c order by i.id")
+    Stream<InspectionExportRow> streamForExport();
 }
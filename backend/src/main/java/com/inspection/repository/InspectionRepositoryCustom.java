@@ -0,0 +1,9 @@
+package com.inspection.repository;
+
+import com.inspection.model.Inspection;
+
+import java.util.List;
+
+public interface InspectionRepositoryCustom {
+    List<Inspection> findPage(InspectionFilter filter, InspectionCursor after, int limit);
+}
@@ -0,0 +1,70 @@
+package com.inspection.repository;
+
+import com.inspection.model.Inspection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InspectionRepositoryImpl implements InspectionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Inspection> findPage(InspectionFilter filter, InspectionCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Inspection> query = cb.createQuery(Inspection.class);
+        Root<Inspection> inspection = query.from(Inspection.class);
+        inspection.fetch("responsibleUser");
+        inspection.fetch("checklist", JoinType.LEFT);
+
+        // Only add predicates for criteria that are actually set, so the database
+        // can pick the matching index instead of evaluating "param is null" checks
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.status() != null) {
+            predicates.add(cb.equal(inspection.get("status"), filter.status()));
+        }
+        if (filter.from() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(inspection.<LocalDate>get("inspectionDate"), filter.from()));
+        }
+        if (filter.to() != null) {
+            predicates.add(cb.lessThanOrEqualTo(inspection.<LocalDate>get("inspectionDate"), filter.to()));
+        }
+        if (filter.responsibleUserId() != null) {
+            predicates.add(cb.equal(inspection.get("responsibleUser").get("id"), filter.responsibleUserId()));
+        }
+        if (filter.facility() != null && !filter.facility().isBlank()) {
+            // Prefix match keeps the facility_name index usable
+            predicates.add(cb.like(inspection.get("facilityName"), escapeLike(filter.facility()) + "%", '\\'));
+        }
+
+        // Keyset condition: rows strictly after the cursor in (inspectionDate desc, id desc) order
+        if (after != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(inspection.<LocalDate>get("inspectionDate"), after.inspectionDate()),
+                    cb.and(
+                            cb.equal(inspection.get("inspectionDate"), after.inspectionDate()),
+                            cb.lessThan(inspection.<Long>get("id"), after.id()))));
+        }
+
+        query.select(inspection)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(inspection.get("inspectionDate")), cb.desc(inspection.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,17 @@
+package com.inspection.repository;
+
+import com.inspection.model.InspectionStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Projection with just enough of an inspection to validate a status change and
+ * update its compliance rollup.
+ */
+public interface InspectionStatusRow {
+    Long getId();
+    InspectionStatus getStatus();
+    String getFacilityName();
+    LocalDate getInspectionDate();
+    Long getInspectorId();
+}
@@ -0,0 +1,9 @@
+package com.inspection.repository;
+
+import com.inspection.model.PhotoAlias;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PhotoAliasRepository extends JpaRepository<PhotoAlias, String> {
+}
@@ -0,0 +1,30 @@
+package com.inspection.repository;
+
+import com.inspection.model.ResultEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ResultEventRepository extends JpaRepository<ResultEvent, Long> {
+    
+    List<ResultEvent> findByResultIdOrderByChangeSeqAscIdAsc(Long resultId);
+    
+    @Query("select e from ResultEvent e where e.inspectionId = :inspectionId " +
+           "and e.changeSeq > :after and e.recordedAt <= :recordedUntil order by e.changeSeq, e.id")
+    List<ResultEvent> findForReplay(Long inspectionId, long after, long recordedUntil);
+    
+    @Query("select e from ResultEvent e where e.inspectionId = :inspectionId " +
+           "and e.changeSeq > :after and e.changeSeq <= :upTo order by e.changeSeq, e.id")
+    List<ResultEvent> findBetween(Long inspectionId, long after, long upTo);
+    
+    @Query("select count(e) from ResultEvent e where e.inspectionId = :inspectionId " +
+           "and e.changeSeq > :after and e.changeSeq <= :upTo")
+    long countBetween(Long inspectionId, long after, long upTo);
+    
+    @Query("select distinct e.inspectionId from ResultEvent e " +
+           "where e.changeSeq > :since and e.changeSeq <= :upTo and e.inspectionId is not null")
+    List<Long> findInspectionIdsChangedBetween(long since, long upTo);
+}
@@ -1,12 +1,72 @@
 package com.inspection.repository;
 
+import com.inspection.dto.ResultExportRow;
+import com.inspection.dto.SyncResult;
 import com.inspection.model.Result;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ResultRepository extends JpaRepository<Result, Long> {
     List<Result> findByInspectionId(Long inspectionId);
     List<Result> findByChecklistItemId(Long checklistItemId);
+    Optional<Result> findFirstByInspectionIdAndChecklistItemId(Long inspectionId, Long checklistItemId);
+    
+    // Fetches every eager association of Result so hydration needs no follow-up selects
+    @Query("select r from Result r " +
+           "join fetch r.inspection i join fetch i.responsibleUser left join fetch i.checklist " +
+           "left join fetch r.checklistItem ci left join fetch ci.checklist " +
+           "where i.id = :inspectionId order by r.id")
+    List<Result> findWithAssociationsByInspectionId(Long inspectionId);
+    
+    @Query("select r from Result r " +
+           "left join fetch r.inspection i left join fetch i.responsibleUser left join fetch i.checklist " +
+           "left join fetch r.checklistItem ci left join fetch ci.checklist " +
+           "where r.id in :ids")
+    List<Result> findWithAssociationsByIdIn(Collection<Long> ids);
+    
+    // Results outlive deleted checklist items, they only lose the reference. Results of
+    // inspections pinned to a published version keep it, the item is only marked deleted then
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Result r set r.checklistItem = null, r.version = r.version + 1, r.changeSeq = :changeSeq " +
+           "where r.checklistItem.id = :itemId " +
+           "and (r.inspection is null or r.inspection.id not in (select i.id from Inspection i " +
+           "where i.pinnedChecklistId = (select ci.checklist.id from ChecklistItem ci where ci.id = :itemId)))")
+    int detachChecklistItem(Long itemId, long changeSeq);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Result r set r.checklistItem = null, r.version = r.version + 1, r.changeSeq = :changeSeq " +
+           "where r.checklistItem.id in (select ci.id from ChecklistItem ci where ci.checklist.id = :checklistId)")
+    int detachChecklistItems(Long checklistId, long changeSeq);
+    
+    @Query("select i.id as inspectionId, r.version as version from Result r left join r.inspection i where r.id = :id")
+    Optional<ResultVersionRow> findVersionById(Long id);
+    
+    @Query("select r.status as status, count(r) as count from Result r " +
+           "where r.inspection.id = :inspectionId and r.status is not null group by r.status")
+    List<ResultStatusCount> countByStatusForInspection(Long inspectionId);
+    
+    @Query("select r.id as id, r.inspection.id as parentId, r.comment as text from Result r " +
+           "where r.comment is not null and r.comment <> ''")
+    List<SearchSource> findSearchSources();
+    
+    @Query("select new com.inspection.dto.SyncResult(r.id, r.version, i.id, ci.id, r.status, r.comment, r.photoUrl) " +
+           "from Result r left join r.inspection i left join r.checklistItem ci " +
+           "where r.changeSeq > :since and r.changeSeq <= :upTo order by r.id")
+    List<SyncResult> findChangedBetween(long since, long upTo);
+    
+    // Ordered by inspection so the export can merge it with the inspection stream
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.inspection.dto.ResultExportRow(i.id, r.id, ci.id, ci.description, r.status, r.comment, r.photoUrl) " +
+           "from Result r join r.inspection i left join r.checklistItem ci order by i.id, r.id")
+    Stream<ResultExportRow> streamForExport();
 }
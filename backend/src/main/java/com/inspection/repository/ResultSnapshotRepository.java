@@ -0,0 +1,16 @@
+package com.inspection.repository;
+
+import com.inspection.model.ResultSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ResultSnapshotRepository extends JpaRepository<ResultSnapshot, Long> {
+    
+    Optional<ResultSnapshot> findFirstByInspectionIdOrderByChangeSeqDesc(Long inspectionId);
+    
+    Optional<ResultSnapshot> findFirstByInspectionIdAndCoveredUntilLessThanEqualOrderByChangeSeqDesc(Long inspectionId,
+                                                                                                    long coveredUntil);
+}
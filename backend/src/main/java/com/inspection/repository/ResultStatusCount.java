@@ -0,0 +1,11 @@
+package com.inspection.repository;
+
+import com.inspection.model.ResultStatus;
+
+/**
+ * Projection for result counts grouped by status.
+ */
+public interface ResultStatusCount {
+    ResultStatus getStatus();
+    long getCount();
+}
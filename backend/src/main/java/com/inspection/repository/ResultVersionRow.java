@@ -0,0 +1,9 @@
+package com.inspection.repository;
+
+/**
+ * Projection with the owner and version of a result, for buffered writes.
+ */
+public interface ResultVersionRow {
+    Long getInspectionId();
+    long getVersion();
+}
@@ -0,0 +1,11 @@
+package com.inspection.repository;
+
+/**
+ * Projection of a searchable text together with the id of the record that owns it
+ * and the id of its parent (inspection or checklist).
+ */
+public interface SearchSource {
+    Long getId();
+    Long getParentId();
+    String getText();
+}
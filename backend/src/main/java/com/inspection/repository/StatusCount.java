@@ -0,0 +1,11 @@
+package com.inspection.repository;
+
+import com.inspection.model.InspectionStatus;
+
+/**
+ * Projection for grouped status counts.
+ */
+public interface StatusCount {
+    InspectionStatus getStatus();
+    long getCount();
+}
@@ -0,0 +1,32 @@
+package com.inspection.repository;
+
+import com.inspection.dto.SyncDeletion;
+import com.inspection.model.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+    
+    @Query("select new com.inspection.dto.SyncDeletion(t.entityType, t.entityId) from SyncTombstone t " +
+           "where t.changeSeq > :since and t.changeSeq <= :upTo order by t.changeSeq, t.id")
+    List<SyncDeletion> findChangedBetween(long since, long upTo);
+    
+    // Bulk deletes bypass the entity listener, so their tombstones are inserted set-based as well
+    @Modifying
+    @Query(value = "insert into sync_tombstones (change_seq, entity_type, entity_id) " +
+                   "select cast(:changeSeq as bigint), 'CHECKLIST_ITEM', id from checklist_items where id = :itemId and deleted = false",
+           nativeQuery = true)
+    int insertForChecklistItem(long changeSeq, Long itemId);
+    
+    @Modifying
+    @Query(value = "insert into sync_tombstones (change_seq, entity_type, entity_id) " +
+                   "select cast(:changeSeq as bigint), 'CHECKLIST_ITEM', id from checklist_items where checklist_id = :checklistId and deleted = false " +
+                   "union all select cast(:changeSeq as bigint), 'CHECKLIST', id from checklists where id = :checklistId",
+           nativeQuery = true)
+    int insertForChecklist(long changeSeq, Long checklistId);
+}
@@ -0,0 +1,15 @@
+package com.inspection.repository;
+
+/**
+ * Repository fragment for aggregate roots whose version must change when a child changes,
+ * so that ETags derived from the root version stay accurate.
+ */
+public interface VersionedRepository<T> {
+    
+    /**
+     * Increments the version of a managed entity right away, locking its row until the
+     * transaction ends so concurrent child writes on the same aggregate are serialized. The
+     * entity is stamped with the transaction's change sequence so delta sync sends it again.
+     */
+    void touch(T entity);
+}
@@ -0,0 +1,29 @@
+package com.inspection.repository;
+
+import com.inspection.model.ChangeTracked;
+import com.inspection.service.ChangeSequence;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+public class VersionedRepositoryImpl<T> implements VersionedRepository<T> {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final ChangeSequence changeSequence;
+    
+    public VersionedRepositoryImpl(ChangeSequence changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+    
+    @Override
+    public void touch(T entity) {
+        entityManager.lock(entity, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        // The forced increment skips entity listeners; the new version must reach delta sync too.
+        // The change sequence is excluded from optimistic locking, so this costs no second increment.
+        if (entity instanceof ChangeTracked tracked) {
+            tracked.setChangeSeq(changeSequence.current());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.inspection.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Hands out change sequence numbers for delta sync, one per writing transaction, and knows
+ * the highest number below which every transaction has finished.
+ *
+ * <p>Numbers are assigned before commit, so a transaction with a lower number can commit after
+ * one with a higher number. A sync token must never pass a number whose transaction is still
+ * running, or a client would skip its rows. {@link #watermark()} therefore stops just below the
+ * oldest number still in flight. Assumes a single application instance owns the database.
+ */
+@Component
+public class ChangeSequence {
+    
+    private static final List<String> TRACKED_TABLES =
+            List.of("inspections", "results", "checklists", "checklist_items", "sync_tombstones");
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+    private long last = -1;
+    
+    public ChangeSequence(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Returns the number of the current transaction, allocating it on first use.
+     */
+    public long current() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return allocate(false);
+        }
+        Long seq = (Long) TransactionSynchronizationManager.getResource(this);
+        if (seq == null) {
+            long allocated = allocate(true);
+            TransactionSynchronizationManager.bindResource(this, allocated);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeSequence.this);
+                    release(allocated);
+                }
+            });
+            seq = allocated;
+        }
+        return seq;
+    }
+    
+    /**
+     * Highest number whose changes, and those of all lower numbers, are committed or rolled back.
+     */
+    public synchronized long watermark() {
+        seedIfNeeded();
+        return inFlight.isEmpty() ? last : inFlight.first() - 1;
+    }
+    
+    private synchronized long allocate(boolean track) {
+        seedIfNeeded();
+        last++;
+        if (track) {
+            inFlight.add(last);
+        }
+        return last;
+    }
+    
+    private synchronized void release(long seq) {
+        inFlight.remove(seq);
+    }
+    
+    // Seeded lazily because the schema may not exist yet when this bean is created
+    private void seedIfNeeded() {
+        if (last >= 0) {
+            return;
+        }
+        long max = 0;
+        for (String table : TRACKED_TABLES) {
+            Long tableMax = jdbcTemplate.queryForObject("select coalesce(max(change_seq), 0) from " + table, Long.class);
+            max = Math.max(max, tableMax != null ? tableMax : 0);
+        }
+        last = max;
+    }
+}
@@ -0,0 +1,143 @@
+package com.inspection.service;
+
+import com.inspection.dto.ChecklistCloneReport;
+import com.inspection.dto.ChecklistCloneRequest;
+import com.inspection.dto.ChecklistSummary;
+import com.inspection.model.Checklist;
+import com.inspection.repository.ChecklistItemRepository;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.SyncTombstoneRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Deletes and copies checklists and checklist items with a fixed number of bulk statements,
+ * however many items and results are involved. On deletion, results keep their answers and
+ * only lose the item reference, except results of inspections pinned to a published version:
+ * the items of a published checklist are only marked deleted, so those keep it.
+ *
+ * <p>Bulk statements bypass entity callbacks, so they set versions, change sequence numbers and
+ * sync tombstones themselves, and each one clears the persistence context.
+ */
+@Service
+public class ChecklistMutationService {
+    
+    private final ChecklistRepository checklistRepository;
+    private final ChecklistItemRepository checklistItemRepository;
+    private final InspectionRepository inspectionRepository;
+    private final ResultRepository resultRepository;
+    private final SyncTombstoneRepository tombstoneRepository;
+    private final ChangeSequence changeSequence;
+    private final SearchService searchService;
+    private final JdbcTemplate jdbcTemplate;
+    
+    public ChecklistMutationService(ChecklistRepository checklistRepository,
+                                    ChecklistItemRepository checklistItemRepository,
+                                    InspectionRepository inspectionRepository,
+                                    ResultRepository resultRepository,
+                                    SyncTombstoneRepository tombstoneRepository,
+                                    ChangeSequence changeSequence,
+                                    SearchService searchService,
+                                    JdbcTemplate jdbcTemplate) {
+        this.checklistRepository = checklistRepository;
+        this.checklistItemRepository = checklistItemRepository;
+        this.inspectionRepository = inspectionRepository;
+        this.resultRepository = resultRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changeSequence = changeSequence;
+        this.searchService = searchService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Deletes the item and detaches the results of live inspections answering it. Items of a
+     * checklist with a published version are marked deleted instead. Returns false if it does
+     * not exist or was deleted before.
+     */
+    @Transactional
+    public boolean deleteItem(Long itemId) {
+        long changeSeq = changeSequence.current();
+        
+        // Inspections first, the subquery needs the result references that are removed next
+        inspectionRepository.touchByChecklistItem(itemId, changeSeq);
+        resultRepository.detachChecklistItem(itemId, changeSeq);
+        checklistRepository.touchByItem(itemId, changeSeq);
+        tombstoneRepository.insertForChecklistItem(changeSeq, itemId);
+        if (checklistItemRepository.markDeletedIfPublished(itemId, changeSeq) == 0
+                && checklistItemRepository.deleteInBulkById(itemId) == 0) {
+            return false;
+        }
+        searchService.checklistItemDeleted(itemId);
+        return true;
+    }
+    
+    /**
+     * Deletes the checklist with its items. Results of the items are detached like in
+     * {@link #deleteItem} and inspections using the checklist are left without one. Returns
+     * false if it does not exist.
+     */
+    @Transactional
+    public boolean deleteChecklist(Long checklistId) {
+        long changeSeq = changeSequence.current();
+        
+        inspectionRepository.touchByChecklist(checklistId, changeSeq);
+        resultRepository.detachChecklistItems(checklistId, changeSeq);
+        inspectionRepository.detachChecklist(checklistId, changeSeq);
+        tombstoneRepository.insertForChecklist(changeSeq, checklistId);
+        checklistItemRepository.deleteInBulkByChecklistId(checklistId);
+        if (checklistRepository.deleteInBulkById(checklistId) == 0) {
+            return false;
+        }
+        searchService.checklistDeleted(checklistId);
+        return true;
+    }
+    
+    /**
+     * Copies the checklist and the selected items in one INSERT ... SELECT. Copied items keep
+     * their order and get freshly spread order keys. Returns empty if the source does not exist.
+     */
+    @Transactional
+    public Optional<ChecklistCloneReport> cloneChecklist(Long sourceId, ChecklistCloneRequest request) {
+        Optional<Checklist> source = checklistRepository.findById(sourceId);
+        if (source.isEmpty()) {
+            return Optional.empty();
+        }
+        String name = request.name() == null || request.name().isBlank()
+                ? "Copy of " + source.get().getName()
+                : request.name().trim();
+        Checklist copy = checklistRepository.save(new Checklist(name, source.get().getDescription()));
+        
+        StringBuilder sql = new StringBuilder("insert into checklist_items " +
+                "(checklist_id, change_seq, description, order_index, desired_photo_url) " +
+                "select cast(? as bigint), cast(? as bigint), concat(cast(? as varchar), description), " +
+                "row_number() over (order by order_index, id) * " + ChecklistOrderService.GAP + ", desired_photo_url " +
+                "from checklist_items where checklist_id = ? and deleted = false");
+        List<Object> params = new ArrayList<>(List.of(copy.getId(), changeSequence.current(),
+                request.itemPrefix() == null ? "" : request.itemPrefix(), sourceId));
+        if (request.descriptionContains() != null && !request.descriptionContains().isBlank()) {
+            sql.append(" and lower(description) like ? escape '\\'");
+            params.add("%" + escapeLike(request.descriptionContains().trim().toLowerCase(Locale.ROOT)) + "%");
+        }
+        if (request.itemIds() != null && !request.itemIds().isEmpty()) {
+            sql.append(" and id in (").append(String.join(", ", Collections.nCopies(request.itemIds().size(), "?"))).append(")");
+            params.addAll(request.itemIds());
+        }
+        int copied = jdbcTemplate.update(sql.toString(), params.toArray());
+        
+        searchService.checklistItemsInserted(copy.getId());
+        return Optional.of(new ChecklistCloneReport(ChecklistSummary.from(copy), copied));
+    }
+    
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
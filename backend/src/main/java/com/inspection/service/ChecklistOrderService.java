@@ -0,0 +1,172 @@
+package com.inspection.service;
+
+import com.inspection.model.Checklist;
+import com.inspection.model.ChecklistItem;
+import com.inspection.repository.ChecklistItemRepository;
+import com.inspection.repository.ChecklistRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps checklist items in order with sparse order keys. Items are spaced {@link #GAP} apart,
+ * so moving an item only rewrites that item, with a key halfway between its new neighbours.
+ * Once neighbours get too close the whole checklist is renumbered with one JDBC batch: in the
+ * background when little room is left, inline when there is none. Renumbering keeps the order,
+ * so a background run leaves the checklist version and with it the ETag a move returned as
+ * they are; order keys are not stable, only the order they give is.
+ *
+ * <p>All changes lock the checklist first, so moves and renumbering of one checklist never
+ * interleave.
+ */
+@Service
+public class ChecklistOrderService {
+    
+    public static final int GAP = 1024;
+    
+    // Renumber in the background once a move leaves less room than this next to the item
+    private static final int TIGHT_GAP = 16;
+    
+    private static final Logger log = LoggerFactory.getLogger(ChecklistOrderService.class);
+    
+    private final ChecklistRepository checklistRepository;
+    private final ChecklistItemRepository checklistItemRepository;
+    private final ChangeSequence changeSequence;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> rebalancePending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService rebalancer;
+    
+    public ChecklistOrderService(ChecklistRepository checklistRepository,
+                                 ChecklistItemRepository checklistItemRepository,
+                                 ChangeSequence changeSequence,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager) {
+        this.checklistRepository = checklistRepository;
+        this.checklistItemRepository = checklistItemRepository;
+        this.changeSequence = changeSequence;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebalancer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checklist-rebalance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Spaces the items of a new checklist {@link #GAP} apart, keeping the order of the keys
+     * the client sent.
+     */
+    public static void spread(List<ChecklistItem> items) {
+        List<ChecklistItem> ordered = new ArrayList<>(items);
+        ordered.sort(Comparator.comparingInt(ChecklistItem::getOrderIndex));
+        for (int i = 0; i < ordered.size(); i++) {
+            ordered.get(i).setOrderIndex((i + 1) * GAP);
+        }
+    }
+    
+    /**
+     * Key for an item appended to the end of the checklist.
+     */
+    @Transactional
+    public int appendKey(Checklist checklist) {
+        int last = checklistItemRepository.findMaxOrderIndex(checklist.getId()).orElse(0);
+        if (last > Integer.MAX_VALUE - GAP) {
+            renumber(checklist.getId());
+            last = checklistItemRepository.findMaxOrderIndex(checklist.getId()).orElse(0);
+        }
+        return last + GAP;
+    }
+    
+    /**
+     * Moves the item directly behind another item of the same checklist, or to the top if
+     * {@code afterItemId} is null. The caller has locked the checklist and checked that both
+     * items belong to it. Returns the item's new order key.
+     */
+    @Transactional
+    public int move(Checklist checklist, Long itemId, Long afterItemId) {
+        Long checklistId = checklist.getId();
+        Optional<Integer> key = freeKey(checklistId, itemId, afterItemId);
+        if (key.isEmpty()) {
+            renumber(checklistId);
+            key = freeKey(checklistId, itemId, afterItemId);
+        }
+        int orderIndex = key.orElseThrow(() -> new IllegalStateException("No free order key after renumbering"));
+        checklistItemRepository.updateOrderIndex(itemId, orderIndex, changeSequence.current());
+        return orderIndex;
+    }
+    
+    /**
+     * Renumbers the checklist after the current transaction commits, unless that is already
+     * scheduled. The checklist is locked without bumping its version.
+     */
+    public void rebalanceLater(Long checklistId) {
+        TransactionCallbacks.afterCommit(() -> {
+            if (!rebalancePending.add(checklistId)) {
+                return;
+            }
+            rebalancer.execute(() -> {
+                rebalancePending.remove(checklistId);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> checklistRepository.findWithLockById(checklistId)
+                            .ifPresent(checklist -> renumber(checklistId)));
+                } catch (RuntimeException e) {
+                    log.warn("Renumbering the items of checklist {} failed", checklistId, e);
+                }
+            });
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        rebalancer.shutdownNow();
+    }
+    
+    // Empty if the neighbours leave no room; schedules a renumbering if they leave little
+    private Optional<Integer> freeKey(Long checklistId, Long itemId, Long afterItemId) {
+        long previous;
+        Optional<Integer> next;
+        if (afterItemId == null) {
+            next = checklistItemRepository.findMinOrderIndexExcluding(checklistId, itemId);
+            previous = next.map(key -> (long) key - 2L * GAP).orElse(0L);
+        } else {
+            previous = checklistItemRepository.findOrderIndex(afterItemId, checklistId).orElseThrow();
+            next = checklistItemRepository.findNextOrderIndexExcluding(checklistId, (int) previous, itemId);
+        }
+        long upper = next.map(Integer::longValue).orElse(previous + 2L * GAP);
+        if (upper - previous < 2 || previous < Integer.MIN_VALUE || upper > Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+        long key = previous + (upper - previous) / 2;
+        if (key - previous < TIGHT_GAP || upper - key < TIGHT_GAP) {
+            rebalanceLater(checklistId);
+        }
+        return Optional.of((int) key);
+    }
+    
+    // One batched statement for the whole checklist, keeping the current order
+    private void renumber(Long checklistId) {
+        List<Long> ids = checklistItemRepository.findIdsInOrder(checklistId);
+        long changeSeq = changeSequence.current();
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            rows.add(new Object[] {(i + 1) * GAP, changeSeq, ids.get(i)});
+        }
+        jdbcTemplate.batchUpdate("update checklist_items set order_index = ?, change_seq = ? where id = ?", rows);
+    }
+}
@@ -0,0 +1,156 @@
+package com.inspection.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.ChecklistItemView;
+import com.inspection.dto.ChecklistSnapshot;
+import com.inspection.model.Checklist;
+import com.inspection.model.ChecklistVersion;
+import com.inspection.model.Inspection;
+import com.inspection.repository.ChecklistItemRepository;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.ChecklistVersionNumber;
+import com.inspection.repository.ChecklistVersionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Publishes checklists as immutable versions and serves them. Versions never change once
+ * written, so they are kept in a bounded least-recently-used cache without any invalidation;
+ * a cached version is served without touching the database.
+ */
+@Service
+public class ChecklistVersionService {
+    
+    private static final TypeReference<List<ChecklistItemView>> ITEMS = new TypeReference<>() {};
+    
+    private record Key(Long checklistId, int version) {}
+    
+    private final ChecklistRepository checklistRepository;
+    private final ChecklistItemRepository checklistItemRepository;
+    private final ChecklistVersionRepository versionRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<Key, ChecklistSnapshot> cache;
+    
+    public ChecklistVersionService(ChecklistRepository checklistRepository,
+                                   ChecklistItemRepository checklistItemRepository,
+                                   ChecklistVersionRepository versionRepository,
+                                   ObjectMapper objectMapper,
+                                   @Value("${inspection.checklists.version-cache-size:256}") int cacheSize) {
+        this.checklistRepository = checklistRepository;
+        this.checklistItemRepository = checklistItemRepository;
+        this.versionRepository = versionRepository;
+        this.objectMapper = objectMapper;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ChecklistSnapshot> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+    
+    /**
+     * Publishes the checklist's current items as its next version. Returns empty if the
+     * checklist does not exist.
+     */
+    @Transactional
+    public Optional<ChecklistSnapshot> publish(Long checklistId) {
+        Optional<Checklist> checklist = checklistRepository.findById(checklistId);
+        if (checklist.isEmpty()) {
+            return Optional.empty();
+        }
+        // Locks the checklist, so concurrent publishes cannot pick the same number
+        checklistRepository.touch(checklist.get());
+        int number = versionRepository.findLatestVersionNumber(checklistId).orElse(0) + 1;
+        List<ChecklistItemView> items = checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(checklistId).stream()
+                .map(ChecklistItemView::from)
+                .toList();
+        ChecklistVersion version = versionRepository.save(new ChecklistVersion(checklistId, number, Instant.now(),
+                checklist.get().getName(), checklist.get().getDescription(), write(items)));
+        
+        ChecklistSnapshot snapshot = toSnapshot(version, items);
+        TransactionCallbacks.afterCommit(() -> cache(snapshot));
+        return Optional.of(snapshot);
+    }
+    
+    /**
+     * Returns a published version, from the cache when possible.
+     */
+    public Optional<ChecklistSnapshot> get(Long checklistId, int version) {
+        Key key = new Key(checklistId, version);
+        synchronized (cache) {
+            ChecklistSnapshot cached = cache.get(key);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<ChecklistSnapshot> loaded = versionRepository.findByChecklistIdAndVersionNumber(checklistId, version)
+                .map(entity -> toSnapshot(entity, read(entity.getItems())));
+        loaded.ifPresent(this::cache);
+        return loaded;
+    }
+    
+    /**
+     * The version the inspection is executed against, empty if it uses the live checklist.
+     */
+    public Optional<ChecklistSnapshot> pinned(Inspection inspection) {
+        if (inspection.getPinnedChecklistId() == null || inspection.getChecklistVersion() == null) {
+            return Optional.empty();
+        }
+        return get(inspection.getPinnedChecklistId(), inspection.getChecklistVersion());
+    }
+    
+    /**
+     * The version new inspections of the checklist are pinned to, empty if none was published.
+     */
+    public Optional<Integer> latestVersion(Long checklistId) {
+        return versionRepository.findLatestVersionNumber(checklistId);
+    }
+    
+    /**
+     * Latest version of every published checklist, for pinning many inspections at once.
+     */
+    public Map<Long, Integer> latestVersions() {
+        Map<Long, Integer> latest = new HashMap<>();
+        for (ChecklistVersionNumber row : versionRepository.findLatestVersionNumbers()) {
+            latest.put(row.getChecklistId(), row.getVersionNumber());
+        }
+        return latest;
+    }
+    
+    private void cache(ChecklistSnapshot snapshot) {
+        synchronized (cache) {
+            cache.put(new Key(snapshot.checklistId(), snapshot.version()), snapshot);
+        }
+    }
+    
+    private static ChecklistSnapshot toSnapshot(ChecklistVersion version, List<ChecklistItemView> items) {
+        return new ChecklistSnapshot(version.getChecklistId(), version.getVersionNumber(), version.getName(),
+                version.getDescription(), version.getPublishedAt(), List.copyOf(items));
+    }
+    
+    private List<ChecklistItemView> read(String items) {
+        try {
+            return objectMapper.readValue(items, ITEMS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable checklist version", e);
+        }
+    }
+    
+    private String write(List<ChecklistItemView> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize checklist version", e);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.inspection.service;
+
+import com.inspection.model.ComplianceRollup;
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+import com.inspection.model.ResultStatus;
+import com.inspection.repository.ComplianceRollupRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.ResultStatusCount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the compliance rollup rows in step with inspections and results.
+ * Every change is applied as an increment on the affected bucket, so the cost
+ * of a write does not depend on how much history exists.
+ */
+@Service
+public class ComplianceRollupService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ComplianceRollupService.class);
+    
+    private final ComplianceRollupRepository rollupRepository;
+    private final ResultRepository resultRepository;
+    private final TransactionTemplate newTransaction;
+    
+    public ComplianceRollupService(ComplianceRollupRepository rollupRepository,
+                                   ResultRepository resultRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.resultRepository = resultRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    /**
+     * Identifies the rollup bucket an inspection contributes to.
+     */
+    public record Key(String facilityName, String period, Long inspectorId) {
+        
+        public static Key of(Inspection inspection) {
+            return of(inspection.getFacilityName(), inspection.getInspectionDate(), inspection.getResponsibleUser().getId());
+        }
+        
+        public static Key of(String facilityName, LocalDate inspectionDate, Long inspectorId) {
+            return new Key(facilityName, periodOf(inspectionDate), inspectorId);
+        }
+    }
+    
+    @Transactional
+    public void inspectionCreated(Inspection inspection) {
+        apply(Key.of(inspection), new Delta(1, completed(inspection.getStatus()), 0, 0, 0));
+    }
+    
+    /**
+     * Bulk variant that issues one increment per affected bucket instead of one per inspection.
+     */
+    @Transactional
+    public void inspectionsCreated(Collection<Inspection> inspections) {
+        Map<Key, Delta> deltas = new HashMap<>();
+        for (Inspection inspection : inspections) {
+            deltas.merge(Key.of(inspection), new Delta(1, completed(inspection.getStatus()), 0, 0, 0), Delta::plus);
+        }
+        deltas.forEach(this::apply);
+    }
+    
+    @Transactional
+    public void inspectionStatusChanged(Inspection inspection, InspectionStatus oldStatus) {
+        long change = completed(inspection.getStatus()) - completed(oldStatus);
+        if (change != 0) {
+            apply(Key.of(inspection), new Delta(0, change, 0, 0, 0));
+        }
+    }
+    
+    /**
+     * Bulk variant for inspections that all moved from {@code oldStatus} to {@code newStatus},
+     * given as the number of inspections per bucket.
+     */
+    @Transactional
+    public void inspectionsStatusChanged(Map<Key, Long> countsByKey, InspectionStatus oldStatus, InspectionStatus newStatus) {
+        long change = completed(newStatus) - completed(oldStatus);
+        if (change != 0) {
+            countsByKey.forEach((key, count) -> apply(key, new Delta(0, change * count, 0, 0, 0)));
+        }
+    }
+    
+    /**
+     * Moves the whole contribution of an inspection when its facility, date or inspector changed.
+     */
+    @Transactional
+    public void inspectionMoved(Key oldKey, Inspection inspection) {
+        Key newKey = Key.of(inspection);
+        if (oldKey.equals(newKey)) {
+            return;
+        }
+        Delta contribution = contributionOf(inspection);
+        apply(oldKey, contribution.negate());
+        apply(newKey, contribution);
+    }
+    
+    /**
+     * Must be called before the inspection is deleted, while its results can still be counted.
+     */
+    @Transactional
+    public void inspectionDeleted(Inspection inspection) {
+        apply(Key.of(inspection), contributionOf(inspection).negate());
+    }
+    
+    @Transactional
+    public void resultChanged(Inspection inspection, ResultStatus oldStatus, ResultStatus newStatus) {
+        if (oldStatus == newStatus) {
+            return;
+        }
+        Delta delta = Delta.of(newStatus, 1).plus(Delta.of(oldStatus, -1));
+        apply(Key.of(inspection), delta);
+    }
+    
+    /**
+     * Bulk variant taking the net change in result count per status for one inspection.
+     */
+    @Transactional
+    public void resultsChanged(Inspection inspection, Map<ResultStatus, Long> changes) {
+        Delta delta = Delta.of(null, 0);
+        for (Map.Entry<ResultStatus, Long> change : changes.entrySet()) {
+            delta = delta.plus(Delta.of(change.getKey(), change.getValue()));
+        }
+        apply(Key.of(inspection), delta);
+    }
+    
+    /**
+     * Recomputes all rollups from the source tables with grouped queries.
+     */
+    @Transactional
+    public void rebuild() {
+        rollupRepository.deleteAllInBatch();
+        Map<Key, ComplianceRollup> rollups = new HashMap<>();
+        for (Object[] row : rollupRepository.aggregateInspections()) {
+            ComplianceRollup rollup = rollups.computeIfAbsent(keyOf(row), this::newRollup);
+            rollup.setInspections(((Number) row[4]).longValue());
+            rollup.setCompletedInspections(((Number) row[5]).longValue());
+        }
+        for (Object[] row : rollupRepository.aggregateResults()) {
+            ComplianceRollup rollup = rollups.computeIfAbsent(keyOf(row), this::newRollup);
+            long count = ((Number) row[5]).longValue();
+            switch ((ResultStatus) row[4]) {
+                case FULFILLED -> rollup.setFulfilled(count);
+                case NOT_FULFILLED -> rollup.setNotFulfilled(count);
+                case NOT_APPLICABLE -> rollup.setNotApplicable(count);
+            }
+        }
+        rollupRepository.saveAll(rollups.values());
+        log.info("Rebuilt {} compliance rollup rows", rollups.size());
+    }
+    
+    // Backfill once for databases that predate the rollup table
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (rollupRepository.count() == 0) {
+            newTransaction.executeWithoutResult(status -> rebuild());
+        }
+    }
+    
+    private void apply(Key key, Delta delta) {
+        if (delta.isZero()) {
+            return;
+        }
+        if (increment(key, delta) == 0) {
+            createBucket(key);
+            increment(key, delta);
+        }
+    }
+    
+    private int increment(Key key, Delta delta) {
+        return rollupRepository.increment(key.facilityName(), key.period(), key.inspectorId(),
+                delta.inspections(), delta.completed(), delta.fulfilled(), delta.notFulfilled(), delta.notApplicable());
+    }
+    
+    // Created in its own transaction so a concurrent insert of the same bucket only costs a retry
+    private void createBucket(Key key) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                if (!rollupRepository.existsByFacilityNameAndPeriodAndInspectorId(
+                        key.facilityName(), key.period(), key.inspectorId())) {
+                    rollupRepository.saveAndFlush(newRollup(key));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Compliance rollup {} was created concurrently", key);
+        }
+    }
+    
+    private Delta contributionOf(Inspection inspection) {
+        Delta delta = new Delta(1, completed(inspection.getStatus()), 0, 0, 0);
+        if (inspection.getId() != null) {
+            for (ResultStatusCount count : resultRepository.countByStatusForInspection(inspection.getId())) {
+                delta = delta.plus(Delta.of(count.getStatus(), count.getCount()));
+            }
+        }
+        return delta;
+    }
+    
+    private ComplianceRollup newRollup(Key key) {
+        return new ComplianceRollup(key.facilityName(), key.period(), key.inspectorId());
+    }
+    
+    private static Key keyOf(Object[] row) {
+        int year = ((Number) row[1]).intValue();
+        int month = ((Number) row[2]).intValue();
+        return new Key((String) row[0], String.format("%04d-%02d", year, month), ((Number) row[3]).longValue());
+    }
+    
+    private static String periodOf(LocalDate date) {
+        return String.format("%04d-%02d", date.getYear(), date.getMonthValue());
+    }
+    
+    private static long completed(InspectionStatus status) {
+        return status == InspectionStatus.COMPLETED ? 1 : 0;
+    }
+    
+    private record Delta(long inspections, long completed, long fulfilled, long notFulfilled, long notApplicable) {
+        
+        static Delta of(ResultStatus status, long count) {
+            if (status == null) {
+                return new Delta(0, 0, 0, 0, 0);
+            }
+            return switch (status) {
+                case FULFILLED -> new Delta(0, 0, count, 0, 0);
+                case NOT_FULFILLED -> new Delta(0, 0, 0, count, 0);
+                case NOT_APPLICABLE -> new Delta(0, 0, 0, 0, count);
+            };
+        }
+        
+        Delta plus(Delta other) {
+            return new Delta(inspections + other.inspections, completed + other.completed,
+                    fulfilled + other.fulfilled, notFulfilled + other.notFulfilled, notApplicable + other.notApplicable);
+        }
+        
+        Delta negate() {
+            return new Delta(-inspections, -completed, -fulfilled, -notFulfilled, -notApplicable);
+        }
+        
+        boolean isZero() {
+            return inspections == 0 && completed == 0 && fulfilled == 0 && notFulfilled == 0 && notApplicable == 0;
+        }
+    }
+}
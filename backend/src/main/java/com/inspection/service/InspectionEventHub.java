@@ -0,0 +1,242 @@
+package com.inspection.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.InspectionEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans committed inspection events out to server-sent event subscribers. Each subscriber has
+ * a small bounded buffer drained by a shared dispatcher pool, so an idle subscriber holds no
+ * thread, and a subscriber whose buffer overflows is disconnected instead of slowing down
+ * the others. A subscriber whose connection stops taking data is disconnected once a send
+ * has been blocked for the send timeout, which also releases the dispatcher thread stuck in
+ * it. Browsers reconnect on their own and reload the current state.
+ */
+@Service
+public class InspectionEventHub {
+    
+    private static final Logger log = LoggerFactory.getLogger(InspectionEventHub.class);
+    
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final ExecutorService dispatcher;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    
+    public InspectionEventHub(ObjectMapper objectMapper,
+                              @Value("${inspection.events.buffer-size:64}") int bufferSize,
+                              @Value("${inspection.events.dispatch-threads:2}") int dispatchThreads,
+                              @Value("${inspection.events.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "event-dispatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter();
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscribers.remove(subscriber));
+        
+        // Flushes the response headers so the client sees the stream as open right away
+        subscriber.offer(Message.comment("connected"));
+        return emitter;
+    }
+    
+    /**
+     * Broadcasts the event once the current transaction commits, or right away without one.
+     */
+    public void publish(InspectionEvent event) {
+        TransactionCallbacks.afterCommit(() -> broadcast(event));
+    }
+    
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+    
+    public long droppedSubscribers() {
+        return dropped.get();
+    }
+    
+    /**
+     * Keeps idle connections open through proxies and detects clients that went away.
+     */
+    @Scheduled(fixedRateString = "${inspection.events.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        Message heartbeat = Message.comment("heartbeat");
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(heartbeat);
+        }
+    }
+    
+    /**
+     * Disconnects subscribers whose current send has been blocked for longer than the send
+     * timeout. Failing the response closes the connection, so the blocked write returns.
+     */
+    @Scheduled(fixedDelayString = "${inspection.events.send-timeout-ms:10000}")
+    public void disconnectStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince;
+            if (since != 0 && now - since > sendTimeoutNanos) {
+                dropped.incrementAndGet();
+                log.debug("Disconnecting event subscriber whose send has been blocked for {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(now - since));
+                subscriber.abort(new TimeoutException("Event send timed out"));
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        dispatcher.shutdownNow();
+    }
+    
+    private void broadcast(InspectionEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        
+        // Serialize once, every subscriber gets the same payload
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize {} event", event.type(), e);
+            return;
+        }
+        Message message = new Message(Long.toString(sequence.incrementAndGet()), event.type().eventName(), json);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(message);
+        }
+    }
+    
+    private record Message(String id, String name, String data) {
+        
+        static Message comment(String text) {
+            return new Message(null, null, text);
+        }
+        
+        void sendTo(SseEmitter emitter) throws IOException {
+            if (name == null) {
+                emitter.send(SseEmitter.event().comment(data));
+            } else {
+                emitter.send(SseEmitter.event().id(id).name(name).data(data, MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+    
+    private final class Subscriber implements Runnable {
+        
+        private final SseEmitter emitter;
+        private final BlockingQueue<Message> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+        // Start of the send in progress, 0 while none is
+        private volatile long sendingSince;
+        
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+        
+        void offer(Message message) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(message)) {
+                dropped.incrementAndGet();
+                log.debug("Disconnecting slow event subscriber after {} buffered events", bufferSize);
+                close();
+                return;
+            }
+            schedule();
+        }
+        
+        // At most one drain task per subscriber is queued or running at any time
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this);
+            }
+        }
+        
+        @Override
+        public void run() {
+            try {
+                Message message;
+                while (!closed && (message = buffer.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    message.sendTo(emitter);
+                    sendingSince = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                closed = true;
+                buffer.clear();
+            } finally {
+                sendingSince = 0;
+                scheduled.set(false);
+            }
+            
+            // An offer may have slipped in between the last poll and clearing the flag
+            if (!closed && !buffer.isEmpty()) {
+                schedule();
+            }
+        }
+        
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            buffer.clear();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // Already completed by the container
+            }
+        }
+        
+        void abort(Throwable cause) {
+            closed = true;
+            subscribers.remove(this);
+            buffer.clear();
+            try {
+                emitter.completeWithError(cause);
+            } catch (IllegalStateException ignored) {
+                // Already completed by the container
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.inspection.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.InspectionExportRow;
+import com.inspection.dto.ResultExportRow;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes every inspection with its results as NDJSON. Inspections and results are read as two
+ * forward-only streams ordered by inspection id and merged on the fly, so memory use does not
+ * grow with the size of the export and the whole dump costs two queries.
+ */
+@Service
+public class InspectionExportService {
+    
+    private final InspectionRepository inspectionRepository;
+    private final ResultRepository resultRepository;
+    private final ObjectMapper objectMapper;
+    
+    public InspectionExportService(InspectionRepository inspectionRepository,
+                                   ResultRepository resultRepository,
+                                   ObjectMapper objectMapper) {
+        this.inspectionRepository = inspectionRepository;
+        this.resultRepository = resultRepository;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Streams the export to {@code out}. A failing write, e.g. because the client went away,
+     * aborts the export and releases the database cursors.
+     */
+    @Transactional(readOnly = true)
+    public void export(OutputStream out) throws IOException {
+        try (Stream<InspectionExportRow> inspections = inspectionRepository.streamForExport();
+             Stream<ResultExportRow> results = resultRepository.streamForExport();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by the newline alone, not the default space between root values
+            generator.setRootValueSeparator(null);
+            
+            Iterator<ResultExportRow> resultIterator = results.iterator();
+            ResultExportRow pending = resultIterator.hasNext() ? resultIterator.next() : null;
+            
+            Iterator<InspectionExportRow> inspectionIterator = inspections.iterator();
+            while (inspectionIterator.hasNext()) {
+                InspectionExportRow inspection = inspectionIterator.next();
+                writeInspectionStart(generator, inspection);
+                
+                // Both streams are sorted by inspection id: skip results of vanished inspections,
+                // then consume the ones belonging to the current inspection
+                while (pending != null && pending.inspectionId() < inspection.id()) {
+                    pending = resultIterator.hasNext() ? resultIterator.next() : null;
+                }
+                while (pending != null && pending.inspectionId().equals(inspection.id())) {
+                    writeResult(generator, pending);
+                    pending = resultIterator.hasNext() ? resultIterator.next() : null;
+                }
+                
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+    
+    private void writeInspectionStart(JsonGenerator generator, InspectionExportRow inspection) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", inspection.id());
+        generator.writeStringField("facilityName", inspection.facilityName());
+        generator.writeStringField("inspectionDate", inspection.inspectionDate().toString());
+        generator.writeStringField("status", inspection.status().name());
+        
+        generator.writeObjectFieldStart("responsibleUser");
+        generator.writeNumberField("id", inspection.responsibleUserId());
+        generator.writeStringField("name", inspection.responsibleUserName());
+        generator.writeEndObject();
+        
+        if (inspection.checklistId() != null) {
+            generator.writeObjectFieldStart("checklist");
+            generator.writeNumberField("id", inspection.checklistId());
+            generator.writeStringField("name", inspection.checklistName());
+            generator.writeEndObject();
+        } else {
+            generator.writeNullField("checklist");
+        }
+        generator.writeArrayFieldStart("results");
+    }
+    
+    private void writeResult(JsonGenerator generator, ResultExportRow result) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", result.id());
+        if (result.checklistItemId() != null) {
+            generator.writeObjectFieldStart("checklistItem");
+            generator.writeNumberField("id", result.checklistItemId());
+            generator.writeStringField("description", result.checklistItemDescription());
+            generator.writeEndObject();
+        } else {
+            generator.writeNullField("checklistItem");
+        }
+        generator.writeStringField("status", result.status() != null ? result.status().name() : null);
+        generator.writeStringField("comment", result.comment());
+        generator.writeStringField("photoUrl", result.photoUrl());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,272 @@
+package com.inspection.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.ImportReport;
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Streams planned inspections from CSV or NDJSON into the database. Rows are parsed and
+ * validated one at a time and written in fixed-size transactions whose inserts Hibernate
+ * sends as JDBC batches.
+ */
+@Service
+public class InspectionImportService {
+    
+    public enum Format { CSV, NDJSON }
+    
+    private static final int TRANSACTION_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private final InspectionRepository inspectionRepository;
+    private final UserRepository userRepository;
+    private final ChecklistRepository checklistRepository;
+    private final InspectionStatisticsService statisticsService;
+    private final ComplianceRollupService rollupService;
+    private final SearchService searchService;
+    private final ChecklistVersionService versionService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    public InspectionImportService(InspectionRepository inspectionRepository,
+                                   UserRepository userRepository,
+                                   ChecklistRepository checklistRepository,
+                                   InspectionStatisticsService statisticsService,
+                                   ComplianceRollupService rollupService,
+                                   SearchService searchService,
+                                   ChecklistVersionService versionService,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper) {
+        this.inspectionRepository = inspectionRepository;
+        this.userRepository = userRepository;
+        this.checklistRepository = checklistRepository;
+        this.statisticsService = statisticsService;
+        this.rollupService = rollupService;
+        this.searchService = searchService;
+        this.versionService = versionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+    
+    private record Row(long line, String facilityName, LocalDate inspectionDate, Long responsibleUserId, Long checklistId,
+                       Integer checklistVersion) {
+    }
+    
+    private class Run {
+        final Set<Long> userIds = new HashSet<>(userRepository.findAllIds());
+        final Set<Long> checklistIds = new HashSet<>(checklistRepository.findAllIds());
+        final Map<Long, Integer> checklistVersions = versionService.latestVersions();
+        final List<Row> pending = new ArrayList<>(TRANSACTION_SIZE);
+        final List<ImportReport.RowError> errors = new ArrayList<>();
+        long imported;
+        long failed;
+        
+        void reject(long line, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(line, error));
+            }
+        }
+        
+        void accept(long line, String facilityName, String inspectionDate, String responsibleUserId, String checklistId) {
+            if (facilityName == null || facilityName.isBlank()) {
+                reject(line, "facilityName is required");
+                return;
+            }
+            LocalDate date;
+            try {
+                date = LocalDate.parse(inspectionDate == null ? "" : inspectionDate.trim());
+            } catch (DateTimeParseException e) {
+                reject(line, "inspectionDate must be an ISO date (yyyy-MM-dd)");
+                return;
+            }
+            Long userId = parseId(responsibleUserId);
+            if (userId == null || !userIds.contains(userId)) {
+                reject(line, "User not found");
+                return;
+            }
+            Long listId = null;
+            if (checklistId != null && !checklistId.isBlank()) {
+                listId = parseId(checklistId);
+                if (listId == null || !checklistIds.contains(listId)) {
+                    reject(line, "Checklist not found");
+                    return;
+                }
+            }
+            pending.add(new Row(line, facilityName.trim(), date, userId, listId,
+                    listId != null ? checklistVersions.get(listId) : null));
+            if (pending.size() >= TRANSACTION_SIZE) {
+                flush();
+            }
+        }
+        
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Row> rows = List.copyOf(pending);
+            pending.clear();
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeBatch(rows));
+                imported += rows.size();
+            } catch (RuntimeException e) {
+                for (Row row : rows) {
+                    reject(row.line(), "Batch failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    public ImportReport importInspections(InputStream body, Format format) throws IOException {
+        long started = System.nanoTime();
+        Run run = new Run();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            readCsv(reader, run);
+        } else {
+            readNdjson(reader, run);
+        }
+        run.flush();
+        
+        long durationMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        double rowsPerSecond = (run.imported + run.failed) * 1000.0 / durationMs;
+        return new ImportReport(run.imported, run.failed, run.errors, durationMs, rowsPerSecond);
+    }
+    
+    private void writeBatch(List<Row> rows) {
+        List<Inspection> inspections = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Inspection inspection = new Inspection(row.facilityName(), row.inspectionDate(),
+                    userRepository.getReferenceById(row.responsibleUserId()));
+            if (row.checklistId() != null) {
+                inspection.setChecklist(checklistRepository.getReferenceById(row.checklistId()));
+                inspection.pinChecklistVersion(row.checklistId(), row.checklistVersion());
+            }
+            inspection.setStatus(InspectionStatus.PLANNED);
+            inspections.add(inspection);
+        }
+        inspectionRepository.saveAll(inspections);
+        rollupService.inspectionsCreated(inspections);
+        statisticsService.recordCreated(InspectionStatus.PLANNED, inspections.size());
+        searchService.inspectionsSaved(inspections);
+        // Push the batched inserts now and drop the entities so memory stays flat
+        entityManager.flush();
+        entityManager.clear();
+    }
+    
+    private void readCsv(BufferedReader reader, Run run) throws IOException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return;
+        }
+        // Spreadsheet exports often start with a byte order mark
+        List<String> header = parseCsvLine(headerLine.replace("\uFEFF", ""));
+        int facility = header.indexOf("facilityName");
+        int date = header.indexOf("inspectionDate");
+        int user = header.indexOf("responsibleUserId");
+        int checklist = header.indexOf("checklistId");
+        if (facility < 0 || date < 0 || user < 0) {
+            run.reject(1, "Header must contain facilityName, inspectionDate and responsibleUserId");
+            return;
+        }
+        
+        long lineNumber = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = parseCsvLine(line);
+            run.accept(lineNumber, field(fields, facility), field(fields, date),
+                    field(fields, user), field(fields, checklist));
+        }
+    }
+    
+    private void readNdjson(BufferedReader reader, Run run) throws IOException {
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                run.reject(lineNumber, "Malformed JSON");
+                continue;
+            }
+            run.accept(lineNumber, text(node, "facilityName"), text(node, "inspectionDate"),
+                    text(node, "responsibleUserId"), text(node, "checklistId"));
+        }
+    }
+    
+    // Minimal RFC 4180 field splitting: commas inside double quotes and "" escapes
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+    
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+    
+    private static String text(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+    
+    private static Long parseId(String value) {
+        try {
+            return value == null ? null : Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
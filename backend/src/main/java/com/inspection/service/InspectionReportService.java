@@ -0,0 +1,341 @@
+package com.inspection.service;
+
+import com.inspection.dto.ChecklistItemView;
+import com.inspection.dto.ChecklistSnapshot;
+import com.inspection.model.Inspection;
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.web.util.HtmlUtils.htmlEscape;
+
+/**
+ * Renders printable, self-contained HTML inspection reports with embedded photos.
+ * Rendering runs on a small bounded pool so report bursts cannot starve request threads,
+ * and finished documents are cached on disk under the inspection id plus a content
+ * version, so unchanged reports are served without rendering again. Inspections pinned to a
+ * published checklist version are reported with that version's items.
+ */
+@Service
+public class InspectionReportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(InspectionReportService.class);
+    private static final String FILES_URL_PREFIX = "/api/files/";
+    
+    private final InspectionRepository inspectionRepository;
+    private final ResultRepository resultRepository;
+    private final PhotoStore photoStore;
+    private final ThumbnailService thumbnailService;
+    private final ChecklistVersionService versionService;
+    private final Path cacheDir;
+    private final ThreadPoolExecutor renderPool;
+    private final ConcurrentMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    
+    public InspectionReportService(InspectionRepository inspectionRepository,
+                                   ResultRepository resultRepository,
+                                   PhotoStore photoStore,
+                                   ThumbnailService thumbnailService,
+                                   ChecklistVersionService versionService,
+                                   @Value("${inspection.reports.cache-dir:reports}") String cacheDir,
+                                   @Value("${inspection.reports.render-threads:2}") int renderThreads,
+                                   @Value("${inspection.reports.queue-capacity:32}") int queueCapacity) {
+        this.inspectionRepository = inspectionRepository;
+        this.resultRepository = resultRepository;
+        this.photoStore = photoStore;
+        this.thumbnailService = thumbnailService;
+        this.versionService = versionService;
+        this.cacheDir = Paths.get(cacheDir);
+        try {
+            Files.createDirectories(this.cacheDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create report cache directory", e);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.renderPool = new ThreadPoolExecutor(renderThreads, renderThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-render-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    /**
+     * Everything a report shows. Loaded once per request to derive the content version;
+     * {@code pinned} is the inspection's checklist version, null for the live checklist, and
+     * {@code loadedAt} when it was read, which orders the renders of one inspection.
+     */
+    private record ReportModel(Inspection inspection, ChecklistSnapshot pinned, List<Result> results, long loadedAt) {
+        
+        String checklistName() {
+            if (pinned != null) {
+                return pinned.name();
+            }
+            return inspection.getChecklist() != null ? inspection.getChecklist().getName() : null;
+        }
+        
+        Map<Long, ChecklistItemView> pinnedItems() {
+            return pinned != null ? pinned.itemsById() : Map.of();
+        }
+    }
+    
+    /**
+     * Returns the cached report file for the inspection, rendering it first if the cached
+     * copy is missing or stale. Concurrent requests for the same version share one render.
+     *
+     * @throws RejectedExecutionException when the render queue is full
+     */
+    @Transactional(readOnly = true)
+    public Optional<CompletableFuture<Path>> report(Long inspectionId) {
+        Optional<ReportModel> model = loadModel(inspectionId);
+        if (model.isEmpty()) {
+            return Optional.empty();
+        }
+        ReportModel report = model.get();
+        Path target = cacheDir.resolve("inspection-" + inspectionId + "-" + contentVersion(report) + ".html");
+        if (Files.exists(target)) {
+            return Optional.of(CompletableFuture.completedFuture(target));
+        }
+        
+        String key = target.getFileName().toString();
+        CompletableFuture<Path> render = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, render);
+        if (running != null) {
+            return Optional.of(running);
+        }
+        try {
+            renderPool.execute(() -> {
+                try {
+                    render.complete(render(report, target));
+                } catch (RuntimeException e) {
+                    render.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, render);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, render);
+            render.completeExceptionally(e);
+            throw e;
+        }
+        return Optional.of(render);
+    }
+    
+    private Optional<ReportModel> loadModel(Long inspectionId) {
+        long loadedAt = System.currentTimeMillis();
+        return inspectionRepository.findWithAssociationsById(inspectionId).map(inspection -> {
+            ChecklistSnapshot pinned = versionService.pinned(inspection).orElse(null);
+            List<Result> results = resultRepository.findWithAssociationsByInspectionId(inspectionId);
+            return new ReportModel(inspection, pinned, results, loadedAt);
+        });
+    }
+    
+    // Fingerprint of every value that appears in the report; photo files are immutable per URL
+    private static String contentVersion(ReportModel model) {
+        Inspection inspection = model.inspection();
+        Map<Long, ChecklistItemView> pinnedItems = model.pinnedItems();
+        StringBuilder content = new StringBuilder()
+                .append(inspection.getFacilityName()).append('|')
+                .append(inspection.getInspectionDate()).append('|')
+                .append(inspection.getStatus()).append('|')
+                .append(inspection.getResponsibleUser().getName()).append('|')
+                .append(model.checklistName() != null ? model.checklistName() : "");
+        for (Result result : model.results()) {
+            ChecklistItemView item = item(result, pinnedItems);
+            content.append('\n').append(result.getId()).append('|')
+                    .append(item != null ? item.description() : "").append('|')
+                    .append(item != null ? item.desiredPhotoUrl() : "").append('|')
+                    .append(result.getStatus()).append('|')
+                    .append(result.getComment()).append('|')
+                    .append(result.getPhotoUrl());
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private Path render(ReportModel report, Path target) {
+        try {
+            Path temp = Files.createTempFile(cacheDir, "render-", ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writeHtml(report, out);
+            }
+            Files.setLastModifiedTime(temp, FileTime.fromMillis(report.loadedAt()));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            removeStaleVersions(report.inspection().getId(), target, report.loadedAt());
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    // Each file carries the time its content was read as its modification time. Only versions
+    // read before this one are removed, so a slow render of older content cannot delete a
+    // newer report; it is left behind for the next render to remove
+    private void removeStaleVersions(Long inspectionId, Path current, long loadedAt) {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(cacheDir, "inspection-" + inspectionId + "-*.html")) {
+            for (Path path : stale) {
+                if (!path.equals(current) && readAt(path) < loadedAt) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not remove stale reports for inspection {}", inspectionId, e);
+        }
+    }
+    
+    private static long readAt(Path report) throws IOException {
+        try {
+            return Files.getLastModifiedTime(report).toMillis();
+        } catch (NoSuchFileException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+    
+    private void writeHtml(ReportModel report, BufferedWriter out) throws IOException {
+        Inspection inspection = report.inspection();
+        List<Result> results = report.results();
+        Map<ResultStatus, Long> summary = new EnumMap<>(ResultStatus.class);
+        for (ResultStatus status : ResultStatus.values()) {
+            summary.put(status, results.stream().filter(r -> r.getStatus() == status).count());
+        }
+        
+        out.write("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\">");
+        out.write("<title>Inspection Report - " + htmlEscape(inspection.getFacilityName()) + "</title>");
+        out.write("<style>body{font-family:sans-serif;margin:2em;color:#222}"
+                + ".summary{display:flex;gap:1em;margin:1em 0}.summary div{padding:.5em 1em;border-radius:4px}"
+                + ".fulfilled{background:#d4edda}.not-fulfilled{background:#f8d7da}.not-applicable{background:#e2e3e5}"
+                + ".result{border-bottom:1px solid #ccc;padding:1em 0;page-break-inside:avoid}"
+                + ".photos{display:flex;gap:1em}.photos img{max-width:300px;max-height:300px}"
+                + "@media print{body{margin:0}}</style></head><body>");
+        
+        out.write("<h1>Inspection Report</h1>");
+        out.write("<h2>" + htmlEscape(inspection.getFacilityName()) + "</h2>");
+        out.write("<p>Date: " + inspection.getInspectionDate()
+                + " | Inspector: " + htmlEscape(inspection.getResponsibleUser().getName()) + "</p>");
+        if (report.checklistName() != null) {
+            out.write("<p>Checklist: " + htmlEscape(report.checklistName()) + "</p>");
+        }
+        
+        out.write("<div class=\"summary\">");
+        out.write("<div class=\"fulfilled\">Fulfilled: " + summary.get(ResultStatus.FULFILLED) + "</div>");
+        out.write("<div class=\"not-fulfilled\">Not Fulfilled: " + summary.get(ResultStatus.NOT_FULFILLED) + "</div>");
+        out.write("<div class=\"not-applicable\">N/A: " + summary.get(ResultStatus.NOT_APPLICABLE) + "</div>");
+        out.write("</div><h3>Detailed Results</h3>");
+        
+        if (results.isEmpty()) {
+            out.write("<p>No results recorded.</p>");
+        }
+        Map<Long, ChecklistItemView> pinnedItems = report.pinnedItems();
+        int index = 0;
+        for (Result result : results) {
+            ChecklistItemView item = item(result, pinnedItems);
+            out.write("<div class=\"result\"><h4>" + (++index) + ". "
+                    + htmlEscape(item != null ? item.description() : "N/A") + "</h4>");
+            if (result.getStatus() != null) {
+                out.write("<p class=\"" + statusClass(result.getStatus()) + "\">" + statusLabel(result.getStatus()) + "</p>");
+            }
+            if (result.getComment() != null && !result.getComment().isBlank()) {
+                out.write("<p><strong>Comment:</strong> " + htmlEscape(result.getComment()) + "</p>");
+            }
+            out.write("<div class=\"photos\">");
+            if (item != null) {
+                writePhoto(out, "Desired state", item.desiredPhotoUrl());
+            }
+            writePhoto(out, "Current state", result.getPhotoUrl());
+            out.write("</div></div>");
+        }
+        out.write("</body></html>\n");
+    }
+    
+    // Photos are embedded as data URIs so the cached document stands on its own; the largest
+    // downscaled variant is embedded where one can be made
+    private void writePhoto(BufferedWriter out, String label, String url) throws IOException {
+        if (url == null || !url.startsWith(FILES_URL_PREFIX)) {
+            return;
+        }
+        String filename = url.substring(FILES_URL_PREFIX.length());
+        Optional<StoredPhoto> stored = photoStore.resolve(filename);
+        if (stored.isEmpty()) {
+            return;
+        }
+        StoredPhoto photo = stored.get();
+        List<Integer> sizes = thumbnailService.sizes();
+        if (!sizes.isEmpty()) {
+            photo = thumbnailService.variant(filename, sizes.get(sizes.size() - 1)).orElse(photo);
+        }
+        String contentType = MediaTypeFactory.getMediaType(photo.name()).map(MediaType::toString).orElse("image/jpeg");
+        out.write("<figure><figcaption>" + label + "</figcaption><img alt=\"" + label + "\" src=\"data:"
+                + contentType + ";base64,");
+        try (InputStream in = photoStore.open(photo, 0, photo.size())) {
+            out.write(Base64.getEncoder().encodeToString(in.readAllBytes()));
+        }
+        out.write("\"></figure>");
+    }
+    
+    // The item as published in the pinned version, the live item for unpinned inspections
+    private static ChecklistItemView item(Result result, Map<Long, ChecklistItemView> pinnedItems) {
+        if (result.getChecklistItem() == null) {
+            return null;
+        }
+        ChecklistItemView published = pinnedItems.get(result.getChecklistItem().getId());
+        return published != null ? published : ChecklistItemView.from(result.getChecklistItem());
+    }
+    
+    private static String statusLabel(ResultStatus status) {
+        return switch (status) {
+            case FULFILLED -> "Fulfilled";
+            case NOT_FULFILLED -> "Not Fulfilled";
+            case NOT_APPLICABLE -> "N/A";
+        };
+    }
+    
+    private static String statusClass(ResultStatus status) {
+        return switch (status) {
+            case FULFILLED -> "fulfilled";
+            case NOT_FULFILLED -> "not-fulfilled";
+            case NOT_APPLICABLE -> "not-applicable";
+        };
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+}
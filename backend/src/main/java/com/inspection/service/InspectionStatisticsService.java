@@ -0,0 +1,145 @@
+package com.inspection.service;
+
+import com.inspection.model.InspectionStatus;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.StatusCount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory inspection counters per status, so the dashboard statistics are a memory read
+ * instead of several count queries. Counters are seeded from the database at startup,
+ * adjusted by the write paths, and periodically reconciled against the database.
+ */
+@Service
+public class InspectionStatisticsService {
+    
+    private static final Logger log = LoggerFactory.getLogger(InspectionStatisticsService.class);
+    
+    private final InspectionRepository inspectionRepository;
+    private final Map<InspectionStatus, LongAdder> counters = new EnumMap<>(InspectionStatus.class);
+    // Differences seen by the previous run, corrected once the next run sees them again
+    private final Map<InspectionStatus, Long> suspectedDrift = new EnumMap<>(InspectionStatus.class);
+    
+    private final AtomicLong lastDrift = new AtomicLong();
+    private final AtomicLong totalDrift = new AtomicLong();
+    private volatile Instant lastReconciledAt;
+    
+    public InspectionStatisticsService(InspectionRepository inspectionRepository) {
+        this.inspectionRepository = inspectionRepository;
+        for (InspectionStatus status : InspectionStatus.values()) {
+            counters.put(status, new LongAdder());
+        }
+    }
+    
+    public void recordCreated(InspectionStatus status) {
+        recordCreated(status, 1);
+    }
+    
+    public void recordCreated(InspectionStatus status, long count) {
+        TransactionCallbacks.afterCommit(() -> counters.get(status).add(count));
+    }
+    
+    public void recordDeleted(InspectionStatus status) {
+        TransactionCallbacks.afterCommit(() -> counters.get(status).decrement());
+    }
+    
+    public void recordStatusChange(InspectionStatus from, InspectionStatus to) {
+        recordStatusChange(from, to, 1);
+    }
+    
+    public void recordStatusChange(InspectionStatus from, InspectionStatus to, long count) {
+        if (from == to || count == 0) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            counters.get(from).add(-count);
+            counters.get(to).add(count);
+        });
+    }
+    
+    public long count(InspectionStatus status) {
+        return counters.get(status).sum();
+    }
+    
+    public Map<String, Long> snapshot() {
+        long planned = count(InspectionStatus.PLANNED);
+        long inProgress = count(InspectionStatus.IN_PROGRESS);
+        long completed = count(InspectionStatus.COMPLETED);
+        Map<String, Long> stats = new HashMap<>();
+        stats.put("planned", planned);
+        stats.put("inProgress", inProgress);
+        stats.put("completed", completed);
+        stats.put("total", planned + inProgress + completed);
+        return stats;
+    }
+    
+    public Map<String, Object> driftReport() {
+        Map<String, Object> report = new HashMap<>();
+        report.put("lastDrift", lastDrift.get());
+        report.put("totalDrift", totalDrift.get());
+        report.put("lastReconciledAt", lastReconciledAt);
+        return report;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+    
+    /**
+     * Compares the counters with the database and corrects them. The absolute
+     * difference summed over all statuses is recorded as drift; it should stay zero
+     * unless some write path bypasses this service.
+     *
+     * <p>The counts and the counters are not read at the same instant, so a transaction that
+     * commits in between shows up as a difference that its after-commit update is about to
+     * remove. A difference is therefore only corrected once two consecutive runs see the same.
+     */
+    @Scheduled(fixedDelayString = "${inspection.statistics.reconcile-interval-ms:300000}",
+               initialDelayString = "${inspection.statistics.reconcile-interval-ms:300000}")
+    public synchronized void reconcile() {
+        Map<InspectionStatus, Long> actual = new EnumMap<>(InspectionStatus.class);
+        for (StatusCount row : inspectionRepository.countGroupedByStatus()) {
+            actual.put(row.getStatus(), row.getCount());
+        }
+        
+        boolean seeding = lastReconciledAt == null;
+        long drift = 0;
+        for (InspectionStatus status : InspectionStatus.values()) {
+            LongAdder counter = counters.get(status);
+            long delta = actual.getOrDefault(status, 0L) - counter.sum();
+            Long suspected = suspectedDrift.remove(status);
+            if (delta == 0) {
+                continue;
+            }
+            if (seeding || suspected != null && suspected == delta) {
+                counter.add(delta);
+                drift += Math.abs(delta);
+            } else {
+                suspectedDrift.put(status, delta);
+            }
+        }
+        
+        // The startup seed is not drift, it fills the counters for the first time
+        if (!seeding) {
+            lastDrift.set(drift);
+            totalDrift.addAndGet(drift);
+            if (drift > 0) {
+                log.warn("Inspection statistics drifted by {} and were corrected", drift);
+            }
+        }
+        lastReconciledAt = Instant.now();
+    }
+}
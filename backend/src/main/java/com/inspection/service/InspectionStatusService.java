@@ -0,0 +1,108 @@
+package com.inspection.service;
+
+import com.inspection.dto.BulkStatusReport;
+import com.inspection.dto.BulkStatusReport.Item;
+import com.inspection.dto.BulkStatusReport.Outcome;
+import com.inspection.dto.InspectionEvent;
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.InspectionStatusRow;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Inspection life cycle: PLANNED, then IN_PROGRESS, then COMPLETED. Staying in the same
+ * status is allowed as a no-op; skipping or going back is not.
+ */
+@Service
+public class InspectionStatusService {
+    
+    private static final Map<InspectionStatus, InspectionStatus> NEXT = new EnumMap<>(Map.of(
+            InspectionStatus.PLANNED, InspectionStatus.IN_PROGRESS,
+            InspectionStatus.IN_PROGRESS, InspectionStatus.COMPLETED));
+    
+    private final InspectionRepository inspectionRepository;
+    private final InspectionStatisticsService statisticsService;
+    private final ComplianceRollupService rollupService;
+    private final InspectionEventHub eventHub;
+    private final ChangeSequence changeSequence;
+    
+    public InspectionStatusService(InspectionRepository inspectionRepository,
+                                   InspectionStatisticsService statisticsService,
+                                   ComplianceRollupService rollupService,
+                                   InspectionEventHub eventHub,
+                                   ChangeSequence changeSequence) {
+        this.inspectionRepository = inspectionRepository;
+        this.statisticsService = statisticsService;
+        this.rollupService = rollupService;
+        this.eventHub = eventHub;
+        this.changeSequence = changeSequence;
+    }
+    
+    public boolean canTransition(InspectionStatus from, InspectionStatus to) {
+        return from == to || NEXT.get(from) == to;
+    }
+    
+    /**
+     * Applies one transition to many inspections. Every target status has exactly one legal
+     * predecessor, so all eligible rows are moved by a single UPDATE guarded on that predecessor.
+     */
+    @Transactional
+    public BulkStatusReport transition(Collection<Long> ids, InspectionStatus target) {
+        Collection<Long> requested = new LinkedHashSet<>(ids);
+        Map<Long, InspectionStatusRow> rows = inspectionRepository.findStatusRows(requested).stream()
+                .collect(Collectors.toMap(InspectionStatusRow::getId, Function.identity()));
+        Optional<InspectionStatus> source = predecessorOf(target);
+        
+        List<Item> results = new ArrayList<>(requested.size());
+        List<Long> eligible = new ArrayList<>();
+        Map<ComplianceRollupService.Key, Long> countsByKey = new HashMap<>();
+        for (Long id : requested) {
+            InspectionStatusRow row = rows.get(id);
+            if (row == null) {
+                results.add(new Item(id, Outcome.NOT_FOUND, null));
+            } else if (row.getStatus() == target) {
+                results.add(new Item(id, Outcome.UNCHANGED, row.getStatus()));
+            } else if (source.isPresent() && row.getStatus() == source.get()) {
+                results.add(new Item(id, Outcome.UPDATED, row.getStatus()));
+                eligible.add(id);
+                countsByKey.merge(ComplianceRollupService.Key.of(row.getFacilityName(), row.getInspectionDate(),
+                        row.getInspectorId()), 1L, Long::sum);
+            } else {
+                results.add(new Item(id, Outcome.ILLEGAL_TRANSITION, row.getStatus()));
+            }
+        }
+        
+        if (!eligible.isEmpty()) {
+            // A smaller count means another request changed some of these rows since they were read
+            int updated = inspectionRepository.transitionStatus(eligible, source.get(), target, changeSequence.current());
+            if (updated != eligible.size()) {
+                throw new ObjectOptimisticLockingFailureException(Inspection.class, eligible);
+            }
+            statisticsService.recordStatusChange(source.get(), target, updated);
+            rollupService.inspectionsStatusChanged(countsByKey, source.get(), target);
+            eventHub.publish(InspectionEvent.statusesChanged(List.copyOf(eligible), target, source.get()));
+        }
+        return new BulkStatusReport(target, eligible.size(), results);
+    }
+    
+    private static Optional<InspectionStatus> predecessorOf(InspectionStatus target) {
+        return NEXT.entrySet().stream()
+                .filter(entry -> entry.getValue() == target)
+                .map(Map.Entry::getKey)
+                .findFirst();
+    }
+}
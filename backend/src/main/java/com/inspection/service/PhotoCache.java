@@ -0,0 +1,126 @@
+package com.inspection.service;
+
+import com.inspection.storage.PhotoStorage.StoredObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Least-recently-used cache of photo bytes, bounded by their total size rather than their
+ * number. Photos larger than the entry limit are never cached, so a few big originals cannot
+ * push out the many small reference images and thumbnails that are viewed most. Stored photos
+ * never change under their key, so entries only leave by eviction or deletion.
+ *
+ * <p>Object metadata is cached next to the bytes, so resolving a photo and looking for its
+ * variants does not ask the storage every time, which is a request per lookup with object
+ * storage. Entries expire, since another instance may store or delete the object: misses
+ * after a short while, hits after a longer one. Reads that find an object gone invalidate it.
+ */
+@Component
+public class PhotoCache {
+    
+    /**
+     * Reads the metadata of an object from the storage.
+     */
+    @FunctionalInterface
+    public interface MetadataLoader {
+        Optional<StoredObject> stat(String key) throws IOException;
+    }
+    
+    // A null object marks a known miss; either is valid until expiresAt
+    private record Metadata(StoredObject object, long expiresAt) {}
+    
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final int maxMetadataEntries;
+    private final long metadataTtlNanos;
+    private final long missingTtlNanos;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Metadata> metadata = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long invalidations;
+    
+    public PhotoCache(@Value("${inspection.photos.cache.max-bytes:67108864}") long maxBytes,
+                      @Value("${inspection.photos.cache.max-entry-bytes:2097152}") long maxEntryBytes,
+                      @Value("${inspection.photos.cache.max-metadata-entries:10000}") int maxMetadataEntries,
+                      @Value("${inspection.photos.cache.metadata-ttl-ms:60000}") long metadataTtlMs,
+                      @Value("${inspection.photos.cache.missing-ttl-ms:5000}") long missingTtlMs) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.maxMetadataEntries = maxMetadataEntries;
+        this.metadataTtlNanos = TimeUnit.MILLISECONDS.toNanos(metadataTtlMs);
+        this.missingTtlNanos = TimeUnit.MILLISECONDS.toNanos(missingTtlMs);
+    }
+    
+    public boolean admits(long size) {
+        return size <= maxEntryBytes;
+    }
+    
+    public synchronized byte[] get(String key) {
+        return entries.get(key);
+    }
+    
+    public synchronized void put(String key, byte[] content) {
+        if (!admits(content.length)) {
+            return;
+        }
+        byte[] previous = entries.put(key, content);
+        bytes += content.length - (previous != null ? previous.length : 0);
+        Iterator<Map.Entry<String, byte[]>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, byte[]> entry = eldest.next();
+            bytes -= entry.getValue().length;
+            eldest.remove();
+        }
+    }
+    
+    /**
+     * Metadata of an object, loaded on a miss. A load that overlaps an invalidation is not
+     * cached, since it may have read the object from before the change.
+     */
+    public Optional<StoredObject> stat(String key, MetadataLoader loader) throws IOException {
+        long seen;
+        synchronized (this) {
+            Metadata cached = metadata.get(key);
+            if (cached != null && System.nanoTime() - cached.expiresAt() < 0) {
+                return Optional.ofNullable(cached.object());
+            }
+            seen = invalidations;
+        }
+        Optional<StoredObject> loaded = loader.stat(key);
+        synchronized (this) {
+            if (invalidations == seen) {
+                long ttl = loaded.isPresent() ? metadataTtlNanos : missingTtlNanos;
+                metadata.put(key, new Metadata(loaded.orElse(null), System.nanoTime() + ttl));
+                Iterator<String> eldest = metadata.keySet().iterator();
+                while (metadata.size() > maxMetadataEntries && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return loaded;
+    }
+    
+    /**
+     * Forgets the bytes and metadata of an object, after it was written, touched or deleted.
+     */
+    public synchronized void invalidate(String key) {
+        invalidations++;
+        metadata.remove(key);
+        byte[] removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.length;
+        }
+    }
+    
+    public synchronized long size() {
+        return bytes;
+    }
+}
@@ -0,0 +1,356 @@
+package com.inspection.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.PhotoCollectionReport;
+import com.inspection.storage.PhotoStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Removes photos nothing refers to any more. Each run marks every photo named in a result, a
+ * result's history, a checklist item or a published checklist version, then walks the photo
+ * store and the not yet migrated uploads in name order and deletes what is unmarked and older
+ * than the grace period, so photos uploaded but not yet saved with a result are kept.
+ *
+ * <p>Marks are 64-bit fingerprints of the photo's name without extension in a sorted array,
+ * a few bytes per reference however long the URLs are. Variants count as their original.
+ * Deletes are paced and a run stops at its time budget; the position is kept in a file, so
+ * the next run, also after a restart, continues from there.
+ */
+@Service
+public class PhotoCollector {
+    
+    private static final Logger log = LoggerFactory.getLogger(PhotoCollector.class);
+    private static final Pattern VARIANT_SUFFIX = Pattern.compile("_w\\d+$");
+    private static final String STORED = "stored:";
+    private static final String LEGACY = "legacy:";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PhotoStore photoStore;
+    private final Duration gracePeriod;
+    private final int pageSize;
+    private final int deletesPerSecond;
+    private final Duration maxRunTime;
+    private final Path cursorFile;
+    
+    public PhotoCollector(JdbcTemplate jdbcTemplate,
+                          ObjectMapper objectMapper,
+                          PhotoStore photoStore,
+                          @Value("${inspection.photos.gc.grace-period-ms:86400000}") long gracePeriodMs,
+                          @Value("${inspection.photos.gc.page-size:1000}") int pageSize,
+                          @Value("${inspection.photos.gc.deletes-per-second:50}") int deletesPerSecond,
+                          @Value("${inspection.photos.gc.max-run-ms:300000}") long maxRunMs,
+                          @Value("${inspection.photos.gc.cursor-file:data/photo-gc.cursor}") String cursorFile) {
+        // A separate template, so the mark queries stream their rows instead of loading them at once
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(1000);
+        this.objectMapper = objectMapper;
+        this.photoStore = photoStore;
+        this.gracePeriod = Duration.ofMillis(gracePeriodMs);
+        this.pageSize = pageSize;
+        this.deletesPerSecond = deletesPerSecond;
+        this.maxRunTime = Duration.ofMillis(maxRunMs);
+        this.cursorFile = Paths.get(cursorFile);
+    }
+    
+    @Scheduled(fixedDelayString = "${inspection.photos.gc.interval-ms:21600000}",
+               initialDelayString = "${inspection.photos.gc.initial-delay-ms:600000}")
+    public PhotoCollectionReport collect() {
+        return collect(gracePeriod);
+    }
+    
+    /**
+     * Runs the collector with the given grace period. Returns what was removed; if marking or
+     * listing fails nothing more is deleted and the report is not finished.
+     */
+    public synchronized PhotoCollectionReport collect(Duration gracePeriod) {
+        Sweep sweep = new Sweep(Instant.now().minus(gracePeriod));
+        try {
+            sweep.referenced = mark();
+            sweep.run();
+        } catch (IOException | DataAccessException | IllegalStateException e) {
+            log.warn("Collecting orphaned photos failed", e);
+        }
+        PhotoCollectionReport report = sweep.report();
+        if (report.deleted() > 0 || !report.finished()) {
+            log.info("Photo collector scanned {} photos, deleted {} and reclaimed {} bytes{}", report.scanned(),
+                    report.deleted(), report.reclaimedBytes(), report.finished() ? "" : ", continuing next run");
+        }
+        return report;
+    }
+    
+    // Photos of deleted results stay in the history, so they are kept as well
+    private Fingerprints mark() {
+        Fingerprints referenced = new Fingerprints();
+        RowCallbackHandler url = rs -> referenced.add(fingerprint(stem(nameOf(rs.getString(1)))));
+        jdbcTemplate.query("select photo_url from results where photo_url is not null", url);
+        jdbcTemplate.query("select photo_url from result_events where photo_url is not null", url);
+        jdbcTemplate.query("select desired_photo_url from checklist_items where desired_photo_url is not null", url);
+        jdbcTemplate.query("select id, items from checklist_versions", (RowCallbackHandler) rs -> {
+            try {
+                for (JsonNode item : objectMapper.readTree(rs.getString(2))) {
+                    String photoUrl = item.path("desiredPhotoUrl").asText(null);
+                    if (photoUrl != null) {
+                        referenced.add(fingerprint(stem(nameOf(photoUrl))));
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                // Its photos cannot be told, so none may be deleted
+                throw new IllegalStateException("Unreadable items of checklist version " + rs.getLong(1), e);
+            }
+        });
+        referenced.seal();
+        
+        // URLs saved before the photo store name the old file; the photo now lives under its stored name
+        Fingerprints moved = new Fingerprints();
+        jdbcTemplate.query("select legacy_name, stored_name from photo_aliases", (RowCallbackHandler) rs -> {
+            if (referenced.contains(fingerprint(stem(rs.getString(1))))) {
+                moved.add(fingerprint(stem(rs.getString(2))));
+            }
+        });
+        referenced.addAll(moved);
+        referenced.seal();
+        return referenced;
+    }
+    
+    private String readCursor() throws IOException {
+        try {
+            return Files.readString(cursorFile, StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return "";
+        }
+    }
+    
+    private void writeCursor(String cursor) throws IOException {
+        Path parent = cursorFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "photo-gc-", ".tmp");
+        Files.writeString(temp, cursor, StandardCharsets.UTF_8);
+        Files.move(temp, cursorFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    // The key to continue after, or null to start at the beginning of the phase
+    private static String position(String cursor, String phase) {
+        return cursor.startsWith(phase) && cursor.length() > phase.length() ? cursor.substring(phase.length()) : null;
+    }
+    
+    // The file name in a photo URL, without query or fragment
+    static String nameOf(String url) {
+        int end = url.length();
+        for (char separator : new char[] {'?', '#'}) {
+            int index = url.indexOf(separator);
+            if (index >= 0 && index < end) {
+                end = index;
+            }
+        }
+        return url.substring(url.lastIndexOf('/', end - 1) + 1, end);
+    }
+    
+    // The name without extension and variant suffix, shared by a photo and its variants
+    static String stem(String name) {
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        return VARIANT_SUFFIX.matcher(stem).replaceFirst("");
+    }
+    
+    private static boolean isVariant(String name) {
+        int dot = name.lastIndexOf('.');
+        return VARIANT_SUFFIX.matcher(dot > 0 ? name.substring(0, dot) : name).find();
+    }
+    
+    static long fingerprint(String stem) {
+        return ByteBuffer.wrap(PhotoStore.sha256().digest(stem.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+    
+    private interface Lookup {
+        Optional<PhotoStorage.StoredObject> stat(String key) throws IOException;
+    }
+    
+    private interface Deleter {
+        boolean delete(String key) throws IOException;
+    }
+    
+    /**
+     * One run over the store: the sweep position, pacing and counts.
+     */
+    private final class Sweep {
+        
+        private final long cutoff;
+        private final long deadline = System.nanoTime() + maxRunTime.toNanos();
+        private final long deleteInterval = deletesPerSecond > 0 ? 1_000_000_000L / deletesPerSecond : 0;
+        private long nextDelete = System.nanoTime();
+        private Fingerprints referenced;
+        private int scanned;
+        private int deleted;
+        private long reclaimedBytes;
+        private boolean finished;
+        
+        Sweep(Instant cutoff) {
+            this.cutoff = cutoff.toEpochMilli();
+        }
+        
+        void run() throws IOException {
+            String cursor = readCursor();
+            if (!cursor.startsWith(LEGACY)) {
+                String after = position(cursor, STORED);
+                List<PhotoStorage.StoredObject> page;
+                do {
+                    page = photoStore.listStored(after, pageSize);
+                    for (PhotoStorage.StoredObject object : page) {
+                        if (!visit(object, false, photoStore::statStored, photoStore::deleteStored)) {
+                            writeCursor(STORED + (after != null ? after : ""));
+                            return;
+                        }
+                        after = object.key();
+                    }
+                    if (after != null) {
+                        writeCursor(STORED + after);
+                    }
+                } while (page.size() == pageSize);
+                cursor = "";
+            }
+            
+            // Variants left behind by originals that were moved into the store are not needed any more
+            List<PhotoStorage.StoredObject> legacy = photoStore.listLegacy();
+            Set<String> originals = new HashSet<>();
+            for (PhotoStorage.StoredObject object : legacy) {
+                if (!isVariant(object.key())) {
+                    originals.add(stem(object.key()));
+                }
+            }
+            String after = position(cursor, LEGACY);
+            for (PhotoStorage.StoredObject object : legacy) {
+                if (after != null && object.key().compareTo(after) <= 0) {
+                    continue;
+                }
+                boolean detached = isVariant(object.key()) && !originals.contains(stem(object.key()));
+                if (!visit(object, detached, photoStore::statLegacy, photoStore::deleteLegacy)) {
+                    writeCursor(LEGACY + (after != null ? after : ""));
+                    return;
+                }
+                after = object.key();
+            }
+            
+            reclaimedBytes += photoStore.removeStaleTempFiles(Instant.ofEpochMilli(cutoff));
+            Files.deleteIfExists(cursorFile);
+            finished = true;
+        }
+        
+        // False once the run is out of time; the object is then left for the next run
+        private boolean visit(PhotoStorage.StoredObject object, boolean detached, Lookup lookup, Deleter deleter) {
+            if (System.nanoTime() - deadline > 0 || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            scanned++;
+            String name = object.key().substring(object.key().lastIndexOf('/') + 1);
+            if (object.lastModified() > cutoff || (!detached && referenced.contains(fingerprint(stem(name))))) {
+                return true;
+            }
+            if (!pace()) {
+                return false;
+            }
+            try {
+                // The listing may be minutes old by now; an upload of the same content touches the photo
+                Optional<PhotoStorage.StoredObject> current = lookup.stat(object.key());
+                if (current.isEmpty() || current.get().lastModified() > cutoff) {
+                    return true;
+                }
+                if (deleter.delete(object.key())) {
+                    deleted++;
+                    reclaimedBytes += current.get().size();
+                }
+            } catch (IOException e) {
+                log.warn("Could not delete orphaned photo {}", object.key(), e);
+            }
+            return true;
+        }
+        
+        private boolean pace() {
+            long wait = nextDelete - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            nextDelete = Math.max(nextDelete, System.nanoTime()) + deleteInterval;
+            return true;
+        }
+        
+        PhotoCollectionReport report() {
+            return new PhotoCollectionReport(referenced != null ? referenced.size() : 0,
+                    scanned, deleted, reclaimedBytes, finished);
+        }
+    }
+    
+    /**
+     * A set of fingerprints as a sorted array; adding is only allowed before {@link #seal()}
+     * or between seals, lookups after.
+     */
+    private static final class Fingerprints {
+        
+        private long[] values = new long[1024];
+        private int size;
+        
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        void addAll(Fingerprints other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+        
+        // Sorts and drops duplicates
+        void seal() {
+            Arrays.sort(values, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || values[i] != values[distinct - 1]) {
+                    values[distinct++] = values[i];
+                }
+            }
+            size = distinct;
+        }
+        
+        boolean contains(long value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+        
+        int size() {
+            return size;
+        }
+    }
+}
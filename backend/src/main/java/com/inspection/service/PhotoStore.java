@@ -0,0 +1,375 @@
+package com.inspection.service;
+
+import com.inspection.model.PhotoAlias;
+import com.inspection.repository.PhotoAliasRepository;
+import com.inspection.storage.LocalPhotoStorage;
+import com.inspection.storage.PhotoStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed photo storage. Uploads are hashed while they are streamed to a temporary
+ * file and stored once per content under the key {@code <ab>/<cd>/<sha256>.<ext>} of the
+ * configured {@link PhotoStorage}, so identical photos share one object and no directory
+ * grows beyond a few thousand entries. The stored name is also the name in the photo's URL.
+ *
+ * <p>Photos uploaded before were stored flat as {@code <legacy-dir>/<uuid>.<ext>}. They are moved
+ * into the store in the background and their old names kept as aliases, so URLs saved with
+ * results and checklist items keep resolving. Downscaled variants of moved photos are left
+ * behind for the orphan collector; they are made again next to the stored photo on request.
+ * Uploads are staged in {@code tmp} below the same directory.
+ *
+ * <p>Reads of small photos and all metadata lookups go through the {@link PhotoCache}.
+ */
+@Service
+public class PhotoStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoStore.class);
+    private static final Pattern STORED_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,10}");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+    private static final Pattern VARIANT_NAME = Pattern.compile(".+_w\\d+\\.(png|jpg)");
+
+    private final Path root;
+    private final Path temp;
+    private final PhotoStorage storage;
+    private final PhotoStorage legacyStorage;
+    private final PhotoCache cache;
+    private final PhotoAliasRepository aliasRepository;
+    private final int migrationBatchSize;
+    private final ConcurrentMap<String, String> aliases = new ConcurrentHashMap<>();
+
+    public PhotoStore(PhotoStorage storage,
+                      PhotoCache cache,
+                      PhotoAliasRepository aliasRepository,
+                      @Value("${inspection.photos.legacy-dir:uploads}") String legacyDir,
+                      @Value("${inspection.photos.migration-batch-size:500}") int migrationBatchSize) {
+        this.root = Paths.get(legacyDir).normalize();
+        this.temp = root.resolve("tmp");
+        this.storage = storage;
+        this.legacyStorage = new LocalPhotoStorage(root);
+        this.cache = cache;
+        this.aliasRepository = aliasRepository;
+        this.migrationBatchSize = migrationBatchSize;
+        try {
+            Files.createDirectories(temp);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create upload directory", e);
+        }
+    }
+
+    /**
+     * Stores a photo and returns its name. The extension of the original file name is kept so
+     * the content type can be told from the name; content that is already stored under the
+     * same name is not written again.
+     */
+    public String store(InputStream content, String originalFilename) throws IOException {
+        MessageDigest digest = sha256();
+        Path upload = createTempFile("upload-");
+        try {
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(upload), digest)) {
+                content.transferTo(out);
+            }
+            return adopt(upload, HexFormat.of().formatHex(digest.digest()), originalFilename);
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    /**
+     * Moves a file whose SHA-256 is already known into the store and returns its name. The
+     * file is gone afterwards, also when the same content was stored before.
+     */
+    public String adopt(Path file, String sha256, String originalFilename) throws IOException {
+        String name = sha256.toLowerCase(Locale.ROOT) + "." + extension(originalFilename);
+        String key = key(name);
+        if (storage.stat(key).isPresent()) {
+            try {
+                // Counts as new again, so the orphan collector cannot remove it before it is referenced
+                storage.touch(key);
+                Files.delete(file);
+            } catch (NoSuchFileException e) {
+                // Collected between the lookup and the touch
+                storage.put(key, file);
+            }
+        } else {
+            // Concurrent uploads of the same content replace each other with identical bytes
+            storage.put(key, file);
+        }
+        cache.invalidate(key);
+        return name;
+    }
+
+    /**
+     * A photo by the name in its URL: a stored name, a not yet migrated upload or the alias of
+     * a migrated one. Empty if there is no such photo.
+     */
+    public Optional<StoredPhoto> resolve(String name) throws IOException {
+        if (STORED_NAME.matcher(name).matches()) {
+            return stat(name, key(name), false);
+        }
+        String stored = aliases.get(name);
+        if (stored == null) {
+            Optional<StoredPhoto> legacy = legacy(name);
+            if (legacy.isPresent()) {
+                return legacy;
+            }
+            stored = aliasRepository.findById(name).map(PhotoAlias::getStoredName).orElse(null);
+            if (stored == null) {
+                return Optional.empty();
+            }
+            aliases.put(name, stored);
+        }
+        return stat(stored, key(stored), false);
+    }
+
+    /**
+     * A file stored next to a photo, such as a downscaled variant.
+     */
+    public Optional<StoredPhoto> sibling(StoredPhoto photo, String name) throws IOException {
+        return stat(name, siblingKey(photo, name), photo.legacy());
+    }
+
+    /**
+     * Stores a local file next to a photo; the file is consumed.
+     */
+    public StoredPhoto putSibling(StoredPhoto photo, String name, Path file) throws IOException {
+        String key = siblingKey(photo, name);
+        storageOf(photo).put(key, file);
+        cache.invalidate(key);
+        return stat(name, key, photo.legacy())
+                .orElseThrow(() -> new IOException("Stored photo " + key + " is missing"));
+    }
+
+    /**
+     * The photo's file when it is kept on the local disk.
+     */
+    public Optional<Path> localPath(StoredPhoto photo) {
+        return storageOf(photo).localPath(photo.key());
+    }
+
+    /**
+     * Reads part of a photo for serving. Photos small enough for the cache are read whole
+     * once and then served from memory.
+     */
+    public InputStream open(StoredPhoto photo, long offset, long length) throws IOException {
+        if (!cache.admits(photo.size())) {
+            return openOrForget(photo, offset, length);
+        }
+        byte[] content = cache.get(photo.key());
+        if (content == null) {
+            try (InputStream in = openOrForget(photo, 0, photo.size())) {
+                content = in.readAllBytes();
+            }
+            cache.put(photo.key(), content);
+        }
+        int from = (int) Math.min(offset, content.length);
+        return new ByteArrayInputStream(content, from, (int) Math.min(length, content.length - from));
+    }
+
+    /**
+     * Reads a whole photo past the cache, for one-off reads such as making thumbnails.
+     */
+    public InputStream openUncached(StoredPhoto photo) throws IOException {
+        return openOrForget(photo, 0, photo.size());
+    }
+
+    /**
+     * Forgets the cached metadata of a photo found to be gone, for example deleted by another
+     * instance, so the next lookup does not find it either.
+     */
+    public void forget(StoredPhoto photo) {
+        cache.invalidate(photo.key());
+    }
+
+    /**
+     * A new empty file for staging photos, on the same disk as the upload directory.
+     */
+    public Path createTempFile(String prefix) throws IOException {
+        return Files.createTempFile(temp, prefix, ".tmp");
+    }
+
+    /**
+     * Stored photos and variants in key order after the given key, for the orphan collector.
+     */
+    public List<PhotoStorage.StoredObject> listStored(String startAfter, int limit) throws IOException {
+        return storage.list(startAfter, limit);
+    }
+
+    /**
+     * Current metadata of a stored photo, past the cache, for the orphan collector's last
+     * check before it deletes.
+     */
+    public Optional<PhotoStorage.StoredObject> statStored(String key) throws IOException {
+        return storage.stat(key);
+    }
+
+    public boolean deleteStored(String key) throws IOException {
+        cache.invalidate(key);
+        return storage.delete(key);
+    }
+
+    /**
+     * Flat uploads from before content addressing and their variants, in name order.
+     */
+    public List<PhotoStorage.StoredObject> listLegacy() throws IOException {
+        List<PhotoStorage.StoredObject> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root, PhotoStore::isLegacyFile)) {
+            for (Path entry : entries) {
+                legacyStorage.stat(entry.getFileName().toString()).ifPresent(files::add);
+            }
+        }
+        files.sort(Comparator.comparing(PhotoStorage.StoredObject::key));
+        return files;
+    }
+
+    public Optional<PhotoStorage.StoredObject> statLegacy(String name) throws IOException {
+        return legacyStorage.stat(name);
+    }
+
+    public boolean deleteLegacy(String name) throws IOException {
+        cache.invalidate(name);
+        return legacyStorage.delete(name);
+    }
+
+    /**
+     * Removes staging files of interrupted uploads last written before the cutoff. Returns
+     * the number of bytes freed.
+     */
+    public long removeStaleTempFiles(Instant cutoff) throws IOException {
+        long freed = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(temp, "*.tmp")) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                if (attributes.lastModifiedTime().toInstant().isBefore(cutoff) && Files.deleteIfExists(entry)) {
+                    freed += attributes.size();
+                }
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Moves a batch of flat uploads into the store. Returns the number moved; a file is only
+     * deleted once its alias is saved, so an interrupted run is simply picked up again.
+     */
+    @Scheduled(fixedDelayString = "${inspection.photos.migration-interval-ms:600000}",
+               initialDelayString = "${inspection.photos.migration-initial-delay-ms:30000}")
+    public synchronized int migrateLegacy() {
+        List<Path> batch = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, PhotoStore::isLegacyUpload)) {
+            for (Path file : files) {
+                if (batch.size() >= migrationBatchSize) {
+                    break;
+                }
+                batch.add(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not list the upload directory", e);
+            return 0;
+        }
+
+        int migrated = 0;
+        for (Path file : batch) {
+            String legacyName = file.getFileName().toString();
+            try {
+                String stored;
+                try (InputStream in = Files.newInputStream(file)) {
+                    stored = store(in, legacyName);
+                }
+                aliasRepository.save(new PhotoAlias(legacyName, stored));
+                aliases.put(legacyName, stored);
+                Files.delete(file);
+                cache.invalidate(legacyName);
+                migrated++;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not move upload {} into the photo store", legacyName, e);
+            }
+        }
+        if (migrated > 0) {
+            log.info("Moved {} uploads into the photo store", migrated);
+        }
+        return migrated;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private InputStream openOrForget(StoredPhoto photo, long offset, long length) throws IOException {
+        try {
+            return storageOf(photo).open(photo.key(), offset, length);
+        } catch (NoSuchFileException e) {
+            forget(photo);
+            throw e;
+        }
+    }
+
+    private Optional<StoredPhoto> stat(String name, String key, boolean legacy) throws IOException {
+        return cache.stat(key, legacy ? legacyStorage::stat : storage::stat)
+                .map(object -> new StoredPhoto(name, key, object.size(), object.lastModified(), legacy));
+    }
+
+    // Only plain file names directly inside the upload directory
+    private Optional<StoredPhoto> legacy(String name) throws IOException {
+        Path path = root.resolve(name).normalize();
+        return root.equals(path.getParent()) ? stat(name, name, true) : Optional.empty();
+    }
+
+    private PhotoStorage storageOf(StoredPhoto photo) {
+        return photo.legacy() ? legacyStorage : storage;
+    }
+
+    private static String key(String name) {
+        return name.substring(0, 2) + "/" + name.substring(2, 4) + "/" + name;
+    }
+
+    private static String siblingKey(StoredPhoto photo, String name) {
+        int slash = photo.key().lastIndexOf('/');
+        return slash >= 0 ? photo.key().substring(0, slash + 1) + name : name;
+    }
+
+    private static boolean isLegacyUpload(Path path) {
+        return isLegacyFile(path) && !VARIANT_NAME.matcher(path.getFileName().toString()).matches();
+    }
+
+    private static boolean isLegacyFile(Path path) {
+        return Files.isRegularFile(path) && !path.getFileName().toString().endsWith(".tmp");
+    }
+
+    private static String extension(String filename) {
+        int dot = filename != null ? filename.lastIndexOf('.') : -1;
+        String extension = dot >= 0 ? filename.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return EXTENSION.matcher(extension).matches() ? extension : "jpg";
+    }
+}
@@ -0,0 +1,178 @@
+package com.inspection.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.ResultChange;
+import com.inspection.dto.ResultState;
+import com.inspection.model.ResultEvent;
+import com.inspection.model.ResultEventType;
+import com.inspection.model.ResultSnapshot;
+import com.inspection.repository.ResultEventRepository;
+import com.inspection.repository.ResultSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Reads the result event log. The state of an inspection's results at any time is rebuilt
+ * from the latest snapshot before that time plus the events after the snapshot.
+ *
+ * <p>Snapshots are taken in the background for inspections that have collected enough events
+ * since their last one, and only up to {@link ChangeSequence#watermark()}, so no event that
+ * is still being written can end up behind a snapshot.
+ */
+@Service
+public class ResultHistoryService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ResultHistoryService.class);
+    private static final TypeReference<List<ResultState>> STATES = new TypeReference<>() {};
+    
+    private final ResultEventRepository eventRepository;
+    private final ResultSnapshotRepository snapshotRepository;
+    private final ChangeSequence changeSequence;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int snapshotEvery;
+    private long scannedUpTo;
+    
+    public ResultHistoryService(ResultEventRepository eventRepository,
+                                ResultSnapshotRepository snapshotRepository,
+                                ChangeSequence changeSequence,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${inspection.results.history.snapshot-every:200}") int snapshotEvery) {
+        this.eventRepository = eventRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.changeSequence = changeSequence;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotEvery = snapshotEvery;
+    }
+    
+    /**
+     * Every change of a result, oldest first.
+     */
+    public List<ResultChange> history(Long resultId) {
+        return eventRepository.findByResultIdOrderByChangeSeqAscIdAsc(resultId).stream()
+                .map(ResultChange::from)
+                .toList();
+    }
+    
+    /**
+     * The results of an inspection as they were at the given time, ordered by result id.
+     */
+    @Transactional(readOnly = true)
+    public List<ResultState> asOf(Long inspectionId, Instant at) {
+        long until = at.toEpochMilli();
+        Map<Long, ResultState> states = new TreeMap<>();
+        long after = 0;
+        Optional<ResultSnapshot> snapshot = snapshotRepository
+                .findFirstByInspectionIdAndCoveredUntilLessThanEqualOrderByChangeSeqDesc(inspectionId, until);
+        if (snapshot.isPresent()) {
+            read(snapshot.get().getPayload()).forEach(state -> states.put(state.resultId(), state));
+            after = snapshot.get().getChangeSeq();
+        }
+        for (ResultEvent event : eventRepository.findForReplay(inspectionId, after, until)) {
+            apply(states, event);
+        }
+        return new ArrayList<>(states.values());
+    }
+    
+    /**
+     * Snapshots the inspections with at least the configured number of events since their last
+     * snapshot. Only inspections with events since the previous run are looked at.
+     */
+    @Scheduled(fixedDelayString = "${inspection.results.history.snapshot-interval-ms:60000}",
+               initialDelayString = "${inspection.results.history.snapshot-interval-ms:60000}")
+    public synchronized void snapshotDue() {
+        long upTo = changeSequence.watermark();
+        if (upTo <= scannedUpTo) {
+            return;
+        }
+        for (Long inspectionId : eventRepository.findInspectionIdsChangedBetween(scannedUpTo, upTo)) {
+            long after = snapshotRepository.findFirstByInspectionIdOrderByChangeSeqDesc(inspectionId)
+                    .map(ResultSnapshot::getChangeSeq)
+                    .orElse(0L);
+            if (eventRepository.countBetween(inspectionId, after, upTo) < snapshotEvery) {
+                continue;
+            }
+            try {
+                snapshot(inspectionId, upTo);
+            } catch (RuntimeException e) {
+                log.warn("Snapshotting the results of inspection {} failed", inspectionId, e);
+            }
+        }
+        scannedUpTo = upTo;
+    }
+    
+    /**
+     * Snapshots the inspection's results up to every finished write. Returns false if there
+     * was nothing new to cover.
+     */
+    public boolean snapshot(Long inspectionId) {
+        return snapshot(inspectionId, changeSequence.watermark());
+    }
+    
+    private boolean snapshot(Long inspectionId, long upTo) {
+        Boolean taken = transactionTemplate.execute(status -> {
+            Map<Long, ResultState> states = new TreeMap<>();
+            long after = 0;
+            long coveredUntil = 0;
+            Optional<ResultSnapshot> previous = snapshotRepository.findFirstByInspectionIdOrderByChangeSeqDesc(inspectionId);
+            if (previous.isPresent()) {
+                read(previous.get().getPayload()).forEach(state -> states.put(state.resultId(), state));
+                after = previous.get().getChangeSeq();
+                coveredUntil = previous.get().getCoveredUntil();
+            }
+            
+            List<ResultEvent> events = eventRepository.findBetween(inspectionId, after, upTo);
+            if (events.isEmpty()) {
+                return false;
+            }
+            for (ResultEvent event : events) {
+                apply(states, event);
+                coveredUntil = Math.max(coveredUntil, event.getRecordedAt());
+            }
+            snapshotRepository.save(new ResultSnapshot(inspectionId, upTo, coveredUntil, write(states.values())));
+            return true;
+        });
+        return Boolean.TRUE.equals(taken);
+    }
+    
+    private static void apply(Map<Long, ResultState> states, ResultEvent event) {
+        if (event.getType() == ResultEventType.DELETED) {
+            states.remove(event.getResultId());
+        } else {
+            states.put(event.getResultId(), ResultState.from(event));
+        }
+    }
+    
+    private List<ResultState> read(String payload) {
+        try {
+            return objectMapper.readValue(payload, STATES);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable result snapshot", e);
+        }
+    }
+    
+    private String write(Iterable<ResultState> states) {
+        try {
+            return objectMapper.writeValueAsString(states);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize result snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.inspection.service;
+
+import com.inspection.dto.ChecklistSnapshot;
+import com.inspection.dto.InspectionEvent;
+import com.inspection.dto.ResultUpsert;
+import com.inspection.model.ChecklistItem;
+import com.inspection.model.Inspection;
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+import com.inspection.repository.ChecklistItemRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Saves many answers of one inspection at once. Existing results are matched by checklist
+ * item and updated in place, the rest are inserted. All writes are flushed together so
+ * Hibernate sends them as JDBC batches within a single transaction.
+ */
+@Service
+public class ResultUpsertService {
+    
+    private final ResultRepository resultRepository;
+    private final ChecklistItemRepository checklistItemRepository;
+    private final InspectionRepository inspectionRepository;
+    private final ComplianceRollupService rollupService;
+    private final SearchService searchService;
+    private final InspectionEventHub eventHub;
+    private final ResultWriteBuffer writeBuffer;
+    private final ChecklistVersionService versionService;
+    
+    public ResultUpsertService(ResultRepository resultRepository,
+                               ChecklistItemRepository checklistItemRepository,
+                               InspectionRepository inspectionRepository,
+                               ComplianceRollupService rollupService,
+                               SearchService searchService,
+                               InspectionEventHub eventHub,
+                               ResultWriteBuffer writeBuffer,
+                               ChecklistVersionService versionService) {
+        this.resultRepository = resultRepository;
+        this.checklistItemRepository = checklistItemRepository;
+        this.inspectionRepository = inspectionRepository;
+        this.rollupService = rollupService;
+        this.searchService = searchService;
+        this.eventHub = eventHub;
+        this.writeBuffer = writeBuffer;
+        this.versionService = versionService;
+    }
+    
+    /**
+     * Loads the checklist items with the given ids that answers of the inspection may refer
+     * to, in one query. For a pinned inspection these are the items of its pinned version,
+     * including items deleted from the checklist since; otherwise the current items of its
+     * checklist. All other ids are left out.
+     */
+    public Map<Long, ChecklistItem> checklistItems(Inspection inspection, Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Map.of();
+        }
+        Optional<ChecklistSnapshot> pinned = versionService.pinned(inspection);
+        if (pinned.isPresent()) {
+            Set<Long> published = pinned.get().itemsById().keySet();
+            List<Long> ids = itemIds.stream().filter(published::contains).toList();
+            return ids.isEmpty() ? Map.of() : byId(checklistItemRepository.findByChecklistIdAndIdIn(pinned.get().checklistId(), ids));
+        }
+        if (inspection.getChecklist() == null) {
+            return Map.of();
+        }
+        return byId(checklistItemRepository.findByChecklistIdAndIdIn(inspection.getChecklist().getId(), itemIds).stream()
+                .filter(item -> !item.isDeleted())
+                .toList());
+    }
+    
+    /**
+     * Returns the checklist item ids referenced by the answers that are not among the items,
+     * see {@link #checklistItems}.
+     */
+    public static Set<Long> unknownChecklistItems(List<ResultUpsert> answers, Map<Long, ChecklistItem> items) {
+        return answers.stream()
+                .map(ResultUpsert::checklistItemId)
+                .filter(id -> !items.containsKey(id))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+    
+    /**
+     * Applies the answers and returns all results of the inspection ordered by id. The items
+     * are those of {@link #checklistItems}; every answer must refer to one of them.
+     */
+    @Transactional
+    public List<Result> upsert(Inspection inspection, List<ResultUpsert> answers, Map<Long, ChecklistItem> items) {
+        // Locks the inspection before its results are read, so overlapping batches cannot both
+        // miss an item and insert a result for it twice
+        inspectionRepository.touch(inspection);
+        
+        Map<Long, Result> byItem = new HashMap<>();
+        List<Result> all = new ArrayList<>();
+        for (Result result : resultRepository.findWithAssociationsByInspectionId(inspection.getId())) {
+            all.add(result);
+            if (result.getChecklistItem() != null) {
+                byItem.putIfAbsent(result.getChecklistItem().getId(), result);
+            }
+        }
+        
+        Map<ResultStatus, Long> statusChanges = new EnumMap<>(ResultStatus.class);
+        Map<Long, Result> changed = new LinkedHashMap<>();
+        List<Result> created = new ArrayList<>();
+        for (ResultUpsert answer : answers) {
+            Result result = byItem.get(answer.checklistItemId());
+            if (result == null) {
+                result = new Result(items.get(answer.checklistItemId()), null);
+                result.setInspection(inspection);
+                byItem.put(answer.checklistItemId(), result);
+                created.add(result);
+                all.add(result);
+            }
+            if (result.getStatus() != answer.status()) {
+                if (result.getStatus() != null) {
+                    statusChanges.merge(result.getStatus(), -1L, Long::sum);
+                }
+                if (answer.status() != null) {
+                    statusChanges.merge(answer.status(), 1L, Long::sum);
+                }
+            }
+            result.setStatus(answer.status());
+            result.setComment(answer.comment());
+            result.setPhotoUrl(answer.photoUrl());
+            changed.put(answer.checklistItemId(), result);
+        }
+        
+        // Updates of loaded results are picked up by dirty checking, one flush sends both as batches
+        resultRepository.saveAll(created);
+        resultRepository.flush();
+        
+        rollupService.resultsChanged(inspection, statusChanges);
+        changed.values().forEach(result -> {
+            writeBuffer.discard(result.getId());
+            searchService.resultSaved(result);
+        });
+        eventHub.publish(InspectionEvent.resultsSaved(inspection));
+        
+        all.sort(Comparator.comparing(Result::getId));
+        return all;
+    }
+    
+    private static Map<Long, ChecklistItem> byId(List<ChecklistItem> items) {
+        Map<Long, ChecklistItem> byId = new HashMap<>();
+        for (ChecklistItem item : items) {
+            byId.put(item.getId(), item);
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,355 @@
+package com.inspection.service;
+
+import com.inspection.dto.InspectionEvent;
+import com.inspection.dto.ResultView;
+import com.inspection.model.Inspection;
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.ResultVersionRow;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Write-behind buffer for result autosave. Edits are kept in memory keyed by result id, so
+ * a burst of edits to the same result (typing a comment) becomes a single update. Edits are
+ * written in batched transactions once they have been pending for the flush interval, right
+ * away when the buffer reaches its size threshold, and once more on shutdown. Reads overlay pending edits through {@link #overlay},
+ * including edits a flush is writing until its transaction has committed.
+ *
+ * Each edit carries the result version it was made against. A direct write that commits in
+ * between wins: the edit is dropped instead of overwriting it. Edits that fail for good are
+ * dropped as well; only transient failures are retried, a limited number of times.
+ *
+ * With write-behind disabled every autosave is written right away.
+ */
+@Service
+public class ResultWriteBuffer {
+    
+    private static final Logger log = LoggerFactory.getLogger(ResultWriteBuffer.class);
+    private static final int FLUSH_BATCH_SIZE = 200;
+    private static final int MAX_ATTEMPTS = 3;
+    
+    /**
+     * Outcome of {@link #save}; {@code error} describes why an edit was rejected as invalid.
+     */
+    public record SaveResult(Status status, String error) {
+        
+        public enum Status {
+            QUEUED, NOT_FOUND, INVALID
+        }
+    }
+    
+    /**
+     * The latest autosaved values of a result. The inspection id and base version are looked
+     * up with the first edit of a burst so reads can find pending edits of an inspection and
+     * writes can detect direct writes in between; the queue time is that of the first edit,
+     * so a result that keeps being edited is still written after one interval.
+     */
+    private record PendingEdit(Long inspectionId, long baseVersion, long queuedAt, int attempts,
+                               ResultStatus status, String comment, String photoUrl) {
+        
+        PendingEdit update(ResultStatus status, String comment, String photoUrl) {
+            return new PendingEdit(inspectionId, baseVersion, queuedAt, attempts, status, comment, photoUrl);
+        }
+        
+        PendingEdit retried() {
+            return new PendingEdit(inspectionId, baseVersion, queuedAt, attempts + 1, status, comment, photoUrl);
+        }
+    }
+    
+    private final ResultRepository resultRepository;
+    private final InspectionRepository inspectionRepository;
+    private final ComplianceRollupService rollupService;
+    private final SearchService searchService;
+    private final InspectionEventHub eventHub;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxPending;
+    private final long flushIntervalNanos;
+    private final Map<Long, PendingEdit> pending = new ConcurrentHashMap<>();
+    private final Map<Long, PendingEdit> writing = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ExecutorService flusher;
+    
+    public ResultWriteBuffer(ResultRepository resultRepository,
+                             InspectionRepository inspectionRepository,
+                             ComplianceRollupService rollupService,
+                             SearchService searchService,
+                             InspectionEventHub eventHub,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${inspection.results.write-behind.enabled:true}") boolean enabled,
+                             @Value("${inspection.results.write-behind.max-pending:500}") int maxPending,
+                             @Value("${inspection.results.write-behind.flush-interval-ms:2000}") long flushIntervalMs) {
+        this.resultRepository = resultRepository;
+        this.inspectionRepository = inspectionRepository;
+        this.rollupService = rollupService;
+        this.searchService = searchService;
+        this.eventHub = eventHub;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        
+        // Flushes always commit on their own, also when called from within a read transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "result-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Records an autosaved edit, replacing any pending edit of the same result. Edits are
+     * validated here, so nothing is buffered that could never be written.
+     */
+    public SaveResult save(Long resultId, ResultStatus status, String comment, String photoUrl) {
+        if (comment != null && comment.length() > Result.MAX_COMMENT_LENGTH) {
+            return new SaveResult(SaveResult.Status.INVALID,
+                    "Comment must be at most " + Result.MAX_COMMENT_LENGTH + " characters");
+        }
+        if (photoUrl != null && photoUrl.length() > Result.MAX_PHOTO_URL_LENGTH) {
+            return new SaveResult(SaveResult.Status.INVALID,
+                    "Photo URL must be at most " + Result.MAX_PHOTO_URL_LENGTH + " characters");
+        }
+        
+        // A burst keeps the base version of its first edit. The version is read under the flush
+        // lock, so a flush writing an earlier burst of the same result has committed by then
+        if (pending.computeIfPresent(resultId, (id, edit) -> edit.update(status, comment, photoUrl)) == null) {
+            synchronized (flushLock) {
+                Optional<ResultVersionRow> row = resultRepository.findVersionById(resultId);
+                if (row.isEmpty()) {
+                    return new SaveResult(SaveResult.Status.NOT_FOUND, null);
+                }
+                PendingEdit edit = new PendingEdit(row.get().getInspectionId(), row.get().getVersion(),
+                        System.nanoTime(), 0, status, comment, photoUrl);
+                pending.merge(resultId, edit, (current, ignored) -> current.update(status, comment, photoUrl));
+            }
+        }
+        
+        if (!enabled) {
+            flush();
+        } else if (pending.size() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+        return new SaveResult(SaveResult.Status.QUEUED, null);
+    }
+    
+    /**
+     * Drops the pending edit of a result once a direct write or delete of it has committed.
+     */
+    public void discard(Long resultId) {
+        TransactionCallbacks.afterCommit(() -> {
+            pending.remove(resultId);
+            writing.remove(resultId);
+        });
+    }
+    
+    public boolean hasPending(Long inspectionId) {
+        if (pending.isEmpty() && writing.isEmpty()) {
+            return false;
+        }
+        return pending.values().stream().anyMatch(edit -> inspectionId.equals(edit.inspectionId()))
+                || writing.values().stream().anyMatch(edit -> inspectionId.equals(edit.inspectionId()));
+    }
+    
+    /**
+     * Returns the views with pending edits applied, so reads see what was autosaved.
+     */
+    public List<ResultView> overlay(List<ResultView> results) {
+        if (pending.isEmpty() && writing.isEmpty()) {
+            return results;
+        }
+        List<ResultView> overlaid = new ArrayList<>(results.size());
+        for (ResultView view : results) {
+            PendingEdit edit = pending.get(view.id());
+            if (edit == null) {
+                edit = writing.get(view.id());
+            }
+            overlaid.add(edit == null ? view
+                    : new ResultView(view.id(), view.checklistItem(), edit.status(), edit.comment(), edit.photoUrl()));
+        }
+        return overlaid;
+    }
+    
+    public int pendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Number of edits dropped because they failed for good since startup.
+     */
+    public long droppedCount() {
+        return dropped.get();
+    }
+    
+    /**
+     * Writes the edits that have been pending for at least the flush interval.
+     */
+    @Scheduled(fixedDelayString = "${inspection.results.write-behind.flush-interval-ms:2000}")
+    public void flushDue() {
+        long now = System.nanoTime();
+        flush(edit -> now - edit.queuedAt() >= flushIntervalNanos);
+    }
+    
+    /**
+     * Writes all pending edits, for reads that go straight to the database.
+     */
+    public void flush() {
+        flush(edit -> true);
+    }
+    
+    // Each edit is moved from the buffer to the edits being written before it is written, so an
+    // edit arriving during the flush stays pending for the next one instead of being lost. Reads
+    // keep seeing a moved edit until its transaction has committed
+    private void flush(Predicate<PendingEdit> due) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            List<Long> ids = new ArrayList<>();
+            pending.forEach((id, edit) -> {
+                if (due.test(edit)) {
+                    ids.add(id);
+                }
+            });
+            for (int from = 0; from < ids.size(); from += FLUSH_BATCH_SIZE) {
+                Map<Long, PendingEdit> batch = new LinkedHashMap<>();
+                for (Long id : ids.subList(from, Math.min(from + FLUSH_BATCH_SIZE, ids.size()))) {
+                    pending.computeIfPresent(id, (key, edit) -> {
+                        writing.put(key, edit);
+                        batch.put(key, edit);
+                        return null;
+                    });
+                }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(batch));
+                    batch.forEach(writing::remove);
+                } catch (RuntimeException e) {
+                    // Write the edits one by one, so a single bad edit does not hold back the rest
+                    log.warn("Writing {} buffered results failed, writing them one by one", batch.size(), e);
+                    batch.forEach(this::writeAlone);
+                }
+            }
+        }
+    }
+    
+    private void writeAlone(Long resultId, PendingEdit edit) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(Map.of(resultId, edit)));
+            writing.remove(resultId, edit);
+        } catch (OptimisticLockingFailureException e) {
+            // A direct write committed meanwhile and wins over the autosave
+            log.info("Dropping buffered edit of result {}, it was overtaken by a direct write", resultId);
+            writing.remove(resultId, edit);
+        } catch (TransientDataAccessException | RecoverableDataAccessException e) {
+            if (edit.attempts() + 1 < MAX_ATTEMPTS) {
+                // Retry with the next flush unless the result was edited again meanwhile
+                log.warn("Writing buffered edit of result {} failed, keeping it for the next flush", resultId, e);
+                pending.putIfAbsent(resultId, edit.retried());
+                writing.remove(resultId, edit);
+            } else {
+                drop(resultId, edit, e);
+            }
+        } catch (RuntimeException e) {
+            drop(resultId, edit, e);
+        }
+    }
+    
+    private void drop(Long resultId, PendingEdit edit, RuntimeException cause) {
+        writing.remove(resultId, edit);
+        dropped.incrementAndGet();
+        log.error("Dropping buffered edit of result {} after {} attempts: status={}, comment={}, photoUrl={}",
+                resultId, edit.attempts() + 1, edit.status(), edit.comment(), edit.photoUrl(), cause);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        flush();
+        if (!pending.isEmpty()) {
+            log.error("{} buffered result edits could not be written before shutdown", pending.size());
+        }
+    }
+    
+    private void write(Map<Long, PendingEdit> batch) {
+        Map<Long, Inspection> inspections = new HashMap<>();
+        Map<Long, Map<ResultStatus, Long>> statusChanges = new HashMap<>();
+        List<Result> saved = new ArrayList<>(batch.size());
+        
+        // Results deleted in the meantime are simply not found, their edits are dropped
+        for (Result result : resultRepository.findWithAssociationsByIdIn(batch.keySet())) {
+            PendingEdit edit = batch.get(result.getId());
+            if (result.getVersion() != edit.baseVersion()) {
+                log.info("Dropping buffered edit of result {}, it was overtaken by a direct write", result.getId());
+                continue;
+            }
+            ResultStatus oldStatus = result.getStatus();
+            result.setStatus(edit.status());
+            result.setComment(edit.comment());
+            result.setPhotoUrl(edit.photoUrl());
+            saved.add(result);
+            
+            Inspection inspection = result.getInspection();
+            if (inspection != null) {
+                inspections.putIfAbsent(inspection.getId(), inspection);
+                if (oldStatus != edit.status()) {
+                    Map<ResultStatus, Long> changes = statusChanges
+                            .computeIfAbsent(inspection.getId(), id -> new EnumMap<>(ResultStatus.class));
+                    if (oldStatus != null) {
+                        changes.merge(oldStatus, -1L, Long::sum);
+                    }
+                    if (edit.status() != null) {
+                        changes.merge(edit.status(), 1L, Long::sum);
+                    }
+                }
+            }
+        }
+        resultRepository.flush();
+        
+        for (Inspection inspection : inspections.values()) {
+            Map<ResultStatus, Long> changes = statusChanges.get(inspection.getId());
+            if (changes != null) {
+                rollupService.resultsChanged(inspection, changes);
+            }
+            inspectionRepository.touch(inspection);
+            eventHub.publish(InspectionEvent.resultsSaved(inspection));
+        }
+        saved.forEach(searchService::resultSaved);
+    }
+}
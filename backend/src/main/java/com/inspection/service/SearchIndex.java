@@ -0,0 +1,278 @@
+package com.inspection.service;
+
+import com.inspection.dto.SearchHit;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over short texts. Terms live in a sorted map so a prefix is a range scan,
+ * and every term is also filed under its trigrams to find candidates for typo-tolerant
+ * matching. Reads need no locking; writes must be serialized by the caller.
+ */
+final class SearchIndex {
+    
+    record Key(SearchHit.Type type, Long id) {
+    }
+    
+    record Document(Key key, Long parentId, String text, Set<String> terms) {
+    }
+    
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    
+    // Keeps very short prefixes such as "a" from touching the whole dictionary
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+    private static final int MAX_FUZZY_CANDIDATES = 512;
+    private static final double EXACT_WEIGHT = 3.0;
+    private static final double PREFIX_WEIGHT = 2.0;
+    private static final double FUZZY_WEIGHT = 1.0;
+    
+    private final Map<Key, Document> documents = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Key>> postings = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> termsByTrigram = new ConcurrentHashMap<>();
+    
+    static Document document(SearchHit.Type type, Long id, Long parentId, String text) {
+        return new Document(new Key(type, id), parentId, text, new LinkedHashSet<>(tokenize(text)));
+    }
+    
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD)).replaceAll("")
+                .replace("ß", "ss");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    int size() {
+        return documents.size();
+    }
+    
+    void put(Document document) {
+        remove(document.key());
+        if (document.terms().isEmpty()) {
+            return;
+        }
+        documents.put(document.key(), document);
+        for (String term : document.terms()) {
+            postings.computeIfAbsent(term, this::newTerm).add(document.key());
+        }
+    }
+    
+    void remove(Key key) {
+        Document existing = documents.remove(key);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms()) {
+            Set<Key> keys = postings.get(term);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                postings.remove(term);
+                forEachTrigram(term, trigram -> {
+                    Set<String> terms = termsByTrigram.get(trigram);
+                    if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                        termsByTrigram.remove(trigram);
+                    }
+                });
+            }
+        }
+    }
+    
+    /**
+     * Removes every document matching the predicate. Only used for cascading deletes,
+     * which are rare enough that a scan is acceptable.
+     */
+    void removeIf(Predicate<Document> predicate) {
+        List<Key> matching = documents.values().stream().filter(predicate).map(Document::key).toList();
+        matching.forEach(this::remove);
+    }
+    
+    /**
+     * Returns documents matching every query token, best first. A token matches a term exactly,
+     * as a prefix, or within a small edit distance of the term's prefix.
+     */
+    List<SearchHit> search(String query, Set<SearchHit.Type> types, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        Map<Key, Double> scores = null;
+        for (String token : new LinkedHashSet<>(tokens)) {
+            Map<Key, Double> tokenScores = scoreToken(token, types, limit);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<Key, Double> combined = new HashMap<>();
+                for (Map.Entry<Key, Double> entry : scores.entrySet()) {
+                    Double score = tokenScores.get(entry.getKey());
+                    if (score != null) {
+                        combined.put(entry.getKey(), entry.getValue() + score);
+                    }
+                }
+                scores = combined;
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        return top(scores, limit);
+    }
+    
+    private Map<Key, Double> scoreToken(String token, Set<SearchHit.Type> types, int limit) {
+        Map<Key, Double> scores = new HashMap<>();
+        NavigableMap<String, Set<Key>> range = postings.subMap(token, true, token + Character.MAX_VALUE, true);
+        int expansions = 0;
+        for (Map.Entry<String, Set<Key>> entry : range.entrySet()) {
+            double weight = entry.getKey().equals(token) ? EXACT_WEIGHT : PREFIX_WEIGHT;
+            addScores(scores, entry.getValue(), weight, types);
+            if (++expansions >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+        }
+        
+        // Fuzzy matching is only needed when the exact and prefix matches leave room in the result
+        int maxEdits = maxEdits(token);
+        if (maxEdits > 0 && scores.size() < limit) {
+            for (String term : fuzzyCandidates(token, maxEdits)) {
+                if (!term.startsWith(token) && prefixDistance(token, term, maxEdits) <= maxEdits) {
+                    addScores(scores, postings.getOrDefault(term, Set.of()), FUZZY_WEIGHT, types);
+                }
+            }
+        }
+        return scores;
+    }
+    
+    private void addScores(Map<Key, Double> scores, Set<Key> keys, double weight, Set<SearchHit.Type> types) {
+        double idf = Math.log(1.0 + (double) documents.size() / Math.max(1, keys.size()));
+        for (Key key : keys) {
+            if (types.contains(key.type())) {
+                scores.merge(key, weight * idf, Math::max);
+            }
+        }
+    }
+    
+    private Collection<String> fuzzyCandidates(String token, int maxEdits) {
+        Map<String, Integer> shared = new HashMap<>();
+        forEachTrigram(token, trigram -> {
+            for (String term : termsByTrigram.getOrDefault(trigram, Set.of())) {
+                shared.merge(term, 1, Integer::sum);
+            }
+        });
+        
+        // Each edit destroys at most three trigrams of the token
+        int trigrams = token.length() - 2;
+        int required = Math.max(1, trigrams - 3 * maxEdits);
+        return shared.entrySet().stream()
+                .filter(entry -> entry.getValue() >= required)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(MAX_FUZZY_CANDIDATES)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+    
+    private List<SearchHit> top(Map<Key, Double> scores, int limit) {
+        // Shorter texts rank first among equal scores, they are the more specific match
+        Comparator<SearchHit> order = Comparator.comparingDouble(SearchHit::score)
+                .thenComparing(hit -> -hit.text().length());
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1, order);
+        for (Map.Entry<Key, Double> entry : scores.entrySet()) {
+            Document document = documents.get(entry.getKey());
+            if (document == null) {
+                continue;
+            }
+            best.add(toHit(document, entry.getValue()));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(order.reversed());
+        return hits;
+    }
+    
+    private static SearchHit toHit(Document document, double score) {
+        Key key = document.key();
+        Long inspectionId = key.type() == SearchHit.Type.CHECKLIST_ITEM ? null : document.parentId();
+        Long checklistId = key.type() == SearchHit.Type.CHECKLIST_ITEM ? document.parentId() : null;
+        return new SearchHit(key.type(), key.id(), inspectionId, checklistId, document.text(),
+                Math.round(score * 1000) / 1000.0);
+    }
+    
+    private Set<Key> newTerm(String term) {
+        forEachTrigram(term, trigram -> termsByTrigram.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(term));
+        return ConcurrentHashMap.newKeySet();
+    }
+    
+    private static void forEachTrigram(String term, Consumer<String> action) {
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            String trigram = term.substring(i, i + 3);
+            if (seen.add(trigram)) {
+                action.accept(trigram);
+            }
+        }
+    }
+    
+    private static int maxEdits(String token) {
+        if (token.length() < 3) {
+            return 0;
+        }
+        return token.length() <= 5 ? 1 : 2;
+    }
+    
+    /**
+     * Smallest Damerau-Levenshtein distance between the token and any prefix of the term
+     * whose length is within {@code maxEdits} of the token's length.
+     */
+    private static int prefixDistance(String token, String term, int maxEdits) {
+        int best = Integer.MAX_VALUE;
+        int from = Math.max(1, token.length() - maxEdits);
+        int to = Math.min(term.length(), token.length() + maxEdits);
+        for (int length = from; length <= to; length++) {
+            best = Math.min(best, distance(token, term.substring(0, length)));
+        }
+        return best;
+    }
+    
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
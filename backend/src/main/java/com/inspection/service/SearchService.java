@@ -0,0 +1,191 @@
+package com.inspection.service;
+
+import com.inspection.dto.SearchHit;
+import com.inspection.model.ChecklistItem;
+import com.inspection.model.Inspection;
+import com.inspection.model.Result;
+import com.inspection.repository.ChecklistItemRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.SearchSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over facility names, checklist item descriptions and result comments.
+ * The index lives in memory; it is built from the database at startup and kept current by
+ * the write paths, which apply their changes once the transaction has committed.
+ */
+@Service
+public class SearchService {
+    
+    private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+    
+    private final InspectionRepository inspectionRepository;
+    private final ChecklistItemRepository checklistItemRepository;
+    private final ResultRepository resultRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    
+    private volatile SearchIndex index = new SearchIndex();
+    
+    // Changes made while a rebuild is loading, replayed onto the new index before it goes live
+    private List<Change> pendingChanges;
+    
+    public SearchService(InspectionRepository inspectionRepository,
+                         ChecklistItemRepository checklistItemRepository,
+                         ResultRepository resultRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.inspectionRepository = inspectionRepository;
+        this.checklistItemRepository = checklistItemRepository;
+        this.resultRepository = resultRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    public List<SearchHit> search(String query, Set<SearchHit.Type> types, int limit) {
+        return index.search(query, types.isEmpty() ? EnumSet.allOf(SearchHit.Type.class) : types, limit);
+    }
+    
+    public void inspectionSaved(Inspection inspection) {
+        put(SearchIndex.document(SearchHit.Type.INSPECTION, inspection.getId(), inspection.getId(),
+                inspection.getFacilityName()));
+    }
+    
+    public void inspectionsSaved(Collection<Inspection> inspections) {
+        List<SearchIndex.Document> documents = inspections.stream()
+                .map(inspection -> SearchIndex.document(SearchHit.Type.INSPECTION, inspection.getId(),
+                        inspection.getId(), inspection.getFacilityName()))
+                .toList();
+        afterCommit(index -> documents.forEach(index::put));
+    }
+    
+    /**
+     * Removes the inspection together with its results, which are deleted with it.
+     */
+    public void inspectionDeleted(Long inspectionId) {
+        afterCommit(index -> {
+            index.remove(new SearchIndex.Key(SearchHit.Type.INSPECTION, inspectionId));
+            index.removeIf(document -> document.key().type() == SearchHit.Type.RESULT
+                    && inspectionId.equals(document.parentId()));
+        });
+    }
+    
+    public void checklistItemSaved(ChecklistItem item) {
+        Long checklistId = item.getChecklist() != null ? item.getChecklist().getId() : null;
+        put(SearchIndex.document(SearchHit.Type.CHECKLIST_ITEM, item.getId(), checklistId, item.getDescription()));
+    }
+    
+    /**
+     * Indexes every item of the checklist, for items written with set-based statements.
+     */
+    public void checklistItemsInserted(Long checklistId) {
+        List<SearchIndex.Document> documents = checklistItemRepository.findSearchSourcesByChecklistId(checklistId).stream()
+                .map(source -> SearchIndex.document(SearchHit.Type.CHECKLIST_ITEM, source.getId(), source.getParentId(),
+                        source.getText()))
+                .toList();
+        afterCommit(index -> documents.forEach(index::put));
+    }
+    
+    public void checklistItemDeleted(Long itemId) {
+        remove(new SearchIndex.Key(SearchHit.Type.CHECKLIST_ITEM, itemId));
+    }
+    
+    public void checklistDeleted(Long checklistId) {
+        afterCommit(index -> index.removeIf(document -> document.key().type() == SearchHit.Type.CHECKLIST_ITEM
+                && checklistId.equals(document.parentId())));
+    }
+    
+    public void resultSaved(Result result) {
+        Long inspectionId = result.getInspection() != null ? result.getInspection().getId() : null;
+        put(SearchIndex.document(SearchHit.Type.RESULT, result.getId(), inspectionId, result.getComment()));
+    }
+    
+    public void resultDeleted(Long resultId) {
+        remove(new SearchIndex.Key(SearchHit.Type.RESULT, resultId));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+    
+    /**
+     * Loads the three sources concurrently, tokenizes them in parallel and swaps the new index in.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            pendingChanges = new ArrayList<>();
+        }
+        try {
+            CompletableFuture<List<SearchIndex.Document>> inspections =
+                    load(SearchHit.Type.INSPECTION, inspectionRepository::findSearchSources);
+            CompletableFuture<List<SearchIndex.Document>> items =
+                    load(SearchHit.Type.CHECKLIST_ITEM, checklistItemRepository::findSearchSources);
+            CompletableFuture<List<SearchIndex.Document>> results =
+                    load(SearchHit.Type.RESULT, resultRepository::findSearchSources);
+            
+            SearchIndex rebuilt = new SearchIndex();
+            Stream.of(inspections, items, results)
+                    .flatMap(documents -> documents.join().stream())
+                    .forEach(rebuilt::put);
+            
+            synchronized (this) {
+                pendingChanges.forEach(change -> change.applyTo(rebuilt));
+                index = rebuilt;
+            }
+            log.info("Search index rebuilt with {} documents in {} ms", rebuilt.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            synchronized (this) {
+                pendingChanges = null;
+            }
+        }
+    }
+    
+    private CompletableFuture<List<SearchIndex.Document>> load(SearchHit.Type type, Supplier<List<SearchSource>> query) {
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> query.get()))
+                .thenApply(sources -> sources.parallelStream()
+                        .map(source -> SearchIndex.document(type, source.getId(), source.getParentId(), source.getText()))
+                        .toList());
+    }
+    
+    private void put(SearchIndex.Document document) {
+        afterCommit(index -> index.put(document));
+    }
+    
+    private void remove(SearchIndex.Key key) {
+        afterCommit(index -> index.remove(key));
+    }
+    
+    private void afterCommit(Change change) {
+        TransactionCallbacks.afterCommit(() -> apply(change));
+    }
+    
+    // Writers are serialized here, readers never lock
+    private synchronized void apply(Change change) {
+        change.applyTo(index);
+        if (pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface Change {
+        void applyTo(SearchIndex index);
+    }
+}
@@ -0,0 +1,8 @@
+package com.inspection.service;
+
+/**
+ * A photo as found by {@link PhotoStore}: the file name it is served under, its key in the
+ * storage, and whether it is a flat upload from before content addressing.
+ */
+public record StoredPhoto(String name, String key, long size, long lastModified, boolean legacy) {
+}
@@ -0,0 +1,235 @@
+package com.inspection.service;
+
+import com.inspection.dto.InspectionEvent;
+import com.inspection.dto.SyncChanges;
+import com.inspection.dto.SyncEdit;
+import com.inspection.dto.SyncEditOutcome;
+import com.inspection.dto.SyncEditOutcome.Outcome;
+import com.inspection.dto.SyncInspection;
+import com.inspection.dto.SyncResult;
+import com.inspection.model.ChecklistItem;
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+import com.inspection.repository.ChecklistItemRepository;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.SyncTombstoneRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Delta sync for offline clients. Every write stamps its rows with the change sequence number
+ * of its transaction and deletes leave tombstones, so a client holding a token only downloads
+ * what changed since. Offline edits are pushed back with the version or status they were based
+ * on, and an edit whose base no longer matches the server is reported as a conflict.
+ */
+@Service
+public class SyncService {
+    
+    private final ChangeSequence changeSequence;
+    private final InspectionRepository inspectionRepository;
+    private final ResultRepository resultRepository;
+    private final ChecklistRepository checklistRepository;
+    private final ChecklistItemRepository checklistItemRepository;
+    private final SyncTombstoneRepository tombstoneRepository;
+    private final InspectionStatusService statusService;
+    private final InspectionStatisticsService statisticsService;
+    private final ComplianceRollupService rollupService;
+    private final SearchService searchService;
+    private final InspectionEventHub eventHub;
+    private final ResultWriteBuffer writeBuffer;
+    private final ResultUpsertService upsertService;
+    
+    public SyncService(ChangeSequence changeSequence,
+                       InspectionRepository inspectionRepository,
+                       ResultRepository resultRepository,
+                       ChecklistRepository checklistRepository,
+                       ChecklistItemRepository checklistItemRepository,
+                       SyncTombstoneRepository tombstoneRepository,
+                       InspectionStatusService statusService,
+                       InspectionStatisticsService statisticsService,
+                       ComplianceRollupService rollupService,
+                       SearchService searchService,
+                       InspectionEventHub eventHub,
+                       ResultWriteBuffer writeBuffer,
+                       ResultUpsertService upsertService) {
+        this.changeSequence = changeSequence;
+        this.inspectionRepository = inspectionRepository;
+        this.resultRepository = resultRepository;
+        this.checklistRepository = checklistRepository;
+        this.checklistItemRepository = checklistItemRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.statusService = statusService;
+        this.statisticsService = statisticsService;
+        this.rollupService = rollupService;
+        this.searchService = searchService;
+        this.eventHub = eventHub;
+        this.writeBuffer = writeBuffer;
+        this.upsertService = upsertService;
+    }
+    
+    /**
+     * Returns everything changed after {@code since}, or a full snapshot when it is null or
+     * unknown to this server (for example after the database was reset).
+     */
+    @Transactional(readOnly = true)
+    public SyncChanges changesSince(Long since) {
+        // Read first, so no transaction below the watermark can still be writing
+        long upTo = changeSequence.watermark();
+        boolean full = since == null || since > upTo;
+        long from = full ? -1 : since;
+        return new SyncChanges(
+                Long.toString(upTo),
+                full,
+                inspectionRepository.findChangedBetween(from, upTo),
+                resultRepository.findChangedBetween(from, upTo),
+                checklistRepository.findChangedBetween(from, upTo),
+                checklistItemRepository.findChangedBetween(from, upTo),
+                full ? List.of() : tombstoneRepository.findChangedBetween(from, upTo));
+    }
+    
+    /**
+     * Applies queued offline edits in order within one transaction and reports an outcome per edit.
+     */
+    @Transactional
+    public List<SyncEditOutcome> apply(List<SyncEdit> edits) {
+        List<Supplier<SyncEditOutcome>> outcomes = new ArrayList<>(edits.size());
+        Map<Long, Inspection> touched = new LinkedHashMap<>();
+        for (SyncEdit edit : edits) {
+            outcomes.add(switch (edit.op()) {
+                case SAVE_RESULT -> saveResult(edit, touched);
+                case DELETE_RESULT -> deleteResult(edit, touched);
+                case SET_STATUS -> setStatus(edit);
+            });
+        }
+        
+        touched.values().forEach(inspection -> {
+            inspectionRepository.touch(inspection);
+            eventHub.publish(InspectionEvent.resultsSaved(inspection));
+        });
+        
+        // Outcome rows are built after the flush so they carry the new versions
+        resultRepository.flush();
+        return outcomes.stream().map(Supplier::get).toList();
+    }
+    
+    private Supplier<SyncEditOutcome> saveResult(SyncEdit edit, Map<Long, Inspection> touched) {
+        Result result;
+        ResultStatus oldStatus = null;
+        if (edit.resultId() != null) {
+            result = resultRepository.findById(edit.resultId()).orElse(null);
+            if (result == null) {
+                return conflict(edit, null);
+            }
+            if (edit.baseVersion() == null || result.getVersion() != edit.baseVersion()) {
+                return conflict(edit, result);
+            }
+            oldStatus = result.getStatus();
+        } else {
+            if (edit.inspectionId() == null || edit.checklistItemId() == null) {
+                return rejected(edit, "A new result needs an inspectionId and a checklistItemId");
+            }
+            Inspection inspection = inspectionRepository.findById(edit.inspectionId()).orElse(null);
+            if (inspection == null) {
+                return rejected(edit, "Inspection not found");
+            }
+            // Only items of the inspection's checklist, and of its pinned version if it has one
+            ChecklistItem item = upsertService.checklistItems(inspection, Set.of(edit.checklistItemId()))
+                    .get(edit.checklistItemId());
+            if (item == null) {
+                return rejected(edit, "Unknown checklist item: " + edit.checklistItemId());
+            }
+            // Someone else answered this item in the meantime
+            Result existing = resultRepository
+                    .findFirstByInspectionIdAndChecklistItemId(edit.inspectionId(), edit.checklistItemId())
+                    .orElse(null);
+            if (existing != null) {
+                return conflict(edit, existing);
+            }
+            result = new Result(item, null);
+            result.setInspection(inspection);
+        }
+        
+        result.setStatus(edit.status());
+        result.setComment(edit.comment());
+        result.setPhotoUrl(edit.photoUrl());
+        Result saved = resultRepository.save(result);
+        writeBuffer.discard(saved.getId());
+        if (saved.getInspection() != null) {
+            rollupService.resultChanged(saved.getInspection(), oldStatus, saved.getStatus());
+            touched.putIfAbsent(saved.getInspection().getId(), saved.getInspection());
+        }
+        searchService.resultSaved(saved);
+        return () -> new SyncEditOutcome(edit.clientId(), Outcome.APPLIED, null, SyncResult.from(saved), null);
+    }
+    
+    private Supplier<SyncEditOutcome> deleteResult(SyncEdit edit, Map<Long, Inspection> touched) {
+        if (edit.resultId() == null) {
+            return rejected(edit, "resultId is required");
+        }
+        Result result = resultRepository.findById(edit.resultId()).orElse(null);
+        if (result == null) {
+            // Already gone, which is what the client wanted
+            return () -> new SyncEditOutcome(edit.clientId(), Outcome.APPLIED, null, null, null);
+        }
+        if (edit.baseVersion() == null || result.getVersion() != edit.baseVersion()) {
+            return conflict(edit, result);
+        }
+        if (result.getInspection() != null) {
+            rollupService.resultChanged(result.getInspection(), result.getStatus(), null);
+            touched.putIfAbsent(result.getInspection().getId(), result.getInspection());
+        }
+        resultRepository.delete(result);
+        writeBuffer.discard(result.getId());
+        searchService.resultDeleted(result.getId());
+        return () -> new SyncEditOutcome(edit.clientId(), Outcome.APPLIED, null, null, null);
+    }
+    
+    private Supplier<SyncEditOutcome> setStatus(SyncEdit edit) {
+        if (edit.inspectionId() == null || edit.inspectionStatus() == null) {
+            return rejected(edit, "inspectionId and inspectionStatus are required");
+        }
+        Inspection inspection = inspectionRepository.findById(edit.inspectionId()).orElse(null);
+        if (inspection == null) {
+            return rejected(edit, "Inspection not found");
+        }
+        InspectionStatus oldStatus = inspection.getStatus();
+        InspectionStatus newStatus = edit.inspectionStatus();
+        if (oldStatus == newStatus) {
+            return () -> new SyncEditOutcome(edit.clientId(), Outcome.APPLIED, null, null, SyncInspection.from(inspection));
+        }
+        if (oldStatus != edit.expectedStatus()) {
+            return () -> new SyncEditOutcome(edit.clientId(), Outcome.CONFLICT, null, null, SyncInspection.from(inspection));
+        }
+        if (!statusService.canTransition(oldStatus, newStatus)) {
+            return rejected(edit, "Cannot change status from " + oldStatus + " to " + newStatus);
+        }
+        
+        inspection.setStatus(newStatus);
+        Inspection saved = inspectionRepository.save(inspection);
+        statisticsService.recordStatusChange(oldStatus, newStatus);
+        rollupService.inspectionStatusChanged(saved, oldStatus);
+        eventHub.publish(InspectionEvent.statusChanged(saved, oldStatus));
+        return () -> new SyncEditOutcome(edit.clientId(), Outcome.APPLIED, null, null, SyncInspection.from(saved));
+    }
+    
+    private static Supplier<SyncEditOutcome> conflict(SyncEdit edit, Result current) {
+        return () -> new SyncEditOutcome(edit.clientId(), Outcome.CONFLICT, null,
+                current != null ? SyncResult.from(current) : null, null);
+    }
+    
+    private static Supplier<SyncEditOutcome> rejected(SyncEdit edit, String error) {
+        SyncEditOutcome outcome = new SyncEditOutcome(edit.clientId(), Outcome.REJECTED, error, null, null);
+        return () -> outcome;
+    }
+}
@@ -0,0 +1,289 @@
+package com.inspection.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downscaled variants of uploaded photos, stored next to the original file as
+ * {@code <name>_w<size>.<ext>} with the longest side at most {@code size} pixels. Variants are
+ * re-encoded with ImageIO, which writes no metadata, so EXIF data such as GPS positions is
+ * stripped.
+ *
+ * <p>Uploads queue all variants on a small bounded pool; if the queue is full they are made on
+ * first request instead, on the same pool while the request waits a bounded time before it
+ * gets the original. Concurrent requests for the same missing variant share one generation. Dimensions are read from the image header before
+ * decoding: photos above the pixel cap are never decoded, and large ones are decoded subsampled
+ * so the full-resolution raster is never held in memory.
+ */
+@Service
+public class ThumbnailService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    
+    private final PhotoStore photoStore;
+    private final List<Integer> sizes;
+    private final long maxPixels;
+    private final long waitMillis;
+    private final ThreadPoolExecutor pool;
+    private final ConcurrentMap<String, CompletableFuture<Optional<StoredPhoto>>> inFlight = new ConcurrentHashMap<>();
+    
+    public ThumbnailService(PhotoStore photoStore,
+                            @Value("${inspection.photos.thumbnail-sizes:200,800}") List<Integer> sizes,
+                            @Value("${inspection.photos.thumbnail-threads:2}") int threads,
+                            @Value("${inspection.photos.thumbnail-queue-capacity:256}") int queueCapacity,
+                            @Value("${inspection.photos.thumbnail-max-pixels:50000000}") long maxPixels,
+                            @Value("${inspection.photos.thumbnail-wait-ms:10000}") long waitMillis) {
+        this.photoStore = photoStore;
+        this.sizes = sizes.stream().sorted().distinct().toList();
+        this.maxPixels = maxPixels;
+        this.waitMillis = waitMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    public List<Integer> sizes() {
+        return sizes;
+    }
+    
+    public boolean isSupported(int size) {
+        return sizes.contains(size);
+    }
+    
+    /**
+     * Queues every variant of a freshly uploaded photo.
+     */
+    public void generateAll(String filename) {
+        for (int size : sizes) {
+            try {
+                pool.execute(() -> variant(filename, size, false));
+            } catch (RejectedExecutionException e) {
+                log.debug("Thumbnail queue full, variants of {} are made on first request", filename);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Returns the variant of an uploaded photo, generating it on the pool if it is missing.
+     * Empty if the photo does not exist, is not an image ImageIO can read, is above the pixel
+     * cap, the pool is saturated, or the variant is not ready within the wait time.
+     */
+    public Optional<StoredPhoto> variant(String filename, int size) {
+        return variant(filename, size, true);
+    }
+    
+    private Optional<StoredPhoto> variant(String filename, int size, boolean fromRequest) {
+        try {
+            Optional<StoredPhoto> original = photoStore.resolve(filename);
+            if (original.isEmpty()) {
+                return Optional.empty();
+            }
+            String name = variantName(original.get().name(), size);
+            Optional<StoredPhoto> existing = photoStore.sibling(original.get(), name);
+            if (existing.isPresent()) {
+                return existing;
+            }
+            return generateOnce(original.get(), name, size, fromRequest);
+        } catch (IOException e) {
+            log.warn("Could not look up the {}px variant of {}", size, filename, e);
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * File name of a variant; PNG and GIF originals become PNG to keep transparency, all
+     * others JPEG.
+     */
+    public static String variantName(String filename, int size) {
+        int dot = filename.lastIndexOf('.');
+        String stem = dot > 0 ? filename.substring(0, dot) : filename;
+        return stem + "_w" + size + "." + format(filename);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+    
+    // Pool threads never wait on the pool: they generate inline, and skip a variant that is
+    // already being made, since the request that started it will finish it
+    private Optional<StoredPhoto> generateOnce(StoredPhoto original, String name, int size, boolean fromRequest) {
+        String key = original.key() + "#" + name;
+        CompletableFuture<Optional<StoredPhoto>> generation = new CompletableFuture<>();
+        CompletableFuture<Optional<StoredPhoto>> running = inFlight.putIfAbsent(key, generation);
+        if (running != null) {
+            return fromRequest ? await(running, original) : Optional.empty();
+        }
+        Runnable task = () -> {
+            try {
+                generation.complete(generate(original, name, size));
+            } catch (RuntimeException e) {
+                log.warn("Could not create the {}px variant of {}", size, original.name(), e);
+                generation.complete(Optional.empty());
+            } finally {
+                inFlight.remove(key, generation);
+            }
+        };
+        if (!fromRequest) {
+            task.run();
+            return generation.join();
+        }
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Thumbnail queue full, serving {} unscaled", original.name());
+            inFlight.remove(key, generation);
+            generation.complete(Optional.empty());
+        }
+        return await(generation, original);
+    }
+    
+    // Requests wait a bounded time, then the original is served
+    private Optional<StoredPhoto> await(CompletableFuture<Optional<StoredPhoto>> generation, StoredPhoto original) {
+        try {
+            return generation.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Variant of {} not ready within {} ms, serving it unscaled", original.name(), waitMillis);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        }
+    }
+    
+    private Optional<StoredPhoto> generate(StoredPhoto original, String name, int size) {
+        Path temp = null;
+        try {
+            BufferedImage source;
+            try (InputStream in = photoStore.openUncached(original)) {
+                source = decode(in, original.name(), size);
+            }
+            if (source == null) {
+                return Optional.empty();
+            }
+            double scale = Math.min(1.0, size / (double) Math.max(source.getWidth(), source.getHeight()));
+            int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+            String format = format(original.name());
+            BufferedImage scaled = scale(source, width, height, format.equals("png"));
+            
+            // Written aside and then stored, so readers never see a partial variant
+            temp = photoStore.createTempFile("thumbnail-");
+            if (!ImageIO.write(scaled, format, temp.toFile())) {
+                return Optional.empty();
+            }
+            return Optional.of(photoStore.putSibling(original, name, temp));
+        } catch (IOException e) {
+            log.warn("Could not create the {}px variant of {}", size, original.name(), e);
+            return Optional.empty();
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Left for the orphan collector
+                }
+            }
+        }
+    }
+    
+    /**
+     * Decodes the image with subsampling, so the decoded raster is at most about twice the
+     * target size. Null if no reader supports the format or the image is above the pixel cap.
+     */
+    private BufferedImage decode(InputStream in, String name, int size) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Not creating variants of {}: {}x{} is above the limit of {} pixels", name, width, height, maxPixels);
+                    return null;
+                }
+                // Leaves at least twice the target size for the stepwise downscale
+                int subsampling = Math.max(1, Math.max(width, height) / (2 * size));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    // Halves the size step by step; a single bilinear step from a large photo looks jagged
+    private static BufferedImage scale(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            if (!alpha) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, currentWidth, currentHeight);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+    
+    private static String format(String filename) {
+        String lower = filename.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".png") || lower.endsWith(".gif") ? "png" : "jpg";
+    }
+}
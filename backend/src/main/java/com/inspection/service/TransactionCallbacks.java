@@ -0,0 +1,29 @@
+package com.inspection.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory side effects until the surrounding transaction has committed, so caches,
+ * counters and push events only ever reflect committed data.
+ */
+final class TransactionCallbacks {
+    
+    private TransactionCallbacks() {}
+    
+    /**
+     * Runs the action after the current transaction commits, or right away without one.
+     */
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
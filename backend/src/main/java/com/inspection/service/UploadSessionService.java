@@ -0,0 +1,264 @@
+package com.inspection.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.UploadSessionRequest;
+import com.inspection.dto.UploadSessionView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable photo uploads. A session is a part file that chunks are appended to at the offset
+ * the client names, plus the request that started it, both on disk so uploads also resume
+ * after a restart. The received length is the size of the part file, so a chunk cut off
+ * midway still counts for the bytes that arrived.
+ *
+ * <p>On completion the photo is checked against the client's SHA-256 and moved into the
+ * {@link PhotoStore}. Sessions without a chunk for longer than the configured time are removed.
+ */
+@Service
+public class UploadSessionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+    private static final Pattern SESSION_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    
+    public record ChunkResult(Status status, long offset) {
+        
+        public enum Status {
+            APPENDED, NOT_FOUND, OFFSET_MISMATCH, TOO_LARGE, BUSY
+        }
+    }
+    
+    public record Completion(Status status, String filename, long offset) {
+        
+        public enum Status {
+            STORED, NOT_FOUND, INCOMPLETE, CHECKSUM_MISMATCH, BUSY
+        }
+    }
+    
+    private final PhotoStore photoStore;
+    private final ObjectMapper objectMapper;
+    private final Path sessionDir;
+    private final Duration expireAfter;
+    private final ConcurrentMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    
+    public UploadSessionService(PhotoStore photoStore,
+                                ObjectMapper objectMapper,
+                                @Value("${inspection.photos.upload-sessions.dir:uploads/sessions}") String sessionDir,
+                                @Value("${inspection.photos.upload-sessions.expire-after-ms:86400000}") long expireAfterMs) {
+        this.photoStore = photoStore;
+        this.objectMapper = objectMapper;
+        this.sessionDir = Paths.get(sessionDir);
+        this.expireAfter = Duration.ofMillis(expireAfterMs);
+        try {
+            Files.createDirectories(this.sessionDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create upload session directory", e);
+        }
+    }
+    
+    public UploadSessionView start(UploadSessionRequest request) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Files.createFile(part(id));
+        objectMapper.writeValue(request(id).toFile(), request);
+        return new UploadSessionView(id, request.filename(), 0, request.size());
+    }
+    
+    public Optional<UploadSessionView> find(String id) throws IOException {
+        Optional<UploadSessionRequest> request = read(id);
+        if (request.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new UploadSessionView(id, request.get().filename(), received(id), request.get().size()));
+    }
+    
+    /**
+     * Appends a chunk at the given offset, which must be the number of bytes received so far.
+     * A chunk reaching past the announced size is rejected as a whole.
+     */
+    public ChunkResult append(String id, long offset, InputStream chunk) throws IOException {
+        Optional<UploadSessionRequest> request = read(id);
+        if (request.isEmpty()) {
+            return new ChunkResult(ChunkResult.Status.NOT_FOUND, 0);
+        }
+        ReentrantLock lock = locks.computeIfAbsent(id, key -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            return new ChunkResult(ChunkResult.Status.BUSY, 0);
+        }
+        try (FileChannel channel = FileChannel.open(part(id), StandardOpenOption.WRITE)) {
+            long received = channel.size();
+            if (offset != received) {
+                return new ChunkResult(ChunkResult.Status.OFFSET_MISMATCH, received);
+            }
+            ReadableByteChannel source = Channels.newChannel(chunk);
+            long limit = request.get().size();
+            long position = received;
+            while (position < limit) {
+                long written = channel.transferFrom(source, position, limit - position);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+            }
+            if (position == limit && source.read(ByteBuffer.allocate(1)) > 0) {
+                channel.truncate(received);
+                return new ChunkResult(ChunkResult.Status.TOO_LARGE, received);
+            }
+            // Acknowledged bytes must survive a crash, or the client would resume past a gap
+            channel.force(false);
+            return new ChunkResult(ChunkResult.Status.APPENDED, position);
+        } catch (NoSuchFileException e) {
+            return new ChunkResult(ChunkResult.Status.NOT_FOUND, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Checks the received photo against the SHA-256 and stores it. A mismatch ends the
+     * session, since received bytes cannot be sent again.
+     */
+    public Completion complete(String id, String sha256) throws IOException {
+        Optional<UploadSessionRequest> request = read(id);
+        if (request.isEmpty()) {
+            return new Completion(Completion.Status.NOT_FOUND, null, 0);
+        }
+        ReentrantLock lock = locks.computeIfAbsent(id, key -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            return new Completion(Completion.Status.BUSY, null, 0);
+        }
+        try {
+            long received = received(id);
+            if (received != request.get().size()) {
+                return new Completion(Completion.Status.INCOMPLETE, null, received);
+            }
+            String actual = hash(part(id));
+            if (sha256 == null || !actual.equalsIgnoreCase(sha256.trim())) {
+                delete(id);
+                return new Completion(Completion.Status.CHECKSUM_MISMATCH, null, received);
+            }
+            String filename = photoStore.adopt(part(id), actual, request.get().filename());
+            delete(id);
+            return new Completion(Completion.Status.STORED, filename, received);
+        } finally {
+            lock.unlock();
+            locks.remove(id, lock);
+        }
+    }
+    
+    public boolean cancel(String id) throws IOException {
+        if (read(id).isEmpty()) {
+            return false;
+        }
+        delete(id);
+        locks.remove(id);
+        return true;
+    }
+    
+    /**
+     * Removes sessions that have not received a chunk within the configured time.
+     */
+    @Scheduled(fixedDelayString = "${inspection.photos.upload-sessions.cleanup-interval-ms:3600000}")
+    public void removeExpired() {
+        Instant cutoff = Instant.now().minus(expireAfter);
+        int removed = 0;
+        try (DirectoryStream<Path> requests = Files.newDirectoryStream(sessionDir, "*.json")) {
+            for (Path request : requests) {
+                String name = request.getFileName().toString();
+                String id = name.substring(0, name.length() - ".json".length());
+                Path part = part(id);
+                Path lastActive = Files.exists(part) ? part : request;
+                if (Files.getLastModifiedTime(lastActive).toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+                ReentrantLock lock = locks.computeIfAbsent(id, key -> new ReentrantLock());
+                if (!lock.tryLock()) {
+                    continue;
+                }
+                try {
+                    delete(id);
+                    removed++;
+                } finally {
+                    lock.unlock();
+                    locks.remove(id, lock);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Removing expired upload sessions failed", e);
+        }
+        if (removed > 0) {
+            log.info("Removed {} abandoned upload sessions", removed);
+        }
+    }
+    
+    private Optional<UploadSessionRequest> read(String id) throws IOException {
+        if (!SESSION_ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        try (InputStream in = Files.newInputStream(request(id))) {
+            return Optional.of(objectMapper.readValue(in, UploadSessionRequest.class));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+    
+    private long received(String id) throws IOException {
+        try {
+            return Files.size(part(id));
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+    
+    // The request goes last, so a session is never left without its request while the part remains
+    private void delete(String id) throws IOException {
+        Files.deleteIfExists(part(id));
+        Files.deleteIfExists(request(id));
+    }
+    
+    private Path part(String id) {
+        return sessionDir.resolve(id + ".part");
+    }
+    
+    private Path request(String id) {
+        return sessionDir.resolve(id + ".json");
+    }
+    
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = PhotoStore.sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
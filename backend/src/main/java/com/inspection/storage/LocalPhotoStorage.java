@@ -0,0 +1,181 @@
+package com.inspection.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps photos as files below a directory, one file per key.
+ */
+public class LocalPhotoStorage implements PhotoStorage {
+    
+    private final Path root;
+    
+    public LocalPhotoStorage(Path root) {
+        this.root = root.normalize();
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create photo directory " + root, e);
+        }
+    }
+    
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path(key), BasicFileAttributes.class);
+            return attributes.isRegularFile()
+                    ? Optional.of(new StoredObject(key, attributes.size(), attributes.lastModifiedTime().toMillis()))
+                    : Optional.empty();
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+    
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(path(key), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+            return new LimitedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    @Override
+    public void put(String key, Path file) throws IOException {
+        Path target = path(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // From another file system: copied next to the target first, so readers never see a partial file
+            Path staged = Files.createTempFile(target.getParent(), "put-", ".tmp");
+            try {
+                Files.move(file, staged, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(staged);
+            }
+        }
+    }
+    
+    @Override
+    public void touch(String key) throws IOException {
+        Files.setLastModifiedTime(path(key), FileTime.from(Instant.now()));
+    }
+    
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(path(key));
+    }
+    
+    @Override
+    public List<StoredObject> list(String startAfter, int limit) throws IOException {
+        List<StoredObject> objects = new ArrayList<>();
+        list(root, startAfter, limit, objects);
+        return objects;
+    }
+    
+    @Override
+    public Optional<Path> localPath(String key) {
+        Path path = path(key);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+    
+    // Visits directories in key order, skipping those whose keys all lie before startAfter
+    private void list(Path directory, String startAfter, int limit, List<StoredObject> objects) throws IOException {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            entries.forEach(children::add);
+        }
+        // A directory sorts as its name plus "/", like the keys below it
+        children.sort(Comparator.comparing(child -> child.getFileName() + (Files.isDirectory(child) ? "/" : "")));
+        for (Path child : children) {
+            if (objects.size() >= limit) {
+                return;
+            }
+            String key = root.relativize(child).toString().replace(child.getFileSystem().getSeparator(), "/");
+            if (Files.isDirectory(child)) {
+                String prefix = key + "/";
+                if (startAfter == null || startAfter.startsWith(prefix) || startAfter.compareTo(prefix) < 0) {
+                    list(child, startAfter, limit, objects);
+                }
+            } else if ((startAfter == null || key.compareTo(startAfter) > 0) && !key.endsWith(".tmp")) {
+                stat(key).ifPresent(objects::add);
+            }
+        }
+    }
+    
+    private Path path(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid photo key " + key);
+        }
+        return path;
+    }
+    
+    private static final class LimitedInputStream extends FilterInputStream {
+        
+        private long remaining;
+        
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+        
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
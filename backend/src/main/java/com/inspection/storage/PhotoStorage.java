@@ -0,0 +1,61 @@
+package com.inspection.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where photo files are kept, addressed by keys of the form {@code ab/cd/<name>}. Stored
+ * objects are never changed in place; writing a key again replaces the object as a whole.
+ */
+public interface PhotoStorage {
+    
+    record StoredObject(String key, long size, long lastModified) {}
+    
+    /**
+     * Size and modification time of an object, empty if there is none under the key.
+     */
+    Optional<StoredObject> stat(String key) throws IOException;
+    
+    /**
+     * Reads {@code length} bytes of an object starting at {@code offset}.
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no object under the key
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+    
+    /**
+     * Stores a local file under the key. The file is consumed: it is moved or deleted once
+     * stored.
+     */
+    void put(String key, Path file) throws IOException;
+    
+    /**
+     * Marks an object as just written without changing its content, so it counts as new for
+     * the orphan collector's grace period.
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no object under the key
+     */
+    void touch(String key) throws IOException;
+    
+    /**
+     * Returns false if there was no object under the key.
+     */
+    boolean delete(String key) throws IOException;
+    
+    /**
+     * Up to {@code limit} objects with keys after {@code startAfter} in key order, so a long
+     * listing can be continued from its last key. Null starts at the beginning.
+     */
+    List<StoredObject> list(String startAfter, int limit) throws IOException;
+    
+    /**
+     * The file of an object when it is kept on the local disk, so it can be handed to the
+     * connector directly.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
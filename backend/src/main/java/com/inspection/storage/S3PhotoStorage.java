@@ -0,0 +1,287 @@
+package com.inspection.storage;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Keeps photos in a bucket of an S3-compatible object store (AWS S3, MinIO, Ceph), using
+ * path-style requests signed with AWS Signature Version 4. Only the handful of calls the
+ * storage needs are implemented, on the JDK HTTP client, so no SDK is required.
+ */
+public class S3PhotoStorage implements PhotoStorage {
+    
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    
+    private final HttpClient client;
+    private final URI endpoint;
+    private final String region;
+    private final String bucket;
+    private final String keyPrefix;
+    private final String accessKey;
+    private final String secretKey;
+    
+    public S3PhotoStorage(HttpClient client, URI endpoint, String region, String bucket, String keyPrefix,
+                          String accessKey, String secretKey) {
+        this.client = client;
+        this.endpoint = endpoint;
+        this.region = region;
+        this.bucket = bucket;
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+    }
+    
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        HttpResponse<Void> response = send(request("HEAD", key, Map.of(), EMPTY_SHA256)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        check(response, "HEAD", key);
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        long lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+        return Optional.of(new StoredObject(key, size, lastModified));
+    }
+    
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        HttpRequest.Builder request = request("GET", key, Map.of(), EMPTY_SHA256).GET();
+        request.header("Range", "bytes=" + offset + "-" + (offset + length - 1));
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 200 || response.statusCode() == 206) {
+            return response.body();
+        }
+        response.body().close();
+        if (response.statusCode() == 404) {
+            throw new NoSuchFileException(key);
+        }
+        throw new IOException("S3 GET " + key + " failed with status " + response.statusCode());
+    }
+    
+    @Override
+    public void put(String key, Path file) throws IOException {
+        HttpRequest.Builder request = request("PUT", key, Map.of(), UNSIGNED_PAYLOAD)
+                .PUT(HttpRequest.BodyPublishers.ofFile(file));
+        check(send(request, HttpResponse.BodyHandlers.discarding()), "PUT", key);
+        Files.delete(file);
+    }
+    
+    // S3 has no touch; copying an object onto itself with replaced metadata renews its date
+    @Override
+    public void touch(String key) throws IOException {
+        Map<String, String> headers = Map.of(
+                "x-amz-copy-source", "/" + encode(bucket) + "/" + encodePath(keyPrefix + key),
+                "x-amz-metadata-directive", "REPLACE");
+        HttpRequest.Builder request = request("PUT", key, Map.of(), headers, EMPTY_SHA256)
+                .PUT(HttpRequest.BodyPublishers.noBody());
+        HttpResponse<Void> response = send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            throw new NoSuchFileException(key);
+        }
+        check(response, "COPY", key);
+    }
+    
+    @Override
+    public boolean delete(String key) throws IOException {
+        // S3 answers 204 whether or not the object existed
+        Optional<StoredObject> existing = stat(key);
+        HttpResponse<Void> response = send(request("DELETE", key, Map.of(), EMPTY_SHA256).DELETE(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        check(response, "DELETE", key);
+        return existing.isPresent();
+    }
+    
+    @Override
+    public List<StoredObject> list(String startAfter, int limit) throws IOException {
+        Map<String, String> query = new TreeMap<>();
+        query.put("list-type", "2");
+        query.put("max-keys", String.valueOf(limit));
+        if (!keyPrefix.isEmpty()) {
+            query.put("prefix", keyPrefix);
+        }
+        if (startAfter != null) {
+            query.put("start-after", keyPrefix + startAfter);
+        }
+        HttpResponse<InputStream> response = send(request("GET", null, query, EMPTY_SHA256).GET(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            check(response, "LIST", "");
+            List<StoredObject> objects = new ArrayList<>();
+            NodeList contents = parse(body).getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element entry = (Element) contents.item(i);
+                String key = text(entry, "Key").substring(keyPrefix.length());
+                objects.add(new StoredObject(key, Long.parseLong(text(entry, "Size")),
+                        Instant.parse(text(entry, "LastModified")).toEpochMilli()));
+            }
+            return objects;
+        }
+    }
+    
+    private HttpRequest.Builder request(String method, String key, Map<String, String> query, String payloadHash) {
+        return request(method, key, query, Map.of(), payloadHash);
+    }
+    
+    // Signed request for an object, or for the bucket itself if the key is null; extra headers are signed too
+    private HttpRequest.Builder request(String method, String key, Map<String, String> query,
+                                        Map<String, String> headers, String payloadHash) {
+        String path = "/" + encode(bucket) + (key != null ? "/" + encodePath(keyPrefix + key) : "");
+        StringBuilder canonicalQuery = new StringBuilder();
+        new TreeMap<>(query).forEach((name, value) -> canonicalQuery
+                .append(canonicalQuery.isEmpty() ? "" : "&").append(encode(name)).append('=').append(encode(value)));
+        URI uri = URI.create(endpoint.toString().replaceAll("/+$", "") + path
+                + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+        
+        String amzDate = AMZ_DATE.format(Instant.now());
+        String date = amzDate.substring(0, 8);
+        Map<String, String> signed = new TreeMap<>(headers);
+        signed.put("host", host(uri));
+        signed.put("x-amz-content-sha256", payloadHash);
+        signed.put("x-amz-date", amzDate);
+        StringBuilder canonicalHeaders = new StringBuilder();
+        signed.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+        String signedHeaders = String.join(";", signed.keySet());
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+        String scope = date + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        byte[] signingKey = hmac(hmac(hmac(hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date), region), "s3"),
+                "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+        
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(TIMEOUT)
+                .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        // The client adds Host itself
+        signed.forEach((name, value) -> {
+            if (!name.equals("host")) {
+                request.header(name, value);
+            }
+        });
+        return request;
+    }
+    
+    // The Host header the JDK client sends: the port only when it is not the scheme's default
+    private static String host(URI uri) {
+        int defaultPort = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return uri.getPort() == -1 || uri.getPort() == defaultPort ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    }
+    
+    private <T> HttpResponse<T> send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling the object store", e);
+        }
+    }
+    
+    private static void check(HttpResponse<?> response, String operation, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 " + operation + " " + key + " failed with status " + response.statusCode());
+        }
+    }
+    
+    private static Document parse(InputStream body) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(body);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Unreadable object listing", e);
+        }
+    }
+    
+    private static String text(Element parent, String tag) {
+        return parent.getElementsByTagName(tag).item(0).getTextContent();
+    }
+    
+    // RFC 3986 encoding as S3 signs it: only unreserved characters stay as they are
+    private static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return encoded.toString();
+    }
+    
+    private static String encodePath(String key) {
+        StringJoiner encoded = new StringJoiner("/");
+        for (String segment : key.split("/", -1)) {
+            encoded.add(encode(segment));
+        }
+        return encoded.toString();
+    }
+    
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.inspection.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.model.User;
+import com.inspection.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void complianceRollups_shouldFollowResultAndStatusChanges() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String facility = "Rollup-" + UUID.randomUUID();
+
+        long inspectionId = idOf(mockMvc.perform(post("/api/inspections")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"facilityName\":\"" + facility + "\",\"inspectionDate\":\"2023-03-15\",\"responsibleUserId\":" + user.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+
+        long first = createResult(inspectionId, "FULFILLED");
+        long second = createResult(inspectionId, "FULFILLED");
+        createResult(inspectionId, "NOT_APPLICABLE");
+
+        mockMvc.perform(put("/api/results/" + second)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"NOT_FULFILLED\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/results/" + first)).andExpect(status().isNoContent());
+        mockMvc.perform(put("/api/inspections/" + inspectionId + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"IN_PROGRESS\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/inspections/" + inspectionId + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"COMPLETED\"}"))
+                .andExpect(status().isOk());
+
+        JsonNode stats = facilityStats(facility);
+        assertEquals(1, stats.get("inspections").asLong());
+        assertEquals(1, stats.get("completedInspections").asLong());
+        assertEquals(0, stats.get("fulfilled").asLong());
+        assertEquals(1, stats.get("notFulfilled").asLong());
+        assertEquals(1, stats.get("notApplicable").asLong());
+        assertEquals(0.0, stats.get("fulfilmentRate").asDouble());
+
+        // A full rebuild from the source tables must agree with the incremental state
+        mockMvc.perform(post("/api/analytics/compliance/rebuild")).andExpect(status().isOk());
+        assertEquals(stats, facilityStats(facility));
+    }
+
+    @Test
+    void complianceByMonth_withInvalidPeriod_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/analytics/compliance/monthly").param("from", "2024-13"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Periods must use the format yyyy-MM"));
+    }
+
+    private long createResult(long inspectionId, String status) throws Exception {
+        return idOf(mockMvc.perform(post("/api/results/inspection/" + inspectionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"" + status + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private JsonNode facilityStats(String facility) throws Exception {
+        String body = mockMvc.perform(get("/api/analytics/compliance/facilities").param("from", "2023-03").param("to", "2023-03"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (JsonNode row : objectMapper.readTree(body)) {
+            if (facility.equals(row.get("key").asText())) {
+                return row;
+            }
+        }
+        return fail("No rollup for " + facility);
+    }
+
+    private long idOf(String body) throws Exception {
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+}
@@ -0,0 +1,349 @@
+package com.inspection.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.SyncDeletion;
+import com.inspection.model.*;
+import com.inspection.repository.ChecklistItemRepository;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.SyncTombstoneRepository;
+import com.inspection.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Deleting checklists and items must take the same handful of statements no matter how many
+ * inspections answered them.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ChecklistControllerTest {
+
+    private static final int ITEMS = 20;
+    private static final int INSPECTIONS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChecklistRepository checklistRepository;
+
+    @Autowired
+    private ChecklistItemRepository checklistItemRepository;
+
+    @Autowired
+    private InspectionRepository inspectionRepository;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Autowired
+    private SyncTombstoneRepository tombstoneRepository;
+
+    private Statistics statistics;
+
+    private Checklist checklist;
+
+    private List<Inspection> inspections;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        checklist = new Checklist("Cascade-" + UUID.randomUUID(), "bulk delete fixture");
+        for (int i = 0; i < ITEMS; i++) {
+            checklist.addItem(new ChecklistItem("Item " + i, i));
+        }
+        checklist = checklistRepository.save(checklist);
+
+        inspections = new ArrayList<>();
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < INSPECTIONS; i++) {
+            Inspection inspection = new Inspection("Cascade-" + UUID.randomUUID(), LocalDate.of(2024, 9, 1), user);
+            inspection.setChecklist(checklist);
+            inspection = inspectionRepository.save(inspection);
+            inspections.add(inspection);
+            for (ChecklistItem item : checklist.getItems()) {
+                Result result = new Result(item, ResultStatus.FULFILLED);
+                result.setInspection(inspection);
+                results.add(result);
+            }
+        }
+        resultRepository.saveAll(results);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void deleteItem_shouldDetachResultsInConstantStatements() throws Exception {
+        ChecklistItem item = checklist.getItems().get(0);
+        long inspectionVersion = inspectionRepository.findById(inspections.get(0).getId()).orElseThrow().getVersion();
+
+        statistics.clear();
+        mockMvc.perform(delete("/api/checklists/items/" + item.getId()))
+                .andExpect(status().isNoContent());
+        assertEquals(6, statistics.getPrepareStatementCount());
+
+        assertFalse(checklistItemRepository.existsById(item.getId()));
+        List<Result> kept = resultRepository.findByInspectionId(inspections.get(0).getId());
+        assertEquals(ITEMS, kept.size());
+        assertEquals(1, kept.stream().filter(result -> result.getChecklistItem() == null).count());
+        assertEquals(inspectionVersion + 1, inspectionRepository.findById(inspections.get(0).getId()).orElseThrow().getVersion());
+        assertTrue(tombstoneRepository.findChangedBetween(0, Long.MAX_VALUE)
+                .contains(new SyncDeletion(SyncEntity.CHECKLIST_ITEM, item.getId())));
+
+        mockMvc.perform(delete("/api/checklists/items/" + item.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteChecklist_shouldKeepInspectionsAndResultsInConstantStatements() throws Exception {
+        statistics.clear();
+        mockMvc.perform(delete("/api/checklists/" + checklist.getId()))
+                .andExpect(status().isNoContent());
+        assertEquals(6, statistics.getPrepareStatementCount());
+
+        assertFalse(checklistRepository.existsById(checklist.getId()));
+        assertTrue(checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(checklist.getId()).isEmpty());
+        for (Inspection inspection : inspections) {
+            assertNull(inspectionRepository.findById(inspection.getId()).orElseThrow().getChecklist());
+            List<Result> kept = resultRepository.findByInspectionId(inspection.getId());
+            assertEquals(ITEMS, kept.size());
+            assertTrue(kept.stream().allMatch(result -> result.getChecklistItem() == null));
+        }
+        List<SyncDeletion> deleted = tombstoneRepository.findChangedBetween(0, Long.MAX_VALUE);
+        assertTrue(deleted.contains(new SyncDeletion(SyncEntity.CHECKLIST, checklist.getId())));
+        assertTrue(deleted.contains(new SyncDeletion(SyncEntity.CHECKLIST_ITEM, checklist.getItems().get(ITEMS - 1).getId())));
+
+        mockMvc.perform(delete("/api/checklists/" + checklist.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void publishedVersion_shouldStayUnchangedByEditsAndBeServedFromMemory() throws Exception {
+        ChecklistItem item = checklist.getItems().get(0);
+        mockMvc.perform(post("/api/checklists/" + checklist.getId() + "/versions"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.items.length()").value(ITEMS));
+
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String created = mockMvc.perform(post("/api/inspections")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"facilityName\":\"Pinned\",\"inspectionDate\":\"2024-09-02\"," +
+                                "\"responsibleUserId\":" + user.getId() + ",\"checklistId\":" + checklist.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long inspectionId = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(get("/api/inspections/" + inspectionId))
+                .andExpect(jsonPath("$.checklistVersion").value(1));
+
+        mockMvc.perform(put("/api/checklists/items/" + item.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Edited after publishing\"}"))
+                .andExpect(status().isOk());
+
+        statistics.clear();
+        mockMvc.perform(get("/api/checklists/" + checklist.getId() + "/versions/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("immutable")))
+                .andExpect(jsonPath("$.items[0].description").value("Item 0"));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(get("/api/checklists/" + checklist.getId() + "/versions/2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void pinnedVersion_shouldRejectLaterItemsAndOutliveTheChecklist() throws Exception {
+        mockMvc.perform(post("/api/checklists/" + checklist.getId() + "/versions"))
+                .andExpect(status().isCreated());
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String created = mockMvc.perform(post("/api/inspections")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"facilityName\":\"Pinned\",\"inspectionDate\":\"2024-09-03\"," +
+                                "\"responsibleUserId\":" + user.getId() + ",\"checklistId\":" + checklist.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.pinnedChecklistId").value(checklist.getId()))
+                .andExpect(jsonPath("$.checklistVersion").value(1))
+                .andReturn().getResponse().getContentAsString();
+        long inspectionId = objectMapper.readTree(created).get("id").asLong();
+
+        // Items added after publishing are not part of the pinned version
+        String added = mockMvc.perform(post("/api/checklists/" + checklist.getId() + "/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Added after publishing\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long addedId = objectMapper.readTree(added).get("id").asLong();
+        mockMvc.perform(put("/api/results/inspection/" + inspectionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"checklistItemId\":" + addedId + ",\"status\":\"FULFILLED\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown checklist items: [" + addedId + "]"));
+
+        mockMvc.perform(delete("/api/checklists/" + checklist.getId()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/inspections/" + inspectionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.checklist").doesNotExist())
+                .andExpect(jsonPath("$.pinnedChecklistId").value(checklist.getId()))
+                .andExpect(jsonPath("$.checklistVersion").value(1));
+        mockMvc.perform(get("/api/checklists/" + checklist.getId() + "/versions/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(ITEMS));
+    }
+
+    @Test
+    void deleteItem_ofPublishedChecklist_shouldKeepItForPinnedInspections() throws Exception {
+        ChecklistItem item = checklist.getItems().get(0);
+        mockMvc.perform(post("/api/checklists/" + checklist.getId() + "/versions"))
+                .andExpect(status().isCreated());
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String created = mockMvc.perform(post("/api/inspections")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"facilityName\":\"Pinned\",\"inspectionDate\":\"2024-09-04\"," +
+                                "\"responsibleUserId\":" + user.getId() + ",\"checklistId\":" + checklist.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long inspectionId = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(put("/api/results/inspection/" + inspectionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"checklistItemId\":" + item.getId() + ",\"status\":\"FULFILLED\"}]"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/checklists/items/" + item.getId()))
+                .andExpect(status().isNoContent());
+
+        // Hidden from the live checklist, still referenced by the pinned inspection's result
+        assertTrue(checklistItemRepository.findById(item.getId()).orElseThrow().isDeleted());
+        assertTrue(checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(checklist.getId()).stream()
+                .noneMatch(live -> live.getId().equals(item.getId())));
+        assertEquals(item.getId(), resultRepository.findByInspectionId(inspectionId).get(0).getChecklistItem().getId());
+        assertEquals(1, resultRepository.findByInspectionId(inspections.get(0).getId()).stream()
+                .filter(result -> result.getChecklistItem() == null).count());
+        assertTrue(tombstoneRepository.findChangedBetween(0, Long.MAX_VALUE)
+                .contains(new SyncDeletion(SyncEntity.CHECKLIST_ITEM, item.getId())));
+
+        // The pinned version still offers the item, the live checklist does not
+        mockMvc.perform(put("/api/results/inspection/" + inspectionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"checklistItemId\":" + item.getId() + ",\"status\":\"NOT_FULFILLED\"}]"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/results/inspection/" + inspections.get(0).getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"checklistItemId\":" + item.getId() + ",\"status\":\"FULFILLED\"}]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(delete("/api/checklists/items/" + item.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void moveItem_shouldRewriteOnlyTheMovedItemOnceKeysAreSpread() throws Exception {
+        List<ChecklistItem> items = checklist.getItems();
+        ChecklistItem last = items.get(ITEMS - 1);
+
+        // The fixture's dense keys leave no room, so the first move renumbers the checklist
+        mockMvc.perform(put("/api/checklists/" + checklist.getId() + "/items/" + last.getId() + "/position")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"afterItemId\":" + items.get(0).getId() + "}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"));
+        List<ChecklistItem> spread = checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(checklist.getId());
+        assertEquals(last.getId(), spread.get(1).getId());
+
+        ChecklistItem moved = spread.get(5);
+        mockMvc.perform(put("/api/checklists/" + checklist.getId() + "/items/" + moved.getId() + "/position")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isOk());
+        List<ChecklistItem> reordered = checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(checklist.getId());
+        assertEquals(moved.getId(), reordered.get(0).getId());
+        for (ChecklistItem before : spread) {
+            if (!before.getId().equals(moved.getId())) {
+                ChecklistItem after = reordered.stream().filter(item -> item.getId().equals(before.getId())).findFirst().orElseThrow();
+                assertEquals(before.getOrderIndex(), after.getOrderIndex(), "Only the moved item should change");
+            }
+        }
+
+        mockMvc.perform(put("/api/checklists/" + checklist.getId() + "/items/" + moved.getId() + "/position")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"afterItemId\":987654}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void moveItem_shouldKeepItsETagValidWhileRenumberingInTheBackground() throws Exception {
+        List<ChecklistItem> items = checklist.getItems();
+        String etag = mockMvc.perform(put("/api/checklists/" + checklist.getId() + "/items/" + items.get(1).getId() + "/position")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"afterItemId\":" + items.get(0).getId() + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Moving items alternately behind the first one halves the gap each time, until it gets
+        // tight enough for a background renumbering
+        for (int i = 0; i < 12; i++) {
+            ChecklistItem moved = items.get(2 + i % 2);
+            etag = mockMvc.perform(put("/api/checklists/" + checklist.getId() + "/items/" + moved.getId() + "/position")
+                            .header("If-Match", etag)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"afterItemId\":" + items.get(0).getId() + "}"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader("ETag");
+        }
+    }
+
+    @Test
+    void cloneChecklist_shouldCopyFilteredItemsInOneStatement() throws Exception {
+        statistics.clear();
+        String body = mockMvc.perform(post("/api/checklists/" + checklist.getId() + "/clone")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"itemPrefix\":\"[Copy] \",\"descriptionContains\":\"item 1\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.checklist.name").value("Copy of " + checklist.getName()))
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(statistics.getPrepareStatementCount() <= 4, "Expected a set-based copy");
+
+        // Item 1 and Item 10 to Item 19 match, case-insensitively
+        long copyId = objectMapper.readTree(body).get("checklist").get("id").asLong();
+        assertEquals(11, objectMapper.readTree(body).get("copiedItems").asInt());
+        List<ChecklistItem> copied = checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(copyId);
+        assertEquals(11, copied.size());
+        assertEquals("[Copy] Item 1", copied.get(0).getDescription());
+        assertEquals("[Copy] Item 19", copied.get(10).getDescription());
+        assertEquals(20, checklistItemRepository.findByChecklistIdOrderByOrderIndexAsc(checklist.getId()).size());
+
+        mockMvc.perform(post("/api/checklists/987654/clone"))
+                .andExpect(status().isNotFound());
+    }
+}
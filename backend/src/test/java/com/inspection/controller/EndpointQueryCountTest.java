@@ -0,0 +1,124 @@
+package com.inspection.controller;
+
+import com.inspection.model.*;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Guards the read endpoints against N+1 regressions by counting the JDBC statements
+ * Hibernate prepares while serving a single request.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class EndpointQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChecklistRepository checklistRepository;
+
+    @Autowired
+    private InspectionRepository inspectionRepository;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    private Statistics statistics;
+
+    private Inspection inspection;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        // Several inspections with distinct checklists so an N+1 pattern would show up
+        for (int i = 0; i < 3; i++) {
+            Checklist checklist = new Checklist("QueryCount-" + UUID.randomUUID(), "statement count fixture");
+            checklist.addItem(new ChecklistItem("First", 0));
+            checklist.addItem(new ChecklistItem("Second", 1));
+            checklist = checklistRepository.save(checklist);
+
+            inspection = new Inspection("QueryCount-" + UUID.randomUUID(), LocalDate.of(2024, 6, 1), user);
+            inspection.setChecklist(checklist);
+            inspection = inspectionRepository.save(inspection);
+            for (ChecklistItem item : checklist.getItems()) {
+                Result result = new Result(item, ResultStatus.FULFILLED);
+                result.setInspection(inspection);
+                resultRepository.save(result);
+            }
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void listInspections_shouldRunSingleStatement() throws Exception {
+        assertStatements(1, get("/api/inspections"));
+    }
+
+    @Test
+    void paginatedInspections_shouldRunSingleStatement() throws Exception {
+        assertStatements(1, get("/api/inspections").param("limit", "20"));
+    }
+
+    @Test
+    void inspectionsByStatus_shouldRunSingleStatement() throws Exception {
+        assertStatements(1, get("/api/inspections/status/PLANNED"));
+    }
+
+    @Test
+    void inspectionDetail_shouldRunTwoStatements() throws Exception {
+        assertStatements(2, get("/api/inspections/" + inspection.getId()));
+    }
+
+    @Test
+    void resultsByInspection_shouldRunTwoStatements() throws Exception {
+        assertStatements(2, get("/api/results/inspection/" + inspection.getId()));
+    }
+
+    @Test
+    void listChecklists_shouldRunSingleStatement() throws Exception {
+        assertStatements(1, get("/api/checklists"));
+    }
+
+    @Test
+    void inspectionResponses_shouldNotExposePasswordHash() throws Exception {
+        mockMvc.perform(get("/api/inspections/" + inspection.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.responsibleUser.username").value("user"))
+                .andExpect(jsonPath("$.responsibleUser.password").doesNotExist())
+                .andExpect(jsonPath("$.results.length()").value(2));
+    }
+
+    private void assertStatements(long expected, RequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,66 @@
+package com.inspection.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.model.User;
+import com.inspection.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class EventControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void subscriber_shouldReceiveCreatedAndStatusChangedEvents() throws Exception {
+        MockHttpServletResponse stream = mockMvc.perform(get("/api/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String created = mockMvc.perform(post("/api/inspections")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"facilityName\":\"Live\",\"inspectionDate\":\"2024-04-01\",\"responsibleUserId\":" + user.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(put("/api/inspections/" + id + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"IN_PROGRESS\"}"))
+                .andExpect(status().isOk());
+
+        String events = awaitContent(stream, "event:status-changed");
+        assertTrue(events.contains("event:inspection-created"));
+        assertTrue(events.contains("\"inspectionId\":" + id));
+        assertTrue(events.contains("\"previousStatus\":\"PLANNED\""));
+    }
+
+    // Events are written by the dispatcher threads, so wait for them to arrive
+    private String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            content = response.getContentAsString();
+        }
+        assertTrue(content.contains(expected), content);
+        return content;
+    }
+}
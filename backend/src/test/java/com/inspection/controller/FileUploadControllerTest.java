@@ -0,0 +1,319 @@
+package com.inspection.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.PhotoCollectionReport;
+import com.inspection.model.Checklist;
+import com.inspection.model.ChecklistItem;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.service.PhotoCollector;
+import com.inspection.service.PhotoStore;
+import com.inspection.service.ThumbnailService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Closed afterwards, so its scheduled photo jobs do not outlive the temporary directory
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class FileUploadControllerTest {
+
+    // The orphan collector deletes whatever nothing refers to, so it must only ever see this fixture
+    @TempDir
+    static Path photos;
+
+    @DynamicPropertySource
+    static void isolatePhotos(DynamicPropertyRegistry registry) {
+        registry.add("inspection.photos.legacy-dir", () -> photos.toString());
+        registry.add("inspection.photos.local.dir", () -> photos.resolve("objects").toString());
+        registry.add("inspection.photos.upload-sessions.dir", () -> photos.resolve("sessions").toString());
+        registry.add("inspection.photos.gc.cursor-file", () -> photos.resolve("photo-gc.cursor").toString());
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:file-upload-test;DB_CLOSE_DELAY=-1");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PhotoStore photoStore;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private PhotoCollector photoCollector;
+
+    @Autowired
+    private ChecklistRepository checklistRepository;
+
+    private final List<String> uploaded = new ArrayList<>();
+
+    @AfterEach
+    void removeUploads() throws Exception {
+        for (String filename : uploaded) {
+            Optional<Path> stored = photoStore.resolve(filename).flatMap(photoStore::localPath);
+            if (stored.isPresent()) {
+                for (int size : thumbnailService.sizes()) {
+                    Files.deleteIfExists(stored.get().resolveSibling(ThumbnailService.variantName(filename, size)));
+                }
+                Files.deleteIfExists(stored.get());
+            }
+        }
+    }
+
+    @Test
+    void getFile_shouldServeRangesAndConditionalRequests() throws Exception {
+        byte[] content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        String filename = upload(content);
+
+        String etag = mockMvc.perform(get("/api/files/" + filename))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(content))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/files/" + filename).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/api/files/" + filename).header(HttpHeaders.RANGE, "bytes=100-199"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-199/1000"))
+                .andExpect(content().bytes(Arrays.copyOfRange(content, 100, 200)));
+
+        // A stale If-Range falls back to the whole file
+        mockMvc.perform(get("/api/files/" + filename)
+                        .header(HttpHeaders.RANGE, "bytes=100-199")
+                        .header(HttpHeaders.IF_RANGE, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+
+        mockMvc.perform(get("/api/files/" + filename).header(HttpHeaders.RANGE, "bytes=5000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */1000"));
+    }
+
+    @Test
+    void getFile_withSize_shouldServeDownscaledVariant() throws Exception {
+        BufferedImage image = new BufferedImage(1200, 600, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        String filename = upload(png.toByteArray());
+
+        byte[] thumbnail = mockMvc.perform(get("/api/files/" + filename).param("size", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ThumbnailService.variantName(filename, 200) + "\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(thumbnail));
+        assertEquals(200, scaled.getWidth());
+        assertEquals(100, scaled.getHeight());
+
+        mockMvc.perform(get("/api/files/" + filename).param("size", "123"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getFile_withSize_ofNonImage_shouldServeOriginal() throws Exception {
+        byte[] content = {1, 2, 3};
+        String filename = upload(content);
+
+        mockMvc.perform(get("/api/files/" + filename).param("size", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    void uploadFile_shouldStoreIdenticalContentOnce() throws Exception {
+        byte[] content = UUID.randomUUID().toString().getBytes();
+        String first = upload(content);
+        String second = upload(content);
+
+        assertEquals(first, second);
+        assertTrue(first.matches("[0-9a-f]{64}\\.png"));
+        mockMvc.perform(get("/api/files/" + first))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    void getFile_ofMigratedUpload_shouldResolveOldName() throws Exception {
+        byte[] content = UUID.randomUUID().toString().getBytes();
+        String legacyName = UUID.randomUUID() + ".png";
+        Path legacyFile = photos.resolve(legacyName);
+        Files.write(legacyFile, content);
+        uploaded.add(legacyName);
+
+        mockMvc.perform(get("/api/files/" + legacyName))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+
+        photoStore.migrateLegacy();
+
+        assertFalse(Files.exists(legacyFile));
+        mockMvc.perform(get("/api/files/" + legacyName))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    void resumableUpload_shouldAppendChunksAndVerifyChecksum() throws Exception {
+        byte[] content = new byte[3000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 7);
+        }
+        String id = startSession(content.length);
+
+        assertEquals(1000, offset(putChunk(id, 0, Arrays.copyOfRange(content, 0, 1000)).andExpect(status().isOk())));
+
+        // A repeated chunk is refused with the offset to continue from
+        assertEquals(1000, offset(putChunk(id, 0, Arrays.copyOfRange(content, 0, 1000)).andExpect(status().isConflict())));
+
+        mockMvc.perform(post("/api/files/sessions/" + id + "/complete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("sha256", sha256(content)))))
+                .andExpect(status().isConflict());
+
+        assertEquals(3000, offset(putChunk(id, 1000, Arrays.copyOfRange(content, 1000, 3000)).andExpect(status().isOk())));
+
+        String body = mockMvc.perform(post("/api/files/sessions/" + id + "/complete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("sha256", sha256(content)))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String filename = objectMapper.readTree(body).get("filename").asText();
+        uploaded.add(filename);
+
+        assertEquals(sha256(content) + ".png", filename);
+        mockMvc.perform(get("/api/files/" + filename))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+        mockMvc.perform(get("/api/files/sessions/" + id))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void resumableUpload_withWrongChecksum_shouldDiscardUpload() throws Exception {
+        byte[] content = {1, 2, 3, 4};
+        String id = startSession(content.length);
+        putChunk(id, 0, content).andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/files/sessions/" + id + "/complete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("sha256", sha256(new byte[] {0})))))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/files/sessions/" + id))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void collect_shouldDeleteOnlyUnreferencedPhotos() throws Exception {
+        String referenced = upload(UUID.randomUUID().toString().getBytes());
+        byte[] orphanContent = UUID.randomUUID().toString().getBytes();
+        String orphan = upload(orphanContent);
+        Path referencedFile = photoStore.resolve(referenced).flatMap(photoStore::localPath).orElseThrow();
+        Path orphanFile = photoStore.resolve(orphan).flatMap(photoStore::localPath).orElseThrow();
+        Checklist checklist = new Checklist("Photos-" + UUID.randomUUID(), "collector fixture");
+        ChecklistItem item = new ChecklistItem("Photographed item", 0);
+        item.setDesiredPhotoUrl("/api/files/" + referenced + "?size=200");
+        checklist.addItem(item);
+        checklist = checklistRepository.save(checklist);
+
+        try {
+            PhotoCollectionReport report = photoCollector.collect(Duration.ZERO);
+
+            assertTrue(report.finished());
+            assertTrue(Files.exists(referencedFile));
+            assertFalse(Files.exists(orphanFile));
+            assertTrue(report.deleted() >= 1);
+            assertTrue(report.reclaimedBytes() >= orphanContent.length);
+            mockMvc.perform(get("/api/files/" + referenced))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get("/api/files/" + orphan))
+                    .andExpect(status().isNotFound());
+        } finally {
+            checklistRepository.delete(checklist);
+        }
+    }
+
+    @Test
+    void getFile_ofUnknownFile_shouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/api/files/missing.png"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String startSession(long size) throws Exception {
+        String body = mockMvc.perform(post("/api/files/sessions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "filename", "photo.png", "contentType", "image/png", "size", size))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(0, objectMapper.readTree(body).get("offset").asLong());
+        return objectMapper.readTree(body).get("id").asText();
+    }
+
+    private ResultActions putChunk(String id, long offset, byte[] chunk) throws Exception {
+        return mockMvc.perform(put("/api/files/sessions/" + id).param("offset", String.valueOf(offset))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(chunk));
+    }
+
+    private long offset(ResultActions response) throws Exception {
+        return objectMapper.readTree(response.andReturn().getResponse().getContentAsString()).get("offset").asLong();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private String upload(byte[] content) throws Exception {
+        String body = mockMvc.perform(multipart("/api/files/upload")
+                        .file(new MockMultipartFile("file", "photo.png", "image/png", content)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String filename = objectMapper.readTree(body).get("filename").asText();
+        uploaded.add(filename);
+        return filename;
+    }
+}
@@ -0,0 +1,278 @@
+package com.inspection.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.model.Inspection;
+import com.inspection.model.InspectionStatus;
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+import com.inspection.model.User;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class InspectionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InspectionRepository inspectionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void paginatedListing_shouldWalkAllPagesWithCursor() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String facility = "Paging-" + UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            inspectionRepository.save(new Inspection(facility + "-" + i, LocalDate.of(2024, 1, 1 + i % 3), user));
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/inspections").param("facility", facility).param("limit", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode page = objectMapper.readTree(body);
+            page.get("items").forEach(item -> seen.add(item.get("id").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, seen.size());
+        assertEquals(5, seen.stream().distinct().count());
+    }
+
+    @Test
+    void statistics_shouldFollowCreateStatusChangeAndDelete() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        JsonNode before = statistics();
+
+        String created = mockMvc.perform(post("/api/inspections")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"facilityName\":\"Stats\",\"inspectionDate\":\"2024-02-01\",\"responsibleUserId\":" + user.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+        assertEquals(before.get("planned").asLong() + 1, statistics().get("planned").asLong());
+
+        mockMvc.perform(put("/api/inspections/" + id + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"IN_PROGRESS\"}"))
+                .andExpect(status().isOk());
+        JsonNode afterStatus = statistics();
+        assertEquals(before.get("planned").asLong(), afterStatus.get("planned").asLong());
+        assertEquals(before.get("inProgress").asLong() + 1, afterStatus.get("inProgress").asLong());
+
+        mockMvc.perform(delete("/api/inspections/" + id)).andExpect(status().isNoContent());
+        assertEquals(before.get("total").asLong(), statistics().get("total").asLong());
+    }
+
+    @Test
+    void importCsv_shouldInsertValidRowsInBatchesAndReportRejectedOnes() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String facility = "Import-" + UUID.randomUUID();
+        StringBuilder csv = new StringBuilder("facilityName,inspectionDate,responsibleUserId,checklistId\n");
+        for (int i = 0; i < 120; i++) {
+            csv.append('"').append(facility).append(", Hall A\",2025-01-15,").append(user.getId()).append(",\n");
+        }
+        csv.append(facility).append(",not-a-date,").append(user.getId()).append(",\n");
+        csv.append(facility).append(",2025-01-15,-1,\n");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        mockMvc.perform(post("/api/inspections/import")
+                        .contentType("text/csv")
+                        .content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(120))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(122))
+                .andExpect(jsonPath("$.errors[1].error").value("User not found"));
+
+        // 120 inserts must go out as a handful of JDBC batches, not one statement per row
+        assertTrue(statistics.getPrepareStatementCount() < 20,
+                "statements: " + statistics.getPrepareStatementCount());
+
+        mockMvc.perform(get("/api/inspections").param("facility", facility).param("limit", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(120))
+                .andExpect(jsonPath("$.items[0].facilityName").value(facility + ", Hall A"));
+    }
+
+    @Test
+    void importNdjson_shouldRejectMalformedLines() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String ndjson = "{\"facilityName\":\"Ndjson\",\"inspectionDate\":\"2025-02-01\",\"responsibleUserId\":" + user.getId() + "}\n"
+                + "{broken\n";
+
+        mockMvc.perform(post("/api/inspections/import")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].error").value("Malformed JSON"));
+    }
+
+    @Test
+    void export_shouldStreamInspectionsWithTheirResultsAsNdjson() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String facility = "Export-" + UUID.randomUUID();
+        Inspection inspection = inspectionRepository.save(new Inspection(facility, LocalDate.of(2024, 3, 1), user));
+        for (ResultStatus resultStatus : List.of(ResultStatus.FULFILLED, ResultStatus.NOT_FULFILLED)) {
+            Result result = new Result(null, resultStatus);
+            result.setInspection(inspection);
+            resultRepository.save(result);
+        }
+
+        for (boolean gzip : List.of(false, true)) {
+            MvcResult pending = mockMvc.perform(get("/api/inspections/export").param("gzip", String.valueOf(gzip)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            pending.getAsyncResult();
+            byte[] content = pending.getResponse().getContentAsByteArray();
+            if (gzip) {
+                content = new GZIPInputStream(new ByteArrayInputStream(content)).readAllBytes();
+            }
+
+            JsonNode exported = null;
+            for (String line : new String(content, StandardCharsets.UTF_8).split("\n")) {
+                assertTrue(line.startsWith("{"), "Every line should be a bare JSON object: " + line);
+                JsonNode node = objectMapper.readTree(line);
+                if (facility.equals(node.get("facilityName").asText())) {
+                    exported = node;
+                }
+            }
+            assertNotNull(exported);
+            assertEquals(2, exported.get("results").size());
+            assertEquals("NOT_FULFILLED", exported.get("results").get(1).get("status").asText());
+        }
+    }
+
+    @Test
+    void paginatedListing_withInvalidCursor_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/inspections").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+    }
+
+    @Test
+    void detail_shouldSupportConditionalGetAndRejectStaleWrites() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Inspection inspection = inspectionRepository.save(new Inspection("ETag", LocalDate.of(2024, 3, 1), user));
+        String url = "/api/inspections/" + inspection.getId();
+
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        mockMvc.perform(get(url).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // Adding a result changes the inspection's ETag
+        mockMvc.perform(post("/api/results/inspection/" + inspection.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"FULFILLED\"}"))
+                .andExpect(status().isCreated());
+        String newEtag = mockMvc.perform(get(url).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, newEtag);
+
+        mockMvc.perform(put(url + "/status")
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"IN_PROGRESS\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put(url + "/status")
+                        .header("If-Match", newEtag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"IN_PROGRESS\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"));
+    }
+
+    @Test
+    void bulkStatus_shouldApplyLegalTransitionsAndReportEachId() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Inspection planned = inspectionRepository.save(new Inspection("Closeout", LocalDate.of(2024, 5, 1), user));
+        Inspection started = new Inspection("Closeout", LocalDate.of(2024, 5, 2), user);
+        started.setStatus(InspectionStatus.IN_PROGRESS);
+        started = inspectionRepository.save(started);
+        Inspection done = new Inspection("Closeout", LocalDate.of(2024, 5, 3), user);
+        done.setStatus(InspectionStatus.COMPLETED);
+        done = inspectionRepository.save(done);
+        long completedBefore = statistics().get("completed").asLong();
+
+        String body = "{\"ids\":[" + planned.getId() + "," + started.getId() + "," + done.getId() + ",999999],"
+                + "\"status\":\"COMPLETED\"}";
+        mockMvc.perform(put("/api/inspections/status").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.results[0].outcome").value("ILLEGAL_TRANSITION"))
+                .andExpect(jsonPath("$.results[1].outcome").value("UPDATED"))
+                .andExpect(jsonPath("$.results[2].outcome").value("UNCHANGED"))
+                .andExpect(jsonPath("$.results[3].outcome").value("NOT_FOUND"));
+
+        assertEquals(InspectionStatus.PLANNED, inspectionRepository.findById(planned.getId()).orElseThrow().getStatus());
+        assertEquals(InspectionStatus.COMPLETED, inspectionRepository.findById(started.getId()).orElseThrow().getStatus());
+        assertEquals(completedBefore + 1, statistics().get("completed").asLong());
+
+        mockMvc.perform(put("/api/inspections/" + planned.getId() + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"COMPLETED\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    private JsonNode statistics() throws Exception {
+        String body = mockMvc.perform(get("/api/inspections/statistics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
@@ -0,0 +1,90 @@
+package com.inspection.controller;
+
+import com.inspection.model.Inspection;
+import com.inspection.model.Result;
+import com.inspection.model.ResultStatus;
+import com.inspection.model.User;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InspectionRepository inspectionRepository;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Test
+    void report_shouldBeRenderedOnceAndRerenderedAfterChanges() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Inspection inspection = inspectionRepository.save(new Inspection("Report <Hall>", LocalDate.of(2024, 5, 2), user));
+        Result result = new Result(null, ResultStatus.NOT_FULFILLED);
+        result.setComment("Door blocked");
+        result.setInspection(inspection);
+        result = resultRepository.save(result);
+
+        mockMvc.perform(asyncDispatch(report(inspection.getId())))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/html"))
+                .andExpect(content().string(containsString("Report &lt;Hall&gt;")))
+                .andExpect(content().string(containsString("Door blocked")));
+        assertEquals(1, cachedReports(inspection.getId()));
+
+        // Same content version: served from the cache
+        mockMvc.perform(asyncDispatch(report(inspection.getId()))).andExpect(status().isOk());
+        assertEquals(1, cachedReports(inspection.getId()));
+
+        // Changed result: new version replaces the stale one
+        result.setComment("Door cleared");
+        resultRepository.save(result);
+        mockMvc.perform(asyncDispatch(report(inspection.getId())))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Door cleared")));
+        assertEquals(1, cachedReports(inspection.getId()));
+    }
+
+    @Test
+    void report_forUnknownInspection_shouldReturnNotFound() throws Exception {
+        mockMvc.perform(asyncDispatch(report(999999L)))
+                .andExpect(status().isNotFound());
+    }
+
+    private MvcResult report(Long inspectionId) throws Exception {
+        return mockMvc.perform(get("/api/reports/inspections/" + inspectionId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private long cachedReports(Long inspectionId) throws Exception {
+        try (Stream<Path> files = Files.list(Paths.get("reports"))) {
+            return files.filter(p -> p.getFileName().toString().startsWith("inspection-" + inspectionId + "-")).count();
+        }
+    }
+}
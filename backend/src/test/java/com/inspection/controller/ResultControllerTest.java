@@ -0,0 +1,294 @@
+package com.inspection.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.dto.ResultUpsert;
+import com.inspection.model.*;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.UserRepository;
+import com.inspection.service.ResultHistoryService;
+import com.inspection.service.ResultWriteBuffer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ResultControllerTest {
+
+    private static final int ITEMS = 40;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChecklistRepository checklistRepository;
+
+    @Autowired
+    private InspectionRepository inspectionRepository;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ResultWriteBuffer writeBuffer;
+
+    @Autowired
+    private ResultHistoryService historyService;
+
+    @Test
+    void batchUpsert_shouldUpdateMatchingResultsAndInsertTheRestInFewStatements() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Checklist checklist = new Checklist("Batch-" + UUID.randomUUID(), "batch upsert fixture");
+        for (int i = 0; i < ITEMS; i++) {
+            checklist.addItem(new ChecklistItem("Item " + i, i));
+        }
+        checklist = checklistRepository.save(checklist);
+        Inspection inspection = new Inspection("Batch-" + UUID.randomUUID(), LocalDate.of(2024, 7, 1), user);
+        inspection.setChecklist(checklist);
+        inspection = inspectionRepository.save(inspection);
+        Result existing = new Result(checklist.getItems().get(0), ResultStatus.NOT_APPLICABLE);
+        existing.setInspection(inspection);
+        existing = resultRepository.save(existing);
+
+        List<ResultUpsert> answers = new ArrayList<>();
+        for (ChecklistItem item : checklist.getItems()) {
+            answers.add(new ResultUpsert(item.getId(), ResultStatus.FULFILLED, "ok " + item.getOrderIndex(), null));
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        mockMvc.perform(put("/api/results/inspection/" + inspection.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(answers)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.length()").value(ITEMS))
+                .andExpect(jsonPath("$[0].id").value(existing.getId()))
+                .andExpect(jsonPath("$[0].status").value("FULFILLED"));
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements < 20, "Expected batched writes but got " + statements + " statements");
+
+        List<Result> saved = resultRepository.findByInspectionId(inspection.getId());
+        assertEquals(ITEMS, saved.size());
+        assertTrue(saved.stream().allMatch(result -> result.getStatus() == ResultStatus.FULFILLED));
+    }
+
+    @Test
+    void batchUpsert_withUnknownChecklistItem_shouldReturnBadRequest() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Inspection inspection = inspectionRepository.save(new Inspection("Batch-unknown", LocalDate.of(2024, 7, 2), user));
+
+        mockMvc.perform(put("/api/results/inspection/" + inspection.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"checklistItemId\":987654,\"status\":\"FULFILLED\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown checklist items: [987654]"));
+        assertTrue(resultRepository.findByInspectionId(inspection.getId()).isEmpty());
+    }
+
+    @Test
+    void batchUpsert_withItemOfAnotherChecklist_shouldReturnBadRequest() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Checklist own = new Checklist("Batch-own-" + UUID.randomUUID(), "batch upsert fixture");
+        own.addItem(new ChecklistItem("Own item", 0));
+        own = checklistRepository.save(own);
+        Checklist other = new Checklist("Batch-other-" + UUID.randomUUID(), "batch upsert fixture");
+        other.addItem(new ChecklistItem("Foreign item", 0));
+        other = checklistRepository.save(other);
+        Inspection inspection = new Inspection("Batch-foreign", LocalDate.of(2024, 7, 2), user);
+        inspection.setChecklist(own);
+        inspection = inspectionRepository.save(inspection);
+        Long foreignItemId = other.getItems().get(0).getId();
+
+        List<ResultUpsert> answers = List.of(
+                new ResultUpsert(own.getItems().get(0).getId(), ResultStatus.FULFILLED, null, null),
+                new ResultUpsert(foreignItemId, ResultStatus.FULFILLED, null, null));
+        mockMvc.perform(put("/api/results/inspection/" + inspection.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(answers)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown checklist items: [" + foreignItemId + "]"));
+        assertTrue(resultRepository.findByInspectionId(inspection.getId()).isEmpty());
+    }
+
+    @Test
+    void autosave_shouldCoalesceEditsAndExposeThemBeforeTheyAreWritten() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Checklist checklist = new Checklist("Autosave-" + UUID.randomUUID(), "write-behind fixture");
+        checklist.addItem(new ChecklistItem("Item", 0));
+        checklist = checklistRepository.save(checklist);
+        Inspection inspection = new Inspection("Autosave-" + UUID.randomUUID(), LocalDate.of(2024, 7, 3), user);
+        inspection.setChecklist(checklist);
+        inspection = inspectionRepository.save(inspection);
+        Result result = new Result(checklist.getItems().get(0), ResultStatus.NOT_APPLICABLE);
+        result.setInspection(inspection);
+        result = resultRepository.save(result);
+        long version = result.getVersion();
+
+        for (String comment : List.of("C", "Cr", "Cra", "Crack in wall")) {
+            mockMvc.perform(put("/api/results/" + result.getId() + "/autosave")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"status\":\"NOT_FULFILLED\",\"comment\":\"" + comment + "\"}"))
+                    .andExpect(status().isAccepted());
+        }
+
+        // Nothing is written yet, but reads already see the latest edit
+        assertNull(resultRepository.findById(result.getId()).orElseThrow().getComment());
+        mockMvc.perform(get("/api/results/inspection/" + inspection.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$[0].comment").value("Crack in wall"))
+                .andExpect(jsonPath("$[0].status").value("NOT_FULFILLED"));
+        mockMvc.perform(get("/api/inspections/" + inspection.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].comment").value("Crack in wall"));
+
+        writeBuffer.flush();
+
+        Result written = resultRepository.findById(result.getId()).orElseThrow();
+        assertEquals("Crack in wall", written.getComment());
+        assertEquals(ResultStatus.NOT_FULFILLED, written.getStatus());
+        assertEquals(version + 1, written.getVersion(), "Four autosaves should be written as one update");
+        assertFalse(writeBuffer.hasPending(inspection.getId()));
+        mockMvc.perform(get("/api/results/inspection/" + inspection.getId()))
+                .andExpect(header().exists("ETag"));
+    }
+
+    @Test
+    void autosave_ofUnknownResult_shouldReturnNotFound() throws Exception {
+        mockMvc.perform(put("/api/results/987654/autosave")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"comment\":\"lost\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void autosave_withTooLongComment_shouldReturnBadRequest() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Checklist checklist = new Checklist("Autosave-" + UUID.randomUUID(), "write-behind fixture");
+        checklist.addItem(new ChecklistItem("Item", 0));
+        checklist = checklistRepository.save(checklist);
+        Inspection inspection = new Inspection("Autosave-" + UUID.randomUUID(), LocalDate.of(2024, 7, 3), user);
+        inspection.setChecklist(checklist);
+        inspection = inspectionRepository.save(inspection);
+        Result result = new Result(checklist.getItems().get(0), ResultStatus.NOT_APPLICABLE);
+        result.setInspection(inspection);
+        result = resultRepository.save(result);
+
+        mockMvc.perform(put("/api/results/" + result.getId() + "/autosave")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"comment\":\"" + "x".repeat(Result.MAX_COMMENT_LENGTH + 1) + "\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        assertFalse(writeBuffer.hasPending(inspection.getId()));
+    }
+
+    @Test
+    void autosave_overtakenByDirectWrite_shouldBeDropped() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Checklist checklist = new Checklist("Autosave-" + UUID.randomUUID(), "write-behind fixture");
+        checklist.addItem(new ChecklistItem("Item", 0));
+        checklist = checklistRepository.save(checklist);
+        Inspection inspection = new Inspection("Autosave-" + UUID.randomUUID(), LocalDate.of(2024, 7, 3), user);
+        inspection.setChecklist(checklist);
+        inspection = inspectionRepository.save(inspection);
+        Result result = new Result(checklist.getItems().get(0), ResultStatus.NOT_APPLICABLE);
+        result.setInspection(inspection);
+        result = resultRepository.save(result);
+
+        mockMvc.perform(put("/api/results/" + result.getId() + "/autosave")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"NOT_FULFILLED\",\"comment\":\"stale draft\"}"))
+                .andExpect(status().isAccepted());
+
+        // A write that does not go through the buffer commits while the autosave is pending
+        Result direct = resultRepository.findById(result.getId()).orElseThrow();
+        direct.setStatus(ResultStatus.FULFILLED);
+        direct.setComment("final");
+        resultRepository.save(direct);
+
+        writeBuffer.flush();
+
+        Result written = resultRepository.findById(result.getId()).orElseThrow();
+        assertEquals("final", written.getComment());
+        assertEquals(ResultStatus.FULFILLED, written.getStatus());
+        assertFalse(writeBuffer.hasPending(inspection.getId()));
+    }
+
+    @Test
+    void history_shouldRebuildPastStatesFromEventsAndSnapshots() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Checklist checklist = new Checklist("History-" + UUID.randomUUID(), "result history fixture");
+        checklist.addItem(new ChecklistItem("Item", 0));
+        checklist = checklistRepository.save(checklist);
+        Inspection inspection = new Inspection("History-" + UUID.randomUUID(), LocalDate.of(2024, 7, 4), user);
+        inspection.setChecklist(checklist);
+        inspection = inspectionRepository.save(inspection);
+        Result result = new Result(checklist.getItems().get(0), ResultStatus.NOT_APPLICABLE);
+        result.setInspection(inspection);
+        result = resultRepository.save(result);
+
+        Thread.sleep(5);
+        Instant beforeEdits = Instant.now();
+        Thread.sleep(5);
+        mockMvc.perform(put("/api/results/" + result.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"NOT_FULFILLED\",\"comment\":\"Crack in wall\"}"))
+                .andExpect(status().isOk());
+        Thread.sleep(5);
+        Instant betweenEdits = Instant.now();
+        Thread.sleep(5);
+        mockMvc.perform(put("/api/results/" + result.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"FULFILLED\",\"comment\":\"Repaired\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/results/" + result.getId() + "/history"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].type").value("CREATED"))
+                .andExpect(jsonPath("$[1].comment").value("Crack in wall"))
+                .andExpect(jsonPath("$[2].status").value("FULFILLED"));
+
+        assertTrue(historyService.snapshot(inspection.getId()));
+        mockMvc.perform(delete("/api/results/" + result.getId()))
+                .andExpect(status().isNoContent());
+
+        String history = "/api/results/inspection/" + inspection.getId() + "/history";
+        mockMvc.perform(get(history).param("asOf", beforeEdits.toString()))
+                .andExpect(jsonPath("$[0].status").value("NOT_APPLICABLE"));
+        mockMvc.perform(get(history).param("asOf", betweenEdits.toString()))
+                .andExpect(jsonPath("$[0].status").value("NOT_FULFILLED"))
+                .andExpect(jsonPath("$[0].comment").value("Crack in wall"));
+        mockMvc.perform(get(history).param("asOf", Instant.now().toString()))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+}
@@ -0,0 +1,73 @@
+package com.inspection.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.model.User;
+import com.inspection.repository.UserRepository;
+import com.inspection.service.SearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SearchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Test
+    void search_shouldMatchPrefixesTyposAndFollowWrites() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        String created = mockMvc.perform(post("/api/inspections")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"facilityName\":\"Zwölfhausen Lagerhalle\",\"inspectionDate\":\"2024-06-01\",\"responsibleUserId\":" + user.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long inspectionId = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(post("/api/results/inspection/" + inspectionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"NOT_FULFILLED\",\"comment\":\"Quirlventil undicht\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/search").param("q", "zwolfhau lager"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("INSPECTION"))
+                .andExpect(jsonPath("$[0].id").value(inspectionId));
+        mockMvc.perform(get("/api/search").param("q", "qurilventil").param("type", "result"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].inspectionId").value(inspectionId));
+
+        // A rebuild from the database yields the same matches
+        searchService.rebuild();
+        mockMvc.perform(get("/api/search").param("q", "quirlventil"))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(delete("/api/inspections/" + inspectionId)).andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/search").param("q", "zwolfhausen quirlventil undicht lagerhalle"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/search").param("q", "quirlventil"))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void search_withUnknownType_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/search").param("q", "x").param("type", "photo"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,163 @@
+package com.inspection.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inspection.model.Checklist;
+import com.inspection.model.ChecklistItem;
+import com.inspection.model.Inspection;
+import com.inspection.model.User;
+import com.inspection.repository.ChecklistRepository;
+import com.inspection.repository.InspectionRepository;
+import com.inspection.repository.ResultRepository;
+import com.inspection.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SyncControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChecklistRepository checklistRepository;
+
+    @Autowired
+    private InspectionRepository inspectionRepository;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Test
+    void sync_shouldReturnOnlyChangesAndDetectConflictingEdits() throws Exception {
+        JsonNode snapshot = sync(null);
+        assertTrue(snapshot.get("full").asBoolean());
+        String token = snapshot.get("token").asText();
+
+        User user = userRepository.findByUsername("user").orElseThrow();
+        long inspectionId = objectMapper.readTree(mockMvc.perform(post("/api/inspections")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"facilityName\":\"Offline\",\"inspectionDate\":\"2024-08-01\",\"responsibleUserId\":" + user.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        long resultId = objectMapper.readTree(mockMvc.perform(post("/api/results/inspection/" + inspectionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"FULFILLED\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+
+        JsonNode delta = sync(token);
+        assertFalse(delta.get("full").asBoolean());
+        assertEquals(List.of(inspectionId), ids(delta.get("inspections")));
+        assertEquals(List.of(resultId), ids(delta.get("results")));
+        long baseVersion = delta.get("results").get(0).get("version").asLong();
+        long inspectionVersion = delta.get("inspections").get(0).get("version").asLong();
+        token = delta.get("token").asText();
+
+        // A result write bumps the inspection's version, so the inspection is sent again with it
+        mockMvc.perform(put("/api/results/" + resultId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"FULFILLED\",\"comment\":\"checked\"}"))
+                .andExpect(status().isOk());
+        delta = sync(token);
+        assertEquals(List.of(inspectionId), ids(delta.get("inspections")));
+        assertTrue(delta.get("inspections").get(0).get("version").asLong() > inspectionVersion);
+        baseVersion = delta.get("results").get(0).get("version").asLong();
+        token = delta.get("token").asText();
+
+        // The second edit is based on the version the first one replaced
+        String edits = "[" +
+                "{\"clientId\":\"a\",\"op\":\"SAVE_RESULT\",\"resultId\":" + resultId + ",\"baseVersion\":" + baseVersion + ",\"status\":\"NOT_FULFILLED\",\"comment\":\"leaking\"}," +
+                "{\"clientId\":\"b\",\"op\":\"SAVE_RESULT\",\"resultId\":" + resultId + ",\"baseVersion\":" + baseVersion + ",\"status\":\"FULFILLED\"}," +
+                "{\"clientId\":\"c\",\"op\":\"SET_STATUS\",\"inspectionId\":" + inspectionId + ",\"expectedStatus\":\"PLANNED\",\"inspectionStatus\":\"IN_PROGRESS\"}," +
+                "{\"clientId\":\"d\",\"op\":\"SET_STATUS\",\"inspectionId\":" + inspectionId + ",\"expectedStatus\":\"PLANNED\",\"inspectionStatus\":\"COMPLETED\"}" +
+                "]";
+        mockMvc.perform(post("/api/sync").contentType(MediaType.APPLICATION_JSON).content(edits))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].outcome").value("APPLIED"))
+                .andExpect(jsonPath("$[0].result.comment").value("leaking"))
+                .andExpect(jsonPath("$[1].outcome").value("CONFLICT"))
+                .andExpect(jsonPath("$[1].result.status").value("NOT_FULFILLED"))
+                .andExpect(jsonPath("$[2].outcome").value("APPLIED"))
+                .andExpect(jsonPath("$[3].outcome").value("CONFLICT"))
+                .andExpect(jsonPath("$[3].inspection.status").value("IN_PROGRESS"));
+
+        mockMvc.perform(delete("/api/results/" + resultId)).andExpect(status().isNoContent());
+        delta = sync(token);
+        assertEquals(List.of(inspectionId), ids(delta.get("inspections")));
+        assertEquals("IN_PROGRESS", delta.get("inspections").get(0).get("status").asText());
+        assertEquals(0, delta.get("results").size());
+        assertEquals("RESULT", delta.get("deleted").get(0).get("type").asText());
+        assertEquals(resultId, delta.get("deleted").get(0).get("id").asLong());
+    }
+
+    @Test
+    void sync_newResultForItemOfAnotherChecklist_shouldBeRejected() throws Exception {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        Checklist own = new Checklist("Sync-own-" + UUID.randomUUID(), "sync fixture");
+        own.addItem(new ChecklistItem("Own item", 0));
+        own = checklistRepository.save(own);
+        Checklist other = new Checklist("Sync-other-" + UUID.randomUUID(), "sync fixture");
+        other.addItem(new ChecklistItem("Foreign item", 0));
+        other = checklistRepository.save(other);
+        Inspection inspection = new Inspection("Sync-foreign", LocalDate.of(2024, 8, 2), user);
+        inspection.setChecklist(own);
+        inspection = inspectionRepository.save(inspection);
+        Long ownItemId = own.getItems().get(0).getId();
+        Long foreignItemId = other.getItems().get(0).getId();
+
+        String edits = "[" +
+                "{\"clientId\":\"a\",\"op\":\"SAVE_RESULT\",\"inspectionId\":" + inspection.getId() + ",\"checklistItemId\":" + foreignItemId + ",\"status\":\"FULFILLED\"}," +
+                "{\"clientId\":\"b\",\"op\":\"SAVE_RESULT\",\"inspectionId\":" + inspection.getId() + ",\"checklistItemId\":" + ownItemId + ",\"status\":\"FULFILLED\"}" +
+                "]";
+        mockMvc.perform(post("/api/sync").contentType(MediaType.APPLICATION_JSON).content(edits))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].outcome").value("REJECTED"))
+                .andExpect(jsonPath("$[0].error").value("Unknown checklist item: " + foreignItemId))
+                .andExpect(jsonPath("$[1].outcome").value("APPLIED"));
+        assertEquals(1, resultRepository.findByInspectionId(inspection.getId()).size());
+    }
+
+    @Test
+    void sync_withInvalidToken_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/sync").param("since", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid sync token"));
+    }
+
+    private JsonNode sync(String token) throws Exception {
+        var request = get("/api/sync");
+        if (token != null) {
+            request.param("since", token);
+        }
+        return objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static List<Long> ids(JsonNode rows) {
+        List<Long> ids = new ArrayList<>();
+        rows.forEach(row -> ids.add(row.get("id").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,106 @@
+package com.inspection.service;
+
+import com.inspection.storage.PhotoStorage.StoredObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhotoCacheTest {
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsedByTotalSize() {
+        PhotoCache cache = new PhotoCache(100, 60, 10, 60_000, 60_000);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        cache.get("a");
+
+        // Pushes the total past 100 bytes; "b" was used least recently
+        cache.put("c", new byte[30]);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(70, cache.size());
+    }
+
+    @Test
+    void put_shouldSkipEntriesAboveTheEntryLimit() {
+        PhotoCache cache = new PhotoCache(100, 60, 10, 60_000, 60_000);
+        cache.put("small", new byte[10]);
+        cache.put("large", new byte[61]);
+
+        assertNull(cache.get("large"));
+        assertNotNull(cache.get("small"));
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    void stat_shouldCacheHitsAndMissesUntilInvalidated() throws IOException {
+        PhotoCache cache = new PhotoCache(100, 60, 10, 60_000, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        StoredObject object = new StoredObject("ab/cd/photo.jpg", 42, 1000);
+
+        assertEquals(Optional.of(object), cache.stat(object.key(), key -> {
+            loads.incrementAndGet();
+            return Optional.of(object);
+        }));
+        assertEquals(Optional.of(object), cache.stat(object.key(), key -> {
+            throw new AssertionError("Should be served from the cache");
+        }));
+        assertTrue(cache.stat("ab/cd/photo_w200.jpg", key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }).isEmpty());
+        assertTrue(cache.stat("ab/cd/photo_w200.jpg", key -> {
+            throw new AssertionError("Misses should be cached too");
+        }).isEmpty());
+
+        // Storing the variant makes it visible right away
+        cache.invalidate("ab/cd/photo_w200.jpg");
+        assertTrue(cache.stat("ab/cd/photo_w200.jpg", key -> {
+            loads.incrementAndGet();
+            return Optional.of(new StoredObject(key, 7, 2000));
+        }).isPresent());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void stat_shouldExpireMisses() throws IOException {
+        PhotoCache cache = new PhotoCache(100, 60, 10, 60_000, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.stat("missing", key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        cache.stat("missing", key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void stat_shouldExpireHits() throws IOException {
+        PhotoCache cache = new PhotoCache(100, 60, 10, 0, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        StoredObject object = new StoredObject("ab/cd/photo.jpg", 42, 1000);
+
+        cache.stat(object.key(), key -> {
+            loads.incrementAndGet();
+            return Optional.of(object);
+        });
+        // Deleted by another instance in the meantime
+        assertTrue(cache.stat(object.key(), key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }).isEmpty());
+
+        assertEquals(2, loads.get());
+    }
+}
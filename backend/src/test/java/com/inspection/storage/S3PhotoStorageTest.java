@@ -0,0 +1,168 @@
+package com.inspection.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the S3 storage against a minimal in-process stand-in that speaks the few S3 calls
+ * the storage uses.
+ */
+class S3PhotoStorageTest {
+
+    private final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private S3PhotoStorage storage;
+
+    @BeforeEach
+    void startStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        storage = new S3PhotoStorage(HttpClient.newHttpClient(), endpoint, "us-east-1", "photos", "inspection/",
+                "test-key", "test-secret");
+    }
+
+    @AfterEach
+    void stopStandIn() {
+        server.stop(0);
+    }
+
+    @Test
+    void storage_shouldPutReadListAndDeleteObjects() throws Exception {
+        byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("photo-", ".tmp");
+        Files.write(file, content);
+
+        storage.put("ab/cd/first.png", file);
+        assertFalse(Files.exists(file));
+        assertArrayEquals(content, objects.get("inspection/ab/cd/first.png"));
+        assertTrue(authorizations.get(0).startsWith("AWS4-HMAC-SHA256 Credential=test-key/"));
+
+        assertEquals(10, storage.stat("ab/cd/first.png").orElseThrow().size());
+        assertTrue(storage.stat("ab/cd/missing.png").isEmpty());
+        try (InputStream in = storage.open("ab/cd/first.png", 2, 3)) {
+            assertArrayEquals("234".getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+        }
+
+        Path second = Files.createTempFile("photo-", ".tmp");
+        Files.write(second, content);
+        storage.put("ef/01/second.png", second);
+        assertEquals(List.of("ab/cd/first.png", "ef/01/second.png"),
+                storage.list(null, 10).stream().map(PhotoStorage.StoredObject::key).toList());
+        assertEquals(List.of("ef/01/second.png"),
+                storage.list("ab/cd/first.png", 10).stream().map(PhotoStorage.StoredObject::key).toList());
+
+        assertTrue(storage.delete("ab/cd/first.png"));
+        assertFalse(storage.delete("ab/cd/first.png"));
+        assertThrows(NoSuchFileException.class, () -> storage.open("ab/cd/first.png", 0, 10));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+        String path = exchange.getRequestURI().getPath();
+        String key = path.startsWith("/photos/") ? path.substring("/photos/".length()) : null;
+        byte[] object = key != null ? objects.get(key) : null;
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                try (InputStream in = exchange.getRequestBody()) {
+                    objects.put(key, in.readAllBytes());
+                }
+                respond(exchange, 200, new byte[0]);
+            }
+            case "HEAD" -> {
+                if (object == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    exchange.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                            Instant.now().atZone(ZoneOffset.UTC)));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                exchange.close();
+            }
+            case "DELETE" -> {
+                objects.remove(key);
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+            default -> {
+                if (key == null) {
+                    respond(exchange, 200, listing(query(exchange.getRequestURI().getRawQuery())));
+                } else if (object == null) {
+                    respond(exchange, 404, new byte[0]);
+                } else {
+                    String range = exchange.getRequestHeaders().getFirst("Range");
+                    if (range == null) {
+                        respond(exchange, 200, object);
+                    } else {
+                        String[] bounds = range.substring("bytes=".length()).split("-");
+                        respond(exchange, 206, Arrays.copyOfRange(object, Integer.parseInt(bounds[0]),
+                                Integer.parseInt(bounds[1]) + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    private byte[] listing(Map<String, String> query) {
+        String prefix = query.getOrDefault("prefix", "");
+        String startAfter = query.getOrDefault("start-after", "");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><ListBucketResult>");
+        objects.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix) && entry.getKey().compareTo(startAfter) > 0)
+                .limit(maxKeys)
+                .forEach(entry -> xml.append("<Contents><Key>").append(entry.getKey()).append("</Key>")
+                        .append("<LastModified>").append(Instant.now()).append("</LastModified>")
+                        .append("<Size>").append(entry.getValue().length).append("</Size></Contents>"));
+        return xml.append("</ListBucketResult>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new TreeMap<>();
+        for (String pair : rawQuery.split("&")) {
+            String[] parts = pair.split("=", 2);
+            query.put(decode(parts[0]), parts.length > 1 ? decode(parts[1]) : "");
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -1,10 +1,31 @@
 import React, { useEffect, useState } from 'react';
 import { Link } from 'react-router-dom';
-import { getStatistics, getInspections } from '../services/api';
-import { Statistics, Inspection, InspectionStatus } from '../types';
+import { getStatistics, getInspections, getInspection, subscribeToInspectionEvents } from '../services/api';
+import { Statistics, Inspection, InspectionEvent, InspectionStatus } from '../types';
 import { useLanguage } from '../contexts/LanguageContext';
 import { useAuth } from '../contexts/AuthContext';
 
+const STATISTICS_KEYS: Record<InspectionStatus, keyof Statistics> = {
+  [InspectionStatus.PLANNED]: 'planned',
+  [InspectionStatus.IN_PROGRESS]: 'inProgress',
+  [InspectionStatus.COMPLETED]: 'completed',
+};
+
+// Moves count inspections from one status to another; without a previous status they are new
+const countMove = (statistics: Statistics, status: InspectionStatus | null, previousStatus: InspectionStatus | null,
+                   count: number): Statistics => {
+  const next = { ...statistics };
+  if (status) {
+    next[STATISTICS_KEYS[status]] += count;
+  }
+  if (previousStatus) {
+    next[STATISTICS_KEYS[previousStatus]] -= count;
+  } else {
+    next.total += count;
+  }
+  return next;
+};
+
 const Dashboard: React.FC = () => {
   const [statistics, setStatistics] = useState<Statistics | null>(null);
   const [inspections, setInspections] = useState<Inspection[]>([]);
@@ -27,7 +48,61 @@ const Dashboard: React.FC = () => {
         setLoading(false);
       }
     };
+
+    // Events are applied to local state; only a reconnect, which may have missed events, reloads the statistics
+    let reloadTimer: ReturnType<typeof setTimeout> | undefined;
+    const reloadStatistics = () => {
+      clearTimeout(reloadTimer);
+      reloadTimer = setTimeout(async () => {
+        try {
+          setStatistics((await getStatistics()).data);
+        } catch (error) {
+          console.error('Error fetching statistics:', error);
+        }
+      }, 1000);
+    };
+
+    const handleEvent = async (event: InspectionEvent) => {
+      switch (event.type) {
+        case 'INSPECTION_CREATED': {
+          if (event.status) {
+            setStatistics((current) => current && countMove(current, event.status, null, 1));
+          }
+          try {
+            const created = (await getInspection(event.inspectionId!)).data;
+            setInspections((current) => [created, ...current.filter((inspection) => inspection.id !== created.id)]);
+          } catch (error) {
+            console.error('Error fetching new inspection:', error);
+          }
+          break;
+        }
+        case 'STATUS_CHANGED':
+          setStatistics((current) => current && countMove(current, event.status, event.previousStatus, 1));
+          setInspections((current) => current.map((inspection) =>
+            inspection.id === event.inspectionId ? { ...inspection, status: event.status! } : inspection
+          ));
+          break;
+        case 'STATUSES_CHANGED': {
+          // One event for a whole bulk transition, all from the same previous status
+          const changed = new Set(event.inspectionIds ?? []);
+          setStatistics((current) => current && countMove(current, event.status, event.previousStatus, changed.size));
+          setInspections((current) => current.map((inspection) =>
+            changed.has(inspection.id) ? { ...inspection, status: event.status! } : inspection
+          ));
+          break;
+        }
+        default:
+          // Saved results change nothing shown here
+          break;
+      }
+    };
+
     fetchData();
+    const events = subscribeToInspectionEvents(handleEvent, reloadStatistics);
+    return () => {
+      clearTimeout(reloadTimer);
+      events.close();
+    };
   }, []);
 
   const getStatusClass = (status: InspectionStatus): string => {
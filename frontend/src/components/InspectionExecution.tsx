@@ -1,6 +1,6 @@
-import React, { useEffect, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
-import { getInspection, getChecklistItems, getResultsByInspection, createResult, updateResult, updateInspectionStatus, uploadFile } from '../services/api';
+import { getInspection, getChecklistItems, getChecklistVersion, upsertResults, autosaveResult, updateInspectionStatus, uploadFile } from '../services/api';
 import { Inspection, ChecklistItem, Result, ResultStatus, InspectionStatus } from '../types';
 import { useLanguage } from '../contexts/LanguageContext';
 
@@ -12,11 +12,21 @@ const InspectionExecution: React.FC = () => {
   const navigate = useNavigate();
   const [inspection, setInspection] = useState<Inspection | null>(null);
   const [checklistItems, setChecklistItems] = useState<ChecklistItem[]>([]);
+  const [checklistName, setChecklistName] = useState('');
   const [results, setResults] = useState<Map<number, Result>>(new Map());
   const [loading, setLoading] = useState(true);
   const [saving, setSaving] = useState(false);
   const [uploading, setUploading] = useState<number | null>(null);
   const { t, language } = useLanguage();
+  // Answers not yet sent, by checklist item id; sent together in one batch request
+  const pendingAnswers = useRef(new Map<number, Result>());
+  const flushTimer = useRef<ReturnType<typeof setTimeout> | undefined>(undefined);
+  const flushInFlight = useRef<Promise<void> | null>(null);
+  // Comment autosaves by result id: the latest unsent value, its debounce timer and the
+  // results with a request in flight, so each result has at most one request at a time
+  const queuedAutosaves = useRef(new Map<number, Result>());
+  const autosaveTimers = useRef(new Map<number, ReturnType<typeof setTimeout>>());
+  const autosavesInFlight = useRef(new Set<number>());
 
   useEffect(() => {
     if (id) {
@@ -24,6 +34,14 @@ const InspectionExecution: React.FC = () => {
     }
   }, [id]);
 
+  useEffect(() => () => {
+    clearTimeout(flushTimer.current);
+    // Whatever was typed last is still sent when leaving the page
+    autosaveTimers.current.forEach((timer) => clearTimeout(timer));
+    autosaveTimers.current.clear();
+    Array.from(queuedAutosaves.current.keys()).forEach(sendAutosave);
+  }, []);
+
   const fetchData = async (inspectionId: number) => {
     try {
       const inspectionRes = await getInspection(inspectionId);
@@ -35,16 +53,21 @@ const InspectionExecution: React.FC = () => {
         setInspection({ ...inspectionRes.data, status: InspectionStatus.IN_PROGRESS });
       }
 
-      // Fetch checklist items
-      if (inspectionRes.data.checklist) {
-        const itemsRes = await getChecklistItems(inspectionRes.data.checklist.id);
+      // Pinned inspections are executed against their published version, which never changes
+      const { checklist, pinnedChecklistId, checklistVersion } = inspectionRes.data;
+      if (pinnedChecklistId != null && checklistVersion != null) {
+        const snapshotRes = await getChecklistVersion(pinnedChecklistId, checklistVersion);
+        setChecklistItems(snapshotRes.data.items);
+        setChecklistName(snapshotRes.data.name);
+      } else if (checklist) {
+        const itemsRes = await getChecklistItems(checklist.id);
         setChecklistItems(itemsRes.data);
+        setChecklistName(checklist.name);
       }
 
-      // Fetch existing results
-      const resultsRes = await getResultsByInspection(inspectionId);
+      // Existing results come with the inspection
       const resultsMap = new Map<number, Result>();
-      resultsRes.data.forEach(result => {
+      (inspectionRes.data.results ?? []).forEach(result => {
         if (result.checklistItem) {
           resultsMap.set(result.checklistItem.id, result);
         }
@@ -57,48 +80,116 @@ const InspectionExecution: React.FC = () => {
     }
   };
 
-  const handleStatusChange = async (item: ChecklistItem, status: ResultStatus) => {
-    if (!id) return;
+  // One batch at a time, so the server never sees two batches of this page overlap
+  const flushAnswers = async () => {
+    clearTimeout(flushTimer.current);
+    while (flushInFlight.current) {
+      await flushInFlight.current;
+    }
+    if (!id || pendingAnswers.current.size === 0) return;
+    const flush = sendAnswers(parseInt(id));
+    flushInFlight.current = flush;
+    try {
+      await flush;
+    } finally {
+      flushInFlight.current = null;
+    }
+  };
 
-    const existingResult = results.get(item.id);
-    
+  const sendAnswers = async (inspectionId: number) => {
+    const answers = Array.from(pendingAnswers.current.values());
+    pendingAnswers.current.clear();
     try {
-      if (existingResult?.id) {
-        // Update existing result
-        const updatedResult = await updateResult(existingResult.id, {
-          ...existingResult,
-          status
+      const saved = await upsertResults(inspectionId, answers.map((answer) => ({
+        checklistItemId: answer.checklistItem.id,
+        status: answer.status ?? null,
+        comment: answer.comment,
+        photoUrl: answer.photoUrl
+      })));
+      // Answers changed while the request was running stay as they are locally
+      setResults((current) => {
+        const next = new Map(current);
+        saved.data.forEach((result) => {
+          if (result.checklistItem && !pendingAnswers.current.has(result.checklistItem.id)) {
+            next.set(result.checklistItem.id, result);
+          }
         });
-        setResults(new Map(results.set(item.id, updatedResult.data)));
-      } else {
-        // Create new result
-        const newResult = await createResult(parseInt(id), {
-          checklistItem: item,
-          status,
-          comment: ''
-        });
-        setResults(new Map(results.set(item.id, newResult.data)));
-      }
+        return next;
+      });
+    } catch (error) {
+      console.error('Error saving results:', error);
+      answers.forEach((answer) => {
+        if (!pendingAnswers.current.has(answer.checklistItem.id)) {
+          pendingAnswers.current.set(answer.checklistItem.id, answer);
+        }
+      });
+    }
+  };
+
+  // Shown right away; answers given in quick succession are saved in one request
+  const saveAnswer = (answer: Result, immediately = false) => {
+    setResults((current) => new Map(current).set(answer.checklistItem.id, answer));
+    pendingAnswers.current.set(answer.checklistItem.id, answer);
+    clearTimeout(flushTimer.current);
+    if (immediately) {
+      flushAnswers();
+    } else {
+      flushTimer.current = setTimeout(flushAnswers, 400);
+    }
+  };
+
+  const handleStatusChange = (item: ChecklistItem, status: ResultStatus) => {
+    const existingResult = results.get(item.id);
+    saveAnswer({ ...(existingResult ?? { checklistItem: item, comment: '' }), status });
+  };
+
+  const sendAutosave = async (resultId: number) => {
+    const result = queuedAutosaves.current.get(resultId);
+    if (!result || autosavesInFlight.current.has(resultId)) return;
+    queuedAutosaves.current.delete(resultId);
+    autosavesInFlight.current.add(resultId);
+    try {
+      await autosaveResult(resultId, result);
     } catch (error) {
-      console.error('Error saving result:', error);
+      console.error('Error autosaving comment:', error);
+    } finally {
+      autosavesInFlight.current.delete(resultId);
+      // Typing went on while the request was running and its pause is already over
+      if (queuedAutosaves.current.has(resultId) && !autosaveTimers.current.has(resultId)) {
+        sendAutosave(resultId);
+      }
     }
   };
 
+  const cancelAutosave = (resultId: number) => {
+    clearTimeout(autosaveTimers.current.get(resultId));
+    autosaveTimers.current.delete(resultId);
+    queuedAutosaves.current.delete(resultId);
+  };
+
   const handleCommentChange = (item: ChecklistItem, comment: string) => {
     const existingResult = results.get(item.id);
     if (existingResult) {
       setResults(new Map(results.set(item.id, { ...existingResult, comment })));
+      const resultId = existingResult.id;
+      if (resultId) {
+        // Autosaved once typing pauses, so a closed tab keeps what was typed
+        queuedAutosaves.current.set(resultId, { ...existingResult, comment });
+        clearTimeout(autosaveTimers.current.get(resultId));
+        autosaveTimers.current.set(resultId, setTimeout(() => {
+          autosaveTimers.current.delete(resultId);
+          sendAutosave(resultId);
+        }, 500));
+      }
     }
   };
 
-  const handleCommentBlur = async (item: ChecklistItem) => {
+  const handleCommentBlur = (item: ChecklistItem) => {
     const result = results.get(item.id);
     if (result?.id) {
-      try {
-        await updateResult(result.id, result);
-      } catch (error) {
-        console.error('Error saving comment:', error);
-      }
+      // The regular save supersedes the autosave
+      cancelAutosave(result.id);
+      saveAnswer(result);
     }
   };
 
@@ -110,24 +201,10 @@ const InspectionExecution: React.FC = () => {
     try {
       const uploadResult = await uploadFile(file);
       const existingResult = results.get(item.id);
-      
-      if (existingResult?.id) {
-        // Update existing result with photo
-        const updatedResult = await updateResult(existingResult.id, {
-          ...existingResult,
-          photoUrl: uploadResult.url
-        });
-        setResults(new Map(results.set(item.id, updatedResult.data)));
-      } else {
-        // Create new result with photo
-        const newResult = await createResult(parseInt(id), {
-          checklistItem: item,
-          status: ResultStatus.NOT_APPLICABLE,
-          comment: '',
-          photoUrl: uploadResult.url
-        });
-        setResults(new Map(results.set(item.id, newResult.data)));
-      }
+      saveAnswer({
+        ...(existingResult ?? { checklistItem: item, status: ResultStatus.NOT_APPLICABLE, comment: '' }),
+        photoUrl: uploadResult.url
+      }, true);
     } catch (error) {
       console.error('Error uploading photo:', error);
     } finally {
@@ -149,6 +226,7 @@ const InspectionExecution: React.FC = () => {
 
     setSaving(true);
     try {
+      await flushAnswers();
       await updateInspectionStatus(parseInt(id), InspectionStatus.COMPLETED);
       navigate(`/inspections/${id}/report`);
     } catch (error) {
@@ -185,7 +263,7 @@ const InspectionExecution: React.FC = () => {
         <div className="inspection-meta">
           <span>{t('date')}: {new Date(inspection.inspectionDate).toLocaleDateString(language === 'de' ? 'de-DE' : language === 'fr' ? 'fr-FR' : 'en-US')}</span>
           <span>{t('employee')}: {inspection.responsibleUser?.name}</span>
-          <span>{t('checklist')}: {inspection.checklist.name}</span>
+          <span>{t('checklist')}: {checklistName}</span>
         </div>
       </div>
 
@@ -277,7 +355,10 @@ const InspectionExecution: React.FC = () => {
           <div className="form-actions form-actions-spaced">
             <button 
               className="btn btn-secondary" 
-              onClick={() => navigate('/inspections')}
+              onClick={async () => {
+                await flushAnswers();
+                navigate('/inspections');
+              }}
             >
               {t('saveAndExit')}
             </button>
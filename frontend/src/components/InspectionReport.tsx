@@ -1,6 +1,6 @@
 import React, { useEffect, useState } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
-import { getInspection, getResultsByInspection } from '../services/api';
+import { getInspection, getResultsByInspection, getInspectionReportUrl } from '../services/api';
 import { Inspection, Result, ResultStatus } from '../types';
 import { useLanguage } from '../contexts/LanguageContext';
 
@@ -74,8 +74,8 @@ const InspectionReport: React.FC = () => {
   };
 
   const handleExportPDF = () => {
-    // For a simple implementation, we'll use the browser's print to PDF functionality
-    window.print();
+    // The server renders a printable, self-contained report and caches it
+    window.open(getInspectionReportUrl(inspection!.id), '_blank');
   };
 
   if (loading) {
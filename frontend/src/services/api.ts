@@ -1,5 +1,5 @@
 import axios from 'axios';
-import { Inspection, Checklist, ChecklistItem, Result, Statistics, User, UserRole } from '../types';
+import { Inspection, InspectionPage, InspectionQuery, Checklist, ChecklistItem, ChecklistSnapshot, Result, ResultStatus, Statistics, InspectionEvent, ComplianceStats, BulkStatusReport, SearchHit, SyncChanges, SyncEdit, SyncEditOutcome, User, UserRole } from '../types';
 
 // Use environment variable or dynamically construct URL based on current host
 // This allows the app to work when accessed from other devices on the network
@@ -53,6 +53,8 @@ export const resetPassword = (id: number, newPassword: string) =>
 
 // Inspection endpoints
 export const getInspections = () => api.get<Inspection[]>('/inspections');
+export const getInspectionPage = (query: InspectionQuery) =>
+  api.get<InspectionPage>('/inspections', { params: { limit: 50, ...query } });
 export const getInspection = (id: number) => api.get<Inspection>(`/inspections/${id}`);
 export const getInspectionsByStatus = (status: string) => api.get<Inspection[]>(`/inspections/status/${status}`);
 export const getStatistics = () => api.get<Statistics>('/inspections/statistics');
@@ -61,12 +63,34 @@ export const createInspection = (data: { facilityName: string; inspectionDate: s
 export const updateInspection = (id: number, data: { facilityName: string; inspectionDate: string; responsibleUserId: number; checklistId?: number | null }) => 
   api.put<Inspection>(`/inspections/${id}`, data);
 export const updateInspectionStatus = (id: number, status: string) => api.put<Inspection>(`/inspections/${id}/status`, { status });
+export const updateInspectionStatuses = (ids: number[], status: string) =>
+  api.put<BulkStatusReport>('/inspections/status', { ids, status });
 export const deleteInspection = (id: number) => api.delete(`/inspections/${id}`);
+export const getInspectionReportUrl = (id: number) => `${API_BASE_URL}/reports/inspections/${id}`;
+// onReconnect runs when the stream is open again after an interruption, since events sent meanwhile are lost
+export const subscribeToInspectionEvents = (onEvent: (event: InspectionEvent) => void, onReconnect?: () => void) => {
+  const source = new EventSource(`${API_BASE_URL}/events`);
+  ['inspection-created', 'status-changed', 'statuses-changed', 'result-saved', 'results-saved'].forEach((name) =>
+    source.addEventListener(name, (message) => onEvent(JSON.parse((message as MessageEvent).data)))
+  );
+  let interrupted = false;
+  source.onerror = () => {
+    interrupted = true;
+  };
+  source.onopen = () => {
+    if (interrupted && onReconnect) {
+      onReconnect();
+    }
+    interrupted = false;
+  };
+  return source;
+};
 
 // Checklist endpoints
 export const getChecklists = () => api.get<Checklist[]>('/checklists');
 export const getChecklist = (id: number) => api.get<Checklist>(`/checklists/${id}`);
 export const getChecklistItems = (id: number) => api.get<ChecklistItem[]>(`/checklists/${id}/items`);
+export const getChecklistVersion = (id: number, version: number) => api.get<ChecklistSnapshot>(`/checklists/${id}/versions/${version}`);
 export const createChecklist = (checklist: Partial<Checklist>) => api.post<Checklist>('/checklists', checklist);
 export const addChecklistItem = (checklistId: number, item: Partial<ChecklistItem>) => api.post<ChecklistItem>(`/checklists/${checklistId}/items`, item);
 export const updateChecklist = (id: number, checklist: Partial<Checklist>) => api.put<Checklist>(`/checklists/${id}`, checklist);
@@ -78,7 +102,20 @@ export const deleteChecklistItem = (itemId: number) => api.delete(`/checklists/i
 export const getResultsByInspection = (inspectionId: number) => api.get<Result[]>(`/results/inspection/${inspectionId}`);
 export const createResult = (inspectionId: number, result: Partial<Result>) => api.post<Result>(`/results/inspection/${inspectionId}`, result);
 export const updateResult = (id: number, result: Partial<Result>) => api.put<Result>(`/results/${id}`, result);
+export const autosaveResult = (id: number, result: Partial<Result>) => api.put<void>(`/results/${id}/autosave`, result);
 export const deleteResult = (id: number) => api.delete(`/results/${id}`);
+export const upsertResults = (
+  inspectionId: number,
+  results: { checklistItemId: number; status: ResultStatus | null; comment?: string; photoUrl?: string }[]
+) => api.put<Result[]>(`/results/inspection/${inspectionId}`, results);
+
+// Analytics endpoints (periods use the format yyyy-MM)
+export const getComplianceByFacility = (from?: string, to?: string) =>
+  api.get<ComplianceStats[]>('/analytics/compliance/facilities', { params: { from, to } });
+export const getComplianceByMonth = (params: { from?: string; to?: string; facility?: string; inspectorId?: number }) =>
+  api.get<ComplianceStats[]>('/analytics/compliance/monthly', { params });
+export const getComplianceByInspector = (from?: string, to?: string) =>
+  api.get<ComplianceStats[]>('/analytics/compliance/inspectors', { params: { from, to } });
 
 // File upload endpoint
 export const uploadFile = async (file: File): Promise<{ url: string; filename: string }> => {
@@ -92,4 +129,12 @@ export const uploadFile = async (file: File): Promise<{ url: string; filename: s
   return response.data;
 };
 
+// Offline sync endpoints
+export const getSyncChanges = (since?: string) => api.get<SyncChanges>('/sync', { params: { since } });
+export const pushSyncEdits = (edits: SyncEdit[]) => api.post<SyncEditOutcome[]>('/sync', edits);
+
+// Search endpoints
+export const search = (q: string, type?: SearchHit['type'][], limit?: number) =>
+  api.get<SearchHit[]>('/search', { params: { q, type: type?.join(','), limit } });
+
 export default api;
@@ -23,10 +23,23 @@ export interface ChecklistItem {
   desiredPhotoUrl?: string;
 }
 
-export interface Checklist {
+export interface ChecklistSummary {
   id: number;
   name: string;
   description: string;
+}
+
+export interface Checklist extends ChecklistSummary {
+  items: ChecklistItem[];
+}
+
+// An immutable published version of a checklist
+export interface ChecklistSnapshot {
+  checklistId: number;
+  version: number;
+  name: string;
+  description: string;
+  publishedAt: string;
   items: ChecklistItem[];
 }
 
@@ -44,8 +57,27 @@ export interface Inspection {
   inspectionDate: string;
   responsibleUser: User;
   status: InspectionStatus;
-  checklist: Checklist | null;
-  results: Result[];
+  checklist: ChecklistSummary | null;
+  // Published checklist version the inspection is executed against, null for the live checklist
+  pinnedChecklistId: number | null;
+  checklistVersion: number | null;
+  // Only populated by the single-inspection endpoint
+  results?: Result[];
+}
+
+export interface InspectionPage {
+  items: Inspection[];
+  nextCursor: string | null;
+}
+
+export interface InspectionQuery {
+  limit?: number;
+  cursor?: string;
+  status?: InspectionStatus;
+  from?: string;
+  to?: string;
+  responsibleUserId?: number;
+  facility?: string;
 }
 
 export interface Statistics {
@@ -55,6 +87,99 @@ export interface Statistics {
   total: number;
 }
 
+// Pushed over /api/events; which fields are set depends on the type
+export interface InspectionEvent {
+  type: 'INSPECTION_CREATED' | 'STATUS_CHANGED' | 'STATUSES_CHANGED' | 'RESULT_SAVED' | 'RESULTS_SAVED';
+  inspectionId: number | null;
+  status: InspectionStatus | null;
+  previousStatus: InspectionStatus | null;
+  resultId: number | null;
+  resultStatus: ResultStatus | null;
+  inspectionIds: number[] | null;
+  occurredAt: string;
+}
+
+export interface BulkStatusReport {
+  status: InspectionStatus;
+  updated: number;
+  results: {
+    id: number;
+    outcome: 'UPDATED' | 'UNCHANGED' | 'ILLEGAL_TRANSITION' | 'NOT_FOUND';
+    previousStatus: InspectionStatus | null;
+  }[];
+}
+
+export interface SearchHit {
+  type: 'INSPECTION' | 'CHECKLIST_ITEM' | 'RESULT';
+  id: number;
+  inspectionId: number | null;
+  checklistId: number | null;
+  text: string;
+  score: number;
+}
+
+export interface SyncChanges {
+  token: string;
+  full: boolean;
+  inspections: {
+    id: number;
+    version: number;
+    facilityName: string;
+    inspectionDate: string;
+    status: InspectionStatus;
+    responsibleUserId: number;
+    checklistId: number | null;
+    pinnedChecklistId: number | null;
+    checklistVersion: number | null;
+  }[];
+  results: SyncResult[];
+  checklists: { id: number; version: number; name: string; description: string | null }[];
+  checklistItems: { id: number; checklistId: number; description: string; orderIndex: number; desiredPhotoUrl: string | null }[];
+  deleted: { type: 'INSPECTION' | 'RESULT' | 'CHECKLIST' | 'CHECKLIST_ITEM'; id: number }[];
+}
+
+export interface SyncResult {
+  id: number;
+  version: number;
+  inspectionId: number;
+  checklistItemId: number | null;
+  status: ResultStatus | null;
+  comment: string | null;
+  photoUrl: string | null;
+}
+
+export interface SyncEdit {
+  clientId: string;
+  op: 'SAVE_RESULT' | 'DELETE_RESULT' | 'SET_STATUS';
+  resultId?: number;
+  baseVersion?: number;
+  inspectionId?: number;
+  checklistItemId?: number;
+  status?: ResultStatus | null;
+  comment?: string;
+  photoUrl?: string;
+  expectedStatus?: InspectionStatus;
+  inspectionStatus?: InspectionStatus;
+}
+
+export interface SyncEditOutcome {
+  clientId: string;
+  outcome: 'APPLIED' | 'CONFLICT' | 'REJECTED';
+  error: string | null;
+  result: SyncResult | null;
+  inspection: SyncChanges['inspections'][number] | null;
+}
+
+export interface ComplianceStats {
+  key: string;
+  inspections: number;
+  completedInspections: number;
+  fulfilled: number;
+  notFulfilled: number;
+  notApplicable: number;
+  fulfilmentRate: number | null;
+}
+
 export interface User {
   id: number;
   username: string;